@@ -0,0 +1,74 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A batch of positions from random games answered one MinimaxAI search at a time,
+ * by a fresh BatchEvaluator, and by one whose cache is already warm.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BatchEvaluatorBenchmark {
+
+    @Param({"100", "10000"})
+    private int batchSize;
+
+    private int[] positions;
+    private final MinimaxAI minimax = new MinimaxAI(1);
+    private final BatchEvaluator warm = new BatchEvaluator();
+
+    @Setup
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        BitboardGameBoard board = new BitboardGameBoard();
+        positions = new int[batchSize];
+        for (int i = 0; i < batchSize; i++) {
+            do {
+                board.newGame();
+                for (int moves = random.nextInt(7); moves > 0 && !board.isGameOver(); ) {
+                    if (board.play(random.nextInt(3), random.nextInt(3))) {
+                        moves--;
+                    }
+                }
+            } while (board.isGameOver());
+            int player = board.getNextPlayer();
+            positions[i] = BatchEvaluator.pack(board.getMask(player), board.getMask(player == 1 ? 2 : 1));
+        }
+        warm.findBestMoveMasks(positions);
+    }
+
+    @Benchmark
+    public int perPosition() {
+        int sum = 0;
+        for (int position : positions) {
+            sum += minimax.findBestMoveMask(position >>> 9, position & BitboardGameBoard.FULL_MASK);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int[] batchCold() {
+        return new BatchEvaluator().findBestMoveMasks(positions);
+    }
+
+    @Benchmark
+    public int[] batchWarm() {
+        return warm.findBestMoveMasks(positions);
+    }
+}
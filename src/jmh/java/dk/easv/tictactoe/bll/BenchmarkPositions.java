@@ -0,0 +1,53 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ * Fixed positions shared by the benchmarks, boards indexed [col][row].
+ */
+public enum BenchmarkPositions {
+
+    /** Nothing played, X (1) to move: the most expensive search */
+    EMPTY(new int[][]{
+            {0, 0, 0},
+            {0, 0, 0},
+            {0, 0, 0}}),
+
+    /** X center, O corner, X opposite corner; O (2) to move */
+    MID_GAME(new int[][]{
+            {2, 0, 0},
+            {0, 1, 0},
+            {0, 0, 1}}),
+
+    /** Three empty cells left, X (1) to move */
+    NEAR_TERMINAL(new int[][]{
+            {1, 2, 1},
+            {0, 2, 0},
+            {2, 1, 0}});
+
+    private final int[][] board;
+
+    BenchmarkPositions(int[][] board) {
+        this.board = board;
+    }
+
+    /**
+     * Gets a fresh copy, searches write into the board while they run
+     */
+    public int[][] board() {
+        return new int[][]{board[0].clone(), board[1].clone(), board[2].clone()};
+    }
+
+    /**
+     * Gets the player to move, X moves first
+     */
+    public int playerToMove() {
+        int stones = 0;
+        for (int[] column : board) {
+            for (int cell : column) {
+                if (cell != 0) {
+                    stones++;
+                }
+            }
+        }
+        return stones % 2 == 0 ? 1 : 2;
+    }
+}
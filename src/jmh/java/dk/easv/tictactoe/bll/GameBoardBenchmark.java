@@ -0,0 +1,77 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Cost of playing moves, including the win check after each one, and of copying the board.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GameBoardBenchmark {
+
+    // [col, row] moves of a full game ending in a draw, so every move runs the win and full-board checks
+    private static final int[][] DRAW = {{0, 0}, {1, 1}, {2, 2}, {0, 1}, {2, 1}, {2, 0}, {0, 2}, {1, 2}, {1, 0}};
+    // X wins on the fifth move
+    private static final int[][] WIN = {{0, 0}, {1, 0}, {0, 1}, {2, 0}, {0, 2}};
+
+    private final GameBoard gameBoard = new GameBoard();
+    private final BitboardGameBoard bitboard = new BitboardGameBoard();
+    private final KInARowBoard kInARow = new KInARowBoard();
+    private final int[][] target = new int[3][3];
+
+    @Benchmark
+    public int gameBoardPlayDraw() {
+        return playAll(gameBoard, DRAW);
+    }
+
+    @Benchmark
+    public int gameBoardPlayWin() {
+        return playAll(gameBoard, WIN);
+    }
+
+    @Benchmark
+    public int bitboardPlayDraw() {
+        return playAll(bitboard, DRAW);
+    }
+
+    @Benchmark
+    public int bitboardPlayWin() {
+        return playAll(bitboard, WIN);
+    }
+
+    @Benchmark
+    public int kInARowPlayDraw() {
+        return playAll(kInARow, DRAW);
+    }
+
+    @Benchmark
+    public int[][] gameBoardGetBoardCopy() {
+        return gameBoard.getBoardCopy();
+    }
+
+    @Benchmark
+    public int[][] bitboardGetBoardCopyInto() {
+        return bitboard.getBoardCopy(target);
+    }
+
+    private static int playAll(IGameBoard board, int[][] moves) {
+        board.newGame();
+        for (int[] move : moves) {
+            board.play(move[0], move[1]);
+        }
+        return board.getWinner();
+    }
+}
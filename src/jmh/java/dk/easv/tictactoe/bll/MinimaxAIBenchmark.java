@@ -0,0 +1,58 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Search cost of MinimaxAI from an empty, a mid-game and a near-terminal position.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinimaxAIBenchmark {
+
+    @Param({"EMPTY", "MID_GAME", "NEAR_TERMINAL"})
+    private BenchmarkPositions position;
+
+    @Param({"MINIMAX", "ALPHA_BETA"})
+    private MinimaxAI.SearchMode mode;
+
+    private MinimaxAI ai;
+    private int[][] board;
+
+    @Setup
+    public void setUp() {
+        ai = new MinimaxAI(position.playerToMove());
+        ai.setSearchMode(mode);
+        board = position.board();
+    }
+
+    /**
+     * The full best-move search, without the random mistakes
+     */
+    @Benchmark
+    public int findBestMoveMask() {
+        return ai.findBestMoveMask(board);
+    }
+
+    /**
+     * What the game calls, including the occasional random move
+     */
+    @Benchmark
+    public int[] findBestMove() {
+        return ai.findBestMove(board);
+    }
+}
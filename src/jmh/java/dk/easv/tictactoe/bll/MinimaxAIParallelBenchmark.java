@@ -0,0 +1,57 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Speedup curve of SearchMode.PARALLEL: compare the scores across the parallelism values.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MinimaxAIParallelBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    private int parallelism;
+
+    @Param({"EMPTY", "MID_GAME"})
+    private BenchmarkPositions position;
+
+    private ForkJoinPool pool;
+    private MinimaxAI ai;
+    private int[][] board;
+
+    @Setup
+    public void setUp() {
+        pool = new ForkJoinPool(parallelism);
+        ai = new MinimaxAI(position.playerToMove());
+        ai.setSearchMode(MinimaxAI.SearchMode.PARALLEL);
+        ai.setPool(pool);
+        board = position.board();
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public int findBestMoveMask() {
+        return ai.findBestMoveMask(board);
+    }
+}
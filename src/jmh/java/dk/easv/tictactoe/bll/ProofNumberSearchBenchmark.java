@@ -0,0 +1,78 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Solving the empty board of each k-in-a-row variant with ProofNumberSearch, from an empty node table.
+ * The nodes counter gives nodes per second. At the end of each trial the peak node table memory is
+ * printed, and whether the variant was solved within MAX_NODES, i.e. whether it can be served
+ * with perfect play.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class ProofNumberSearchBenchmark {
+
+    private static final long MAX_NODES = 5_000_000;
+    private static final long TABLE_BYTES = 256L << 20;
+
+    /** size x size board with winLength in a row, as "size/winLength" */
+    @Param({"3/3", "4/3", "4/4", "5/3", "5/4"})
+    private String variant;
+
+    private ProofNumberSearch search;
+    private int[][] board;
+    private int peakTableSize;
+    private ProofNumberSearch.Result result;
+
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    @State(Scope.Thread)
+    public static class Nodes {
+        public long nodes;
+    }
+
+    @Setup
+    public void setUp() {
+        String[] parts = variant.split("/");
+        int size = Integer.parseInt(parts[0]);
+        search = new ProofNumberSearch(size, Integer.parseInt(parts[1]), TABLE_BYTES);
+        search.setMaxNodes(MAX_NODES);
+        board = new int[size][size];
+    }
+
+    @Setup(Level.Invocation)
+    public void clearTable() {
+        search.clearTable();
+    }
+
+    @TearDown
+    public void report() {
+        System.out.printf("%n%s: %s, peak node table %.1f MB (%d positions), %d evictions%n", variant, result,
+                peakTableSize * (double) ProofNumberTable.ENTRY_BYTES / (1 << 20), peakTableSize, search.getEvictions());
+    }
+
+    @Benchmark
+    public ProofNumberSearch.Result solve(Nodes nodes) {
+        result = search.solve(board, 1);
+        nodes.nodes += search.getNodeCount();
+        peakTableSize = Math.max(peakTableSize, search.getTableSize());
+        return result;
+    }
+}
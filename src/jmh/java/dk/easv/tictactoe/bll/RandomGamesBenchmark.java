@@ -0,0 +1,53 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Complete games of random moves per second, the unit of work of a headless simulation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomGamesBenchmark {
+
+    private final SplittableRandom random = new SplittableRandom(42);
+    private final GameBoard gameBoard = new GameBoard();
+    private final BitboardGameBoard bitboard = new BitboardGameBoard();
+    private final KInARowBoard kInARow = new KInARowBoard();
+
+    @Benchmark
+    public int gameBoard() {
+        return playRandomGame(gameBoard);
+    }
+
+    @Benchmark
+    public int bitboard() {
+        return playRandomGame(bitboard);
+    }
+
+    @Benchmark
+    public int kInARow() {
+        return playRandomGame(kInARow);
+    }
+
+    private int playRandomGame(IGameBoard board) {
+        board.newGame();
+        while (!board.isGameOver()) {
+            board.play(random.nextInt(3), random.nextInt(3));
+        }
+        return board.getWinner();
+    }
+}
@@ -0,0 +1,31 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ * Playing strength offered to the user. Each level is served by the cheapest registered
+ * AIEngine of that level, so weak levels spend less compute instead of throwing games on purpose.
+ */
+public enum AIDifficulty {
+    /** Random moves */
+    EASY("Easy"),
+    /** A small playout budget, finds obvious wins and blocks but misses most traps */
+    MEDIUM("Medium"),
+    /** A larger playout budget, rarely loses */
+    HARD("Hard"),
+    /** Never loses */
+    PERFECT("Perfect");
+
+    private final String displayName;
+
+    AIDifficulty(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    @Override
+    public String toString() {
+        return displayName;
+    }
+}
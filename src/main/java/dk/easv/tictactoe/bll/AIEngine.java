@@ -0,0 +1,59 @@
+package dk.easv.tictactoe.bll;
+
+import java.time.Duration;
+import java.util.function.IntFunction;
+
+/**
+ * A kind of AI player that can be registered with an AIRegistry, tagged with the difficulty it
+ * plays at and how long it is expected to take per move on the classic board.
+ */
+public final class AIEngine {
+
+    private final String name;
+    private final AIDifficulty difficulty;
+    private final Duration expectedMoveTime;
+    private final IntFunction<IAIPlayer> factory;
+
+    /**
+     * @param name short unique name, e.g. for command line arguments
+     * @param difficulty the strength the engine plays at
+     * @param expectedMoveTime typical compute time per move, used to pick the cheapest engine
+     * @param factory creates a player for a player id, may throw IllegalStateException if the
+     *                engine cannot run, e.g. because a resource is missing
+     */
+    public AIEngine(String name, AIDifficulty difficulty, Duration expectedMoveTime, IntFunction<IAIPlayer> factory) {
+        this.name = name;
+        this.difficulty = difficulty;
+        this.expectedMoveTime = expectedMoveTime;
+        this.factory = factory;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public AIDifficulty getDifficulty() {
+        return difficulty;
+    }
+
+    public Duration getExpectedMoveTime() {
+        return expectedMoveTime;
+    }
+
+    public IntFunction<IAIPlayer> getFactory() {
+        return factory;
+    }
+
+    /**
+     * Creates a new player
+     * @param aiPlayer The player id the AI plays as
+     */
+    public IAIPlayer create(int aiPlayer) {
+        return factory.apply(aiPlayer);
+    }
+
+    @Override
+    public String toString() {
+        return name + " (" + difficulty + ", ~" + expectedMoveTime.toNanos() / 1000.0 + " us/move)";
+    }
+}
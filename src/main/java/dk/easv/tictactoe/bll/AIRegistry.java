@@ -0,0 +1,115 @@
+package dk.easv.tictactoe.bll;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * The AI engines a game can choose from. A difficulty is turned into a player by trying the
+ * engines of that difficulty from the cheapest up, so a strong level is served by the precomputed
+ * table when it is available and only falls back to a search when it is not.
+ * Engines are registered once at startup, lookups may then happen from any thread.
+ */
+public class AIRegistry {
+
+    // measured on the classic board, only the order between engines of one difficulty matters
+    private static final Duration LOOKUP_TIME = Duration.ofNanos(100);
+    private static final Duration SMALL_PLAYOUTS_TIME = Duration.ofNanos(10_000);
+    private static final Duration LARGE_PLAYOUTS_TIME = Duration.ofNanos(40_000);
+    private static final Duration SEARCH_TIME = Duration.ofNanos(60_000);
+
+    /** Playouts per move at MEDIUM, loses about a quarter of its games against perfect play */
+    public static final int MEDIUM_PLAYOUTS = 25;
+    /** Playouts per move at HARD, loses well under one game in a hundred against perfect play */
+    public static final int HARD_PLAYOUTS = 100;
+
+    private static final AIRegistry DEFAULT = createDefault();
+
+    private final List<AIEngine> engines = new ArrayList<>();
+
+    /**
+     * Gets the registry with the built-in engines
+     */
+    public static AIRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    private static AIRegistry createDefault() {
+        AIRegistry registry = new AIRegistry();
+        registry.register(new AIEngine("random", AIDifficulty.EASY, LOOKUP_TIME, player -> new RandomAI()));
+        registry.register(new AIEngine("mcts", AIDifficulty.MEDIUM, SMALL_PLAYOUTS_TIME,
+                player -> new MctsAI(player, MEDIUM_PLAYOUTS)));
+        registry.register(new AIEngine("mcts-hard", AIDifficulty.HARD, LARGE_PLAYOUTS_TIME,
+                player -> new MctsAI(player, HARD_PLAYOUTS)));
+        registry.register(new AIEngine("perfect", AIDifficulty.PERFECT, LOOKUP_TIME, player -> {
+            if (!PerfectPlayAI.isAvailable()) {
+                throw new IllegalStateException("Perfect play table not available");
+            }
+            return new PerfectPlayAI(player);
+        }));
+        registry.register(new AIEngine("minimax", AIDifficulty.PERFECT, SEARCH_TIME, player -> {
+            MinimaxAI ai = new MinimaxAI(player);
+            ai.setMistakeProbability(0);
+            return ai;
+        }));
+        return registry;
+    }
+
+    /**
+     * Adds an engine, replacing a registered engine with the same name
+     */
+    public synchronized void register(AIEngine engine) {
+        engines.removeIf(e -> e.getName().equals(engine.getName()));
+        engines.add(engine);
+    }
+
+    /**
+     * Gets every registered engine, cheapest first
+     */
+    public synchronized List<AIEngine> getEngines() {
+        List<AIEngine> result = new ArrayList<>(engines);
+        result.sort(Comparator.comparing(AIEngine::getExpectedMoveTime));
+        return result;
+    }
+
+    /**
+     * Gets the engines that play at a difficulty, cheapest first
+     */
+    public List<AIEngine> getEngines(AIDifficulty difficulty) {
+        List<AIEngine> result = getEngines();
+        result.removeIf(e -> e.getDifficulty() != difficulty);
+        return result;
+    }
+
+    /**
+     * Finds an engine by name
+     * @throws IllegalArgumentException if no engine has that name
+     */
+    public synchronized AIEngine getEngine(String name) {
+        for (AIEngine engine : engines) {
+            if (engine.getName().equals(name)) {
+                return engine;
+            }
+        }
+        throw new IllegalArgumentException("Unknown AI engine " + name);
+    }
+
+    /**
+     * Creates a player with the cheapest engine of a difficulty that can run here
+     * @param difficulty the strength to play at
+     * @param aiPlayer The player id the AI plays as
+     * @throws IllegalStateException if no engine of that difficulty can be created
+     */
+    public IAIPlayer create(AIDifficulty difficulty, int aiPlayer) {
+        IllegalStateException failure = new IllegalStateException("No AI engine for " + difficulty);
+        for (AIEngine engine : getEngines(difficulty)) {
+            try {
+                return engine.create(aiPlayer);
+            } catch (IllegalStateException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        throw failure;
+    }
+}
@@ -0,0 +1,153 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * Finds the best moves of many 3x3 positions in one call.
+ * Positions are packed ints, see pack(). Each batch is reduced to its distinct canonical
+ * positions under the eight board symmetries, positions not yet in the shared cache are
+ * searched once each by MinimaxAI, in parallel for large batches, and every answer is
+ * mapped back to the orientation it was asked in. Safe to use from any number of threads.
+ */
+public class BatchEvaluator {
+
+    private static final int SOLVED = 1 << BitboardGameBoard.CELLS; // set on cached entries, the low 9 bits are the best moves
+    private static final int PARALLEL_THRESHOLD = 64; // distinct new positions before the search is split
+
+    private final AtomicIntegerArray cache = new AtomicIntegerArray(1 << (2 * BitboardGameBoard.CELLS));
+    private final TranspositionTable table = new TranspositionTable();
+    private final ThreadLocal<MinimaxAI> searchers = ThreadLocal.withInitial(() -> new MinimaxAI(1, table));
+    private final ForkJoinPool pool;
+    private final LongAdder searches = new LongAdder();
+
+    public BatchEvaluator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param pool pool that searches large batches
+     */
+    public BatchEvaluator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Packs a position given as bitboards, bit (row * 3 + col) per cell
+     * @param toMove stones of the player to move
+     * @param opponent stones of the other player
+     * @return (toMove << 9) | opponent
+     */
+    public static int pack(int toMove, int opponent) {
+        return BoardSymmetry.key(toMove, opponent);
+    }
+
+    /**
+     * Packs a board array
+     * @param board board indexed [col][row], 0 for empty
+     * @param player the player to move
+     */
+    public static int pack(int[][] board, int player) {
+        int toMove = 0;
+        int opponent = 0;
+        for (int col = 0; col < BitboardGameBoard.SIZE; col++) {
+            for (int row = 0; row < BitboardGameBoard.SIZE; row++) {
+                int bit = 1 << BitboardGameBoard.cellIndex(col, row);
+                if (board[col][row] == player) {
+                    toMove |= bit;
+                } else if (board[col][row] != 0) {
+                    opponent |= bit;
+                }
+            }
+        }
+        return pack(toMove, opponent);
+    }
+
+    /**
+     * Gets how many distinct positions have been searched, as opposed to answered from the cache
+     */
+    public long getSearchCount() {
+        return searches.sum();
+    }
+
+    /**
+     * Finds every best move of each position
+     * @param positions packed positions
+     * @return a 9-bit mask of best moves per position, 0 where the game is over
+     */
+    public int[] findBestMoveMasks(int[] positions) {
+        int[] symmetries = new int[positions.length];
+        int[] keys = new int[positions.length];
+        int[] pending = new int[positions.length];
+        int pendingCount = 0;
+
+        for (int i = 0; i < positions.length; i++) {
+            int toMove = positions[i] >>> BitboardGameBoard.CELLS;
+            int opponent = positions[i] & BitboardGameBoard.FULL_MASK;
+            int s = BoardSymmetry.canonicalSymmetry(toMove, opponent);
+            symmetries[i] = s;
+            keys[i] = BoardSymmetry.key(BoardSymmetry.transformMask(toMove, s), BoardSymmetry.transformMask(opponent, s));
+            if (cache.get(keys[i]) == 0) {
+                pending[pendingCount++] = keys[i];
+            }
+        }
+
+        if (pendingCount > 0) {
+            searchDistinct(pending, pendingCount);
+        }
+
+        int[] result = new int[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            int bestMoves = cache.get(keys[i]) & BitboardGameBoard.FULL_MASK;
+            result[i] = BoardSymmetry.transformMask(bestMoves, BoardSymmetry.inverse(symmetries[i]));
+        }
+        return result;
+    }
+
+    /**
+     * Finds one best move for each position, picking randomly among equally good moves
+     * @param positions packed positions
+     * @return the cell index (row * 3 + col) per position, -1 where the game is over
+     */
+    public int[] findBestMoves(int[] positions) {
+        int[] moves = findBestMoveMasks(positions);
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = moves[i] == 0 ? -1 : BitboardGameBoard.randomCell(moves[i], random);
+        }
+        return moves;
+    }
+
+    private void searchDistinct(int[] pending, int count) {
+        Arrays.sort(pending, 0, count);
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            if (i == 0 || pending[i] != pending[i - 1]) {
+                pending[distinct++] = pending[i];
+            }
+        }
+
+        IntStream keys = Arrays.stream(pending, 0, distinct);
+        if (distinct < PARALLEL_THRESHOLD) {
+            keys.forEach(this::search);
+        } else {
+            pool.submit(() -> keys.parallel().forEach(this::search)).join();
+        }
+    }
+
+    // solves one canonical position, threads racing on the same key store the same answer
+    private void search(int key) {
+        int toMove = key >>> BitboardGameBoard.CELLS;
+        int opponent = key & BitboardGameBoard.FULL_MASK;
+        int bestMoves = 0;
+        if (!BitboardGameBoard.hasWin(toMove) && !BitboardGameBoard.hasWin(opponent)) {
+            bestMoves = searchers.get().findBestMoveMask(toMove, opponent);
+        }
+        cache.set(key, SOLVED | bestMoves);
+        searches.increment();
+    }
+}
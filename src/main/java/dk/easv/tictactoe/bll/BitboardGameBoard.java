@@ -0,0 +1,287 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Random;
+
+/**
+ * Game board that keeps each player's stones in a 9-bit mask.
+ * Bit (row * 3 + col) is set when the player occupies that cell,
+ * so win and draw detection are a handful of bit operations.
+ * Moves are kept on a stack with a Zobrist key, the same key a 3x3 KInARowBoard gives.
+ */
+public class BitboardGameBoard implements IGameBoard {
+
+    static final int SIZE = 3;
+    static final int CELLS = SIZE * SIZE;
+    static final int FULL_MASK = (1 << CELLS) - 1;
+
+    // rows, columns, then the two diagonals
+    static final int[] LINE_MASKS = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100
+    };
+
+    // [col, row] coordinates of every line, shared so getWinningLine() never allocates
+    private static final int[][][] WINNING_LINES = new int[LINE_MASKS.length][][];
+
+    static {
+        for (int i = 0; i < LINE_MASKS.length; i++) {
+            int[][] line = new int[SIZE][];
+            int n = 0;
+            for (int index = 0; index < CELLS; index++) {
+                if ((LINE_MASKS[i] & (1 << index)) != 0) {
+                    line[n++] = new int[]{colOf(index), rowOf(index)};
+                }
+            }
+            WINNING_LINES[i] = line;
+        }
+    }
+
+    private static final ZobristKeys KEYS = ZobristKeys.of(SIZE, SIZE);
+
+    private final int[] masks = new int[3]; // indexed by player id, slot 0 unused
+    private final int[] moves = new int[CELLS]; // cells played since the last newGame(), in order
+    private final int[] undoneMoves = new int[CELLS]; // cells taken back by undo(), the last one on top
+    private int moveCount;
+    private int undoneCount;
+    private long hash;
+    private int currentPlayer;
+    private int winningLineIndex;
+    private boolean gameOver;
+    private int winner;
+    private final GameListeners listeners = new GameListeners();
+
+    public BitboardGameBoard() {
+        newGame();
+    }
+
+    @Override
+    public int getNextPlayer() {
+        return currentPlayer;
+    }
+
+    @Override
+    public boolean play(int col, int row) {
+        if (gameOver || col < 0 || col >= SIZE || row < 0 || row >= SIZE) {
+            return false;
+        }
+        int index = cellIndex(col, row);
+        if (((masks[1] | masks[2]) & (1 << index)) != 0) {
+            return false;
+        }
+        undoneCount = 0;
+        int player = currentPlayer;
+        makeMove(index);
+        listeners.fireMovePlayed(player, col, row, this);
+        return true;
+    }
+
+    @Override
+    public void makeMove(int index) {
+        if (gameOver) {
+            throw new IllegalStateException("The game is over");
+        }
+        if (index < 0 || index >= CELLS || ((masks[1] | masks[2]) & (1 << index)) != 0) {
+            throw new IllegalArgumentException("Cell " + index + " is not an empty cell");
+        }
+        int player = currentPlayer;
+        masks[player] |= 1 << index;
+        moves[moveCount++] = index;
+        hash ^= KEYS.cells[player][index] ^ KEYS.side;
+        int line = findWinningLine(masks[player]);
+        if (line != -1) {
+            gameOver = true;
+            winner = player;
+            winningLineIndex = line;
+        } else if (moveCount == CELLS) {
+            gameOver = true;
+            winner = -1;
+        } else {
+            currentPlayer = (player == 2) ? 1 : 2;
+        }
+    }
+
+    @Override
+    public int unmakeMove() {
+        if (moveCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        int index = moves[--moveCount];
+        int player = (masks[1] & (1 << index)) != 0 ? 1 : 2;
+        masks[player] &= ~(1 << index);
+        hash ^= KEYS.cells[player][index] ^ KEYS.side;
+        winningLineIndex = -1;
+        gameOver = false;
+        winner = -1;
+        currentPlayer = player;
+        return index;
+    }
+
+    @Override
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    @Override
+    public boolean undo() {
+        if (moveCount == 0) {
+            return false;
+        }
+        int player = getCell(colOf(moves[moveCount - 1]), rowOf(moves[moveCount - 1]));
+        int index = unmakeMove();
+        undoneMoves[undoneCount++] = index;
+        listeners.fireMoveUndone(player, colOf(index), rowOf(index));
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (undoneCount == 0 || gameOver) {
+            return false;
+        }
+        int index = undoneMoves[--undoneCount];
+        int player = currentPlayer;
+        makeMove(index);
+        listeners.fireMovePlayed(player, colOf(index), rowOf(index), this);
+        return true;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    @Override
+    public int getWinner() {
+        return winner;
+    }
+
+    @Override
+    public void newGame() {
+        masks[1] = 0;
+        masks[2] = 0;
+        moveCount = 0;
+        undoneCount = 0;
+        hash = KEYS.empty;
+        currentPlayer = 1;
+        winningLineIndex = -1;
+        gameOver = false;
+        winner = -1;
+        listeners.fireNewGame();
+    }
+
+    @Override
+    public void addGameListener(IGameListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeGameListener(IGameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the winning line coordinates if there is a winner.
+     * The returned array is a shared constant and must not be modified.
+     *
+     * @return array of [col, row] coordinates, or null if no winner.
+     */
+    @Override
+    public int[][] getWinningLine() {
+        return winningLineIndex == -1 ? null : WINNING_LINES[winningLineIndex];
+    }
+
+    /**
+     * Gets the stones of a player as a 9-bit mask, bit (row * 3 + col) per cell.
+     * @param player 1 or 2
+     * @return the player's mask
+     */
+    public int getMask(int player) {
+        return masks[player];
+    }
+
+    /**
+     * Gets the player occupying a cell without copying the board.
+     * @return 1 or 2, or 0 if the cell is empty
+     */
+    public int getCell(int col, int row) {
+        int bit = 1 << cellIndex(col, row);
+        if ((masks[1] & bit) != 0) {
+            return 1;
+        }
+        return (masks[2] & bit) != 0 ? 2 : 0;
+    }
+
+    /**
+     * Writes the current board state into a caller supplied array.
+     * @param target a [3][3] array indexed [col][row]
+     * @return the same array, for chaining
+     */
+    @Override
+    public int[][] getBoardCopy(int[][] target) {
+        for (int col = 0; col < SIZE; col++) {
+            for (int row = 0; row < SIZE; row++) {
+                target[col][row] = getCell(col, row);
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns a copy of the current board state for AI processing
+     * @return A new [col][row] array
+     */
+    @Override
+    public int[][] getBoardCopy() {
+        return getBoardCopy(new int[SIZE][SIZE]);
+    }
+
+    static int cellIndex(int col, int row) {
+        return row * SIZE + col;
+    }
+
+    static int colOf(int index) {
+        return index % SIZE;
+    }
+
+    static int rowOf(int index) {
+        return index / SIZE;
+    }
+
+    /**
+     * Finds a completed line in a player's mask.
+     * @return index into LINE_MASKS, or -1 if the mask contains no full line
+     */
+    static int findWinningLine(int mask) {
+        for (int i = 0; i < LINE_MASKS.length; i++) {
+            if ((mask & LINE_MASKS[i]) == LINE_MASKS[i]) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks a player's 9-bit mask for a completed line.
+     */
+    public static boolean hasWin(int mask) {
+        return findWinningLine(mask) != -1;
+    }
+
+    /**
+     * Picks one of the set cells uniformly at random.
+     * @param mask a non-zero cell mask
+     * @return the chosen cell index
+     */
+    static int randomCell(int mask, Random random) {
+        for (int skip = random.nextInt(Integer.bitCount(mask)); skip > 0; skip--) {
+            mask &= mask - 1;
+        }
+        return Integer.numberOfTrailingZeros(mask);
+    }
+}
@@ -0,0 +1,106 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ * The eight rotations and reflections of the 3x3 board, applied to 9-bit masks
+ * where bit (row * 3 + col) is one cell.
+ * Symmetry 0 is the identity.
+ */
+public final class BoardSymmetry {
+
+    public static final int COUNT = 8;
+
+    // CELL_MAP[s][index] is where cell index ends up under symmetry s
+    private static final int[][] CELL_MAP = new int[COUNT][BitboardGameBoard.CELLS];
+    private static final int[] INVERSE = new int[COUNT];
+    // MASK_MAP[s][mask] is the whole mask transformed, so canonicalising is table lookups only
+    private static final short[][] MASK_MAP = new short[COUNT][1 << BitboardGameBoard.CELLS];
+
+    static {
+        for (int index = 0; index < BitboardGameBoard.CELLS; index++) {
+            int c = BitboardGameBoard.colOf(index);
+            int r = BitboardGameBoard.rowOf(index);
+            int n = BitboardGameBoard.SIZE - 1;
+            int[][] images = {
+                    {c, r},         // identity
+                    {n - r, c},     // rotate 90
+                    {n - c, n - r}, // rotate 180
+                    {r, n - c},     // rotate 270
+                    {n - c, r},     // mirror left/right
+                    {c, n - r},     // mirror top/bottom
+                    {r, c},         // main diagonal
+                    {n - r, n - c}  // anti diagonal
+            };
+            for (int s = 0; s < COUNT; s++) {
+                CELL_MAP[s][index] = BitboardGameBoard.cellIndex(images[s][0], images[s][1]);
+            }
+        }
+        for (int s = 0; s < COUNT; s++) {
+            for (int t = 0; t < COUNT; t++) {
+                if (CELL_MAP[t][CELL_MAP[s][0]] == 0 && CELL_MAP[t][CELL_MAP[s][1]] == 1) {
+                    INVERSE[s] = t;
+                }
+            }
+            for (int mask = 0; mask < MASK_MAP[s].length; mask++) {
+                int image = 0;
+                for (int index = 0; index < BitboardGameBoard.CELLS; index++) {
+                    if ((mask & (1 << index)) != 0) {
+                        image |= 1 << CELL_MAP[s][index];
+                    }
+                }
+                MASK_MAP[s][mask] = (short) image;
+            }
+        }
+    }
+
+    private BoardSymmetry() {
+    }
+
+    public static int transformMask(int mask, int symmetry) {
+        return MASK_MAP[symmetry][mask];
+    }
+
+    public static int transformCell(int index, int symmetry) {
+        return CELL_MAP[symmetry][index];
+    }
+
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /**
+     * Finds the symmetry that maps a position to its canonical form
+     * @param toMove stones of the player to move
+     * @param opponent stones of the other player
+     * @return symmetry index, pass it to canonicalKey, transformCell and inverse
+     */
+    public static int canonicalSymmetry(int toMove, int opponent) {
+        int best = 0;
+        int bestKey = Integer.MAX_VALUE;
+        for (int s = 0; s < COUNT; s++) {
+            int key = key(MASK_MAP[s][toMove], MASK_MAP[s][opponent]);
+            if (key < bestKey) {
+                bestKey = key;
+                best = s;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Encodes a position as an 18-bit key that is the same for all eight symmetric variants
+     * @param toMove stones of the player to move
+     * @param opponent stones of the other player
+     * @return key in [0, 2^18)
+     */
+    public static int canonicalKey(int toMove, int opponent) {
+        int bestKey = Integer.MAX_VALUE;
+        for (int s = 0; s < COUNT; s++) {
+            bestKey = Math.min(bestKey, key(MASK_MAP[s][toMove], MASK_MAP[s][opponent]));
+        }
+        return bestKey;
+    }
+
+    static int key(int toMove, int opponent) {
+        return (toMove << BitboardGameBoard.CELLS) | opponent;
+    }
+}
@@ -1,15 +1,36 @@
 package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+
 /**
  *
  * @author EASV
  */
 public class GameBoard implements IGameBoard
 {
+    // [col, row] coordinates of every line, shared so a win never allocates
+    private static final int[][][] ROWS = {
+        {{0, 0}, {1, 0}, {2, 0}}, {{0, 1}, {1, 1}, {2, 1}}, {{0, 2}, {1, 2}, {2, 2}}
+    };
+    private static final int[][][] COLUMNS = {
+        {{0, 0}, {0, 1}, {0, 2}}, {{1, 0}, {1, 1}, {1, 2}}, {{2, 0}, {2, 1}, {2, 2}}
+    };
+    private static final int[][] DIAGONAL = {{0, 0}, {1, 1}, {2, 2}};
+    private static final int[][] ANTI_DIAGONAL = {{0, 2}, {1, 1}, {2, 0}};
+    private static final ZobristKeys KEYS = ZobristKeys.of(3, 3);
+
     private int currentPlayer = 1;
     private int[][] board = new int[3][3];
     private int[][] winningLine = null;
     private boolean gameOver = false;
     private int winner = -1;
+    // cells as row * 3 + col, the moves played since the last newGame() and those taken back by undo()
+    private final int[] moves = new int[9];
+    private final int[] undoneMoves = new int[9];
+    private int moveCount;
+    private int undoneCount;
+    private long hash;
+    private final GameListeners listeners = new GameListeners();
 
     public GameBoard()
     {
@@ -27,7 +48,26 @@ public class GameBoard implements IGameBoard
         if (gameOver || col < 0 || col > 2 || row < 0 || row > 2 || board[col][row] != 0) {
             return false;
         }
-        board[col][row] = currentPlayer;
+        undoneCount = 0;
+        int player = currentPlayer;
+        makeMove(row * 3 + col);
+        listeners.fireMovePlayed(player, col, row, this);
+        return true;
+    }
+
+    public void makeMove(int index)
+    {
+        if (gameOver)
+        {
+            throw new IllegalStateException("The game is over");
+        }
+        if (index < 0 || index >= 9 || board[index % 3][index / 3] != 0)
+        {
+            throw new IllegalArgumentException("Cell " + index + " is not an empty cell");
+        }
+        board[index % 3][index / 3] = currentPlayer;
+        moves[moveCount++] = index;
+        hash ^= KEYS.cells[currentPlayer][index] ^ KEYS.side;
         if (checkWin()) {
             gameOver = true;
             winner = currentPlayer;
@@ -38,6 +78,59 @@ public class GameBoard implements IGameBoard
         } else {
             currentPlayer = (currentPlayer == 2) ? 1 : 2;
         }
+    }
+
+    public int unmakeMove()
+    {
+        if (moveCount == 0)
+        {
+            throw new IllegalStateException("No move to take back");
+        }
+        int index = moves[--moveCount];
+        int player = board[index % 3][index / 3];
+        board[index % 3][index / 3] = 0;
+        hash ^= KEYS.cells[player][index] ^ KEYS.side;
+        currentPlayer = player;
+        gameOver = false;
+        winner = -1;
+        winningLine = null;
+        return index;
+    }
+
+    public int getMoveCount()
+    {
+        return moveCount;
+    }
+
+    public long getHash()
+    {
+        return hash;
+    }
+
+    public boolean undo()
+    {
+        if (moveCount == 0)
+        {
+            return false;
+        }
+        int index = moves[moveCount - 1];
+        int player = board[index % 3][index / 3];
+        unmakeMove();
+        undoneMoves[undoneCount++] = index;
+        listeners.fireMoveUndone(player, index % 3, index / 3);
+        return true;
+    }
+
+    public boolean redo()
+    {
+        if (undoneCount == 0 || gameOver)
+        {
+            return false;
+        }
+        int index = undoneMoves[--undoneCount];
+        int player = currentPlayer;
+        makeMove(index);
+        listeners.fireMovePlayed(player, index % 3, index / 3, this);
         return true;
     }
 
@@ -51,14 +144,31 @@ public class GameBoard implements IGameBoard
         return winner;
     }
 
-    // board = new int[3][3] is better than nested loops
+    // clears the board in place so a new game does not allocate
     public void newGame()
     {
         currentPlayer = 1;
         gameOver = false;
         winner = -1;
-        board = new int[3][3];
+        for (int[] column : board)
+        {
+            Arrays.fill(column, 0);
+        }
         winningLine = null;
+        moveCount = 0;
+        undoneCount = 0;
+        hash = KEYS.empty;
+        listeners.fireNewGame();
+    }
+
+    public void addGameListener(IGameListener listener)
+    {
+        listeners.add(listener);
+    }
+
+    public void removeGameListener(IGameListener listener)
+    {
+        listeners.remove(listener);
     }
 
     private boolean checkWin()
@@ -69,7 +179,7 @@ public class GameBoard implements IGameBoard
         {
             if (board[0][row] == m && board[1][row] == m && board[2][row] == m)
             {
-                winningLine = new int[][]{{0, row}, {1, row}, {2, row}};
+                winningLine = ROWS[row];
                 return true;
             }
         }
@@ -78,19 +188,19 @@ public class GameBoard implements IGameBoard
         {
             if (board[col][0] == m && board[col][1] == m && board[col][2] == m)
             {
-                winningLine = new int[][]{{col, 0}, {col, 1}, {col, 2}};
+                winningLine = COLUMNS[col];
                 return true;
             }
         }
         // check diagonals
         if (board[0][0] == m && board[1][1] == m && board[2][2] == m)
         {
-            winningLine = new int[][]{{0, 0}, {1, 1}, {2, 2}};
+            winningLine = DIAGONAL;
             return true;
         }
         if (board[0][2] == m && board[1][1] == m && board[2][0] == m)
         {
-            winningLine = new int[][]{{0, 2}, {1, 1}, {2, 0}};
+            winningLine = ANTI_DIAGONAL;
             return true;
         }
         return false;
@@ -111,22 +221,37 @@ public class GameBoard implements IGameBoard
         return true;
     }
 
+    /**
+     * Gets the winning line coordinates if there is a winner.
+     * The returned array is a shared constant and must not be modified.
+     *
+     * @return array of [col, row] coordinates, or null if no winner.
+     */
     public int[][] getWinningLine()
     {
         return winningLine;
     }
 
     /**
-     * Returns a copy of the current board state for AI processing
-     * @return A deep copy of the board array
+     * Writes the current board state into a caller supplied array.
+     * @param target a [3][3] array indexed [col][row]
+     * @return the same array, for chaining
      */
-    public int[][] getBoardCopy()
+    public int[][] getBoardCopy(int[][] target)
     {
-        int[][] copy = new int[3][3];
         for (int i = 0; i < 3; i++)
         {
-            System.arraycopy(board[i], 0, copy[i], 0, 3);
+            System.arraycopy(board[i], 0, target[i], 0, 3);
         }
-        return copy;
+        return target;
+    }
+
+    /**
+     * Returns a copy of the current board state for AI processing
+     * @return A deep copy of the board array
+     */
+    public int[][] getBoardCopy()
+    {
+        return getBoardCopy(new int[3][3]);
     }
 }
\ No newline at end of file
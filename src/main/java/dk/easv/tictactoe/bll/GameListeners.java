@@ -0,0 +1,57 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+
+/**
+ * The listeners of one board. Kept in a plain array that is copied on change,
+ * so firing an event does not allocate and costs nothing without listeners.
+ */
+final class GameListeners {
+
+    private static final IGameListener[] NONE = new IGameListener[0];
+
+    private IGameListener[] listeners = NONE;
+
+    void add(IGameListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    void remove(IGameListener listener) {
+        for (int i = 0; i < listeners.length; i++) {
+            if (listeners[i] == listener) {
+                IGameListener[] remaining = new IGameListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, i);
+                System.arraycopy(listeners, i + 1, remaining, i, remaining.length - i);
+                listeners = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Reports an accepted move, and the end of the game if the move ended it
+     */
+    void fireMovePlayed(int player, int col, int row, IGameBoard board) {
+        for (IGameListener listener : listeners) {
+            listener.onMovePlayed(player, col, row);
+        }
+        if (board.isGameOver()) {
+            for (IGameListener listener : listeners) {
+                listener.onGameOver(board.getWinner());
+            }
+        }
+    }
+
+    void fireMoveUndone(int player, int col, int row) {
+        for (IGameListener listener : listeners) {
+            listener.onMoveUndone(player, col, row);
+        }
+    }
+
+    void fireNewGame() {
+        for (IGameListener listener : listeners) {
+            listener.onNewGame();
+        }
+    }
+}
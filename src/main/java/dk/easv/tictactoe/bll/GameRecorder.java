@@ -0,0 +1,74 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.dal.GameRecordWriter;
+import java.io.IOException;
+
+/**
+ * Listener that writes every finished game of a 3x3 board to a game record file.
+ * Add it to a board with addGameListener. Games that are reset before they end are not written.
+ * Recording is optional, so a game that cannot be written is counted in getDroppedGames() and
+ * dropped instead of failing the move that ended it.
+ */
+public class GameRecorder implements IGameListener {
+
+    private final GameRecordWriter writer;
+    private final boolean flushEachGame;
+    private final int[] moves = new int[BitboardGameBoard.CELLS];
+    private int moveCount;
+    private int droppedGames;
+
+    /**
+     * @param writer the record file to append to, may be shared by many recorders
+     */
+    public GameRecorder(GameRecordWriter writer) {
+        this(writer, false);
+    }
+
+    /**
+     * @param writer the record file to append to, may be shared by many recorders
+     * @param flushEachGame write each game to the file right away instead of when the writer's buffer is full
+     */
+    public GameRecorder(GameRecordWriter writer, boolean flushEachGame) {
+        this.writer = writer;
+        this.flushEachGame = flushEachGame;
+    }
+
+    @Override
+    public void onMovePlayed(int player, int col, int row) {
+        if (moveCount < moves.length) {
+            moves[moveCount++] = BitboardGameBoard.cellIndex(col, row);
+        }
+    }
+
+    @Override
+    public void onMoveUndone(int player, int col, int row) {
+        if (moveCount > 0) {
+            moveCount--;
+        }
+    }
+
+    /**
+     * Gets the number of finished games that could not be written
+     */
+    public int getDroppedGames() {
+        return droppedGames;
+    }
+
+    @Override
+    public void onGameOver(int winner) {
+        try {
+            writer.write(moves, moveCount, winner);
+            if (flushEachGame) {
+                writer.flush();
+            }
+        } catch (IOException e) {
+            droppedGames++;
+        }
+        moveCount = 0;
+    }
+
+    @Override
+    public void onNewGame() {
+        moveCount = 0;
+    }
+}
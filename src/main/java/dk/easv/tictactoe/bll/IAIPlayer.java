@@ -0,0 +1,33 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ *
+ * @author EASV
+ */
+public interface IAIPlayer
+{
+
+    /**
+     * Finds the move the AI wants to play in the given position. The board
+     * is not modified.
+     *
+     * @param board the current board indexed [col][row], 0 for an empty cell.
+     * @return an array with [col, row] for the move, or [-1, -1] if no move is
+     * possible.
+     */
+    int[] findBestMove(int[][] board);
+
+    /**
+     * Finds the move the AI wants to play as a single cell index, so callers
+     * in tight loops do not need a result array. The board is not modified.
+     *
+     * @param board the current board indexed [col][row], 0 for an empty cell.
+     * @return the cell index row * size + col of the move, or -1 if no move
+     * is possible.
+     */
+    default int findBestMoveIndex(int[][] board)
+    {
+        int[] move = findBestMove(board);
+        return move[0] == -1 ? -1 : move[1] * board.length + move[0];
+    }
+}
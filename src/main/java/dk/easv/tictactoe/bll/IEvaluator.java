@@ -0,0 +1,53 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ *
+ * @author EASV
+ */
+public interface IEvaluator
+{
+
+    /**
+     * Scores an unfinished position when a depth-limited search stops before
+     * the end of the game. Scores must stay well below
+     * IterativeDeepeningSearch.WIN_SCORE in size, so that a proven win
+     * always beats a good looking position.
+     *
+     * @param board the position to score.
+     * @param player the player to score the position for.
+     * @return positive if the position favours player, negative if it
+     * favours the opponent.
+     */
+    int evaluate(KInARowBoard board, int player);
+
+    /**
+     * Called by a search after it has set up a new root position, before any
+     * makeMove. Evaluators that keep incremental state rebuild it here.
+     *
+     * @param board the root position.
+     */
+    default void reset(KInARowBoard board)
+    {
+    }
+
+    /**
+     * Called by a search after it has placed a stone.
+     *
+     * @param index cell index (row * size + col) of the stone.
+     * @param player the player who placed it.
+     */
+    default void makeMove(int index, int player)
+    {
+    }
+
+    /**
+     * Called by a search after it has taken back a stone placed with
+     * makeMove, in reverse order.
+     *
+     * @param index cell index (row * size + col) of the stone.
+     * @param player the player who had placed it.
+     */
+    default void unmakeMove(int index, int player)
+    {
+    }
+}
@@ -52,4 +52,90 @@ public interface IGameBoard
      * @return array of winning coordinates, or null if no winner.
      */
     int[][] getWinningLine();
+
+    /**
+     * Writes the current board state into a caller supplied array, so it can
+     * be handed to an AI without depending on the board implementation.
+     *
+     * @param target an array of the board's size indexed [col][row].
+     * @return the same array, 0 for an empty cell, otherwise the player id.
+     */
+    int[][] getBoardCopy(int[][] target);
+
+    /**
+     * Returns a copy of the current board state.
+     *
+     * @return a new array indexed [col][row], 0 for an empty cell, otherwise
+     * the player id.
+     */
+    int[][] getBoardCopy();
+
+    /**
+     * Puts the next player's stone on a cell without notifying listeners, so
+     * searches can walk the game tree on the board. Updates the move stack,
+     * the position hash and the win and draw state, without allocating.
+     *
+     * @param index row * size + col of an empty cell.
+     * @throws IllegalStateException if the game is over.
+     * @throws IllegalArgumentException if the cell is outside the board or not
+     * empty.
+     */
+    void makeMove(int index);
+
+    /**
+     * Takes back the most recent move on the move stack without notifying
+     * listeners, restoring the state from before it.
+     *
+     * @return the cell index of the move taken back.
+     * @throws IllegalStateException if no move was made since the last
+     * newGame().
+     */
+    int unmakeMove();
+
+    /**
+     * Gets the number of moves on the move stack.
+     *
+     * @return the number of moves made since the last newGame().
+     */
+    int getMoveCount();
+
+    /**
+     * Gets a 64-bit Zobrist key of the stones and the player to move. Boards
+     * of the same size and win length give a position the same key, however
+     * it was reached.
+     *
+     * @return the position hash.
+     */
+    long getHash();
+
+    /**
+     * Takes back the last move and tells the listeners through onMoveUndone.
+     * The move can be played again with redo().
+     *
+     * @return true if a move was taken back, false if there was none.
+     */
+    boolean undo();
+
+    /**
+     * Plays the move last taken back by undo() again, as play() would. Moves
+     * taken back can only be redone until another move is played.
+     *
+     * @return true if a move was played, false if there was none to redo.
+     */
+    boolean redo();
+
+    /**
+     * Registers a listener that is told about every accepted move, the end of
+     * the game and every reset.
+     *
+     * @param listener the listener to add.
+     */
+    void addGameListener(IGameListener listener);
+
+    /**
+     * Removes a listener added with addGameListener.
+     *
+     * @param listener the listener to remove.
+     */
+    void removeGameListener(IGameListener listener);
 }
\ No newline at end of file
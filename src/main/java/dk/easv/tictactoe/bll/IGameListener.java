@@ -0,0 +1,47 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ *
+ * @author EASV
+ */
+public interface IGameListener
+{
+
+    /**
+     * Called after a move has been accepted by the board.
+     *
+     * @param player id of the player who made the move.
+     * @param col column of the move.
+     * @param row row of the move.
+     */
+    default void onMovePlayed(int player, int col, int row)
+    {
+    }
+
+    /**
+     * Called after the move that ended the game, following onMovePlayed.
+     *
+     * @param winner id of the winner, or -1 for a draw.
+     */
+    default void onGameOver(int winner)
+    {
+    }
+
+    /**
+     * Called after the board has been reset to a new game.
+     */
+    default void onNewGame()
+    {
+    }
+
+    /**
+     * Called after a move has been taken back with undo().
+     *
+     * @param player id of the player whose move was taken back.
+     * @param col column of the move.
+     * @param row row of the move.
+     */
+    default void onMoveUndone(int player, int col, int row)
+    {
+    }
+}
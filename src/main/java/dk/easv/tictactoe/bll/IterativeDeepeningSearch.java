@@ -0,0 +1,243 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.metrics.Metrics;
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Depth-limited alpha-beta search on a KInARowBoard, deepened one ply at a time until a deadline.
+ * Positions at the depth limit are scored by an IEvaluator. The move returned comes from the
+ * deepest iteration that finished in time, so the search can be given a hard latency budget
+ * on any board size.
+ */
+public class IterativeDeepeningSearch {
+
+    /** Score of a win on the spot, a win found n plies deeper scores WIN_SCORE - n */
+    public static final int WIN_SCORE = 100_000_000;
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+    private static final int TIME_CHECK_INTERVAL = 1024; // nodes between clock reads
+    private static final int NEIGHBOUR_DISTANCE = 2; // only cells this close to a stone are searched
+
+    private final KInARowBoard board;
+    private final IEvaluator evaluator;
+    private final int[] cellOrder; // cells by the number of windows through them, best first
+    private final int[][] moveBuffers; // one candidate list per ply
+    private final long[] nodesByDepth; // for Metrics
+
+    private long deadline;
+    private boolean timedOut;
+    private long nodeCount;
+    private int completedDepth;
+    private int bestScore;
+
+    public IterativeDeepeningSearch(int size, int winLength, IEvaluator evaluator) {
+        this.board = new KInARowBoard(size, winLength);
+        this.evaluator = evaluator;
+        this.cellOrder = orderCells(size, winLength);
+        this.moveBuffers = new int[size * size + 1][size * size];
+        this.nodesByDepth = new long[size * size + 1];
+    }
+
+    public int getSize() {
+        return board.getSize();
+    }
+
+    public int getWinLength() {
+        return board.getWinLength();
+    }
+
+    /**
+     * Gets the deepest iteration that finished in the last search
+     * @return depth in plies, 0 if not even one ply finished in time
+     */
+    public int getCompletedDepth() {
+        return completedDepth;
+    }
+
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the score of the move returned by the last search, from the searching player's side
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
+    /**
+     * Searches until the budget runs out or the game tree is exhausted
+     * @param position board indexed [col][row], must be an unfinished game
+     * @param player the player to find a move for
+     * @param budget wall clock time the search may use
+     * @return cell index (row * size + col) of the best move, or -1 if the board is full
+     */
+    public int search(int[][] position, int player, Duration budget) {
+        long start = System.nanoTime();
+        int move = deepen(position, player, budget, start);
+        if (Metrics.ENABLED) {
+            Metrics.recordSearch(start, nodeCount);
+            Metrics.addNodesByDepth(nodesByDepth);
+            Arrays.fill(nodesByDepth, 0);
+        }
+        return move;
+    }
+
+    private int deepen(int[][] position, int player, Duration budget, long start) {
+        deadline = start + budget.toNanos();
+        timedOut = false;
+        nodeCount = 0;
+        completedDepth = 0;
+        bestScore = 0;
+        board.load(position, player);
+        evaluator.reset(board);
+
+        int[] moves = moveBuffers[0];
+        int count = generateMoves(moves);
+        if (count == 0) {
+            return -1;
+        }
+        int bestMove = moves[0];
+
+        for (int depth = 1; depth <= board.getEmptyCount(); depth++) {
+            // search the best move of the previous iteration first
+            for (int i = 0; i < count; i++) {
+                if (moves[i] == bestMove) {
+                    moves[i] = moves[0];
+                    moves[0] = bestMove;
+                    break;
+                }
+            }
+
+            int iterationBest = -1;
+            int alpha = -INFINITY;
+            for (int i = 0; i < count && !timedOut; i++) {
+                play(moves[i]);
+                int score = -negamax(depth - 1, 1, -INFINITY, -alpha);
+                takeBack(moves[i]);
+                if (!timedOut && score > alpha) {
+                    alpha = score;
+                    iterationBest = moves[i];
+                }
+            }
+            if (timedOut) {
+                break;
+            }
+
+            bestMove = iterationBest;
+            bestScore = alpha;
+            completedDepth = depth;
+            if (Math.abs(alpha) >= WIN_SCORE - board.getSize() * board.getSize()) {
+                break; // forced result, deeper search cannot change it
+            }
+        }
+        return bestMove;
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        if ((++nodeCount % TIME_CHECK_INTERVAL) == 0 && System.nanoTime() > deadline) {
+            timedOut = true;
+        }
+        if (Metrics.ENABLED) {
+            nodesByDepth[ply]++;
+        }
+        if (timedOut) {
+            return 0;
+        }
+
+        if (board.isGameOver()) {
+            // the previous move either won or filled the board
+            return board.getWinner() == -1 ? 0 : -(WIN_SCORE - ply);
+        }
+        if (depth == 0) {
+            return evaluator.evaluate(board, board.getNextPlayer());
+        }
+
+        int[] moves = moveBuffers[ply];
+        int count = generateMoves(moves);
+        for (int i = 0; i < count; i++) {
+            play(moves[i]);
+            int score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            takeBack(moves[i]);
+            if (score > alpha) {
+                alpha = score;
+                if (alpha >= beta) {
+                    break;
+                }
+            }
+        }
+        return alpha;
+    }
+
+    // places a stone and keeps the evaluator in step
+    private void play(int move) {
+        int player = board.getNextPlayer();
+        board.makeMove(move);
+        evaluator.makeMove(move, player);
+    }
+
+    private void takeBack(int move) {
+        int player = board.getCellAt(move);
+        board.unmakeMove();
+        evaluator.unmakeMove(move, player);
+    }
+
+    // empty cells near existing stones, in cellOrder; the best ordered cell on an empty board
+    private int generateMoves(int[] moves) {
+        int size = board.getSize();
+        boolean emptyBoard = board.getEmptyCount() == size * size;
+        int count = 0;
+        for (int index : cellOrder) {
+            if (board.getCellAt(index) == 0 && (emptyBoard ? count == 0 : hasNeighbour(index % size, index / size))) {
+                moves[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    private boolean hasNeighbour(int col, int row) {
+        int size = board.getSize();
+        for (int c = Math.max(0, col - NEIGHBOUR_DISTANCE); c <= Math.min(size - 1, col + NEIGHBOUR_DISTANCE); c++) {
+            for (int r = Math.max(0, row - NEIGHBOUR_DISTANCE); r <= Math.min(size - 1, row + NEIGHBOUR_DISTANCE); r++) {
+                if (board.getCellAt(board.indexOf(c, r)) != 0) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // on 3x3 this gives center, corners, edges
+    static int[] orderCells(int size, int winLength) {
+        int cells = size * size;
+        int[] windows = new int[cells];
+        for (int index = 0; index < cells; index++) {
+            int col = index % size;
+            int row = index / size;
+            for (int[] d : DIRECTIONS) {
+                for (int offset = 0; offset < winLength; offset++) {
+                    int startCol = col - offset * d[0];
+                    int startRow = row - offset * d[1];
+                    int endCol = startCol + (winLength - 1) * d[0];
+                    int endRow = startRow + (winLength - 1) * d[1];
+                    if (startCol >= 0 && startCol < size && startRow >= 0 && startRow < size
+                            && endCol >= 0 && endCol < size && endRow >= 0 && endRow < size) {
+                        windows[index]++;
+                    }
+                }
+            }
+        }
+        Integer[] order = new Integer[cells];
+        for (int i = 0; i < cells; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> windows[b] - windows[a]);
+        int[] result = new int[cells];
+        for (int i = 0; i < cells; i++) {
+            result[i] = order[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,451 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+
+/**
+ * Game board for any N x N board where k stones in a row win, e.g. 3x3/3, 7x7/5 or 15x15 gomoku.
+ * Stones are kept in multi-word bitboards, bit (row * size + col) per cell.
+ * After each move only the lines through that cell are checked, and the number of
+ * empty cells is kept as a running count, so a move costs O(k) regardless of board size.
+ * Boards of up to 64 cells test precomputed k-cell window masks against a single long.
+ * Searches walk the game tree with makeMove and unmakeMove, which keep a move stack and a
+ * Zobrist key of the position up to date without allocating.
+ */
+public class KInARowBoard implements IGameBoard {
+
+    // direction steps as {dCol, dRow}: horizontal, vertical, diagonal, anti-diagonal
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+
+    private final int size;
+    private final int winLength;
+    private final int cells;
+    private final long[][] stones; // indexed by player id, slot 0 unused
+    // single-word boards only: every k-cell window through each cell, and the direction of each window
+    private final long[][] windowsByCell;
+    private final int[][] windowDirections;
+    private final long[] allWindows; // every k-cell window once
+    // random key per player and cell, the same for every board of this size and win length
+    private final long[][] zobrist;
+    private final long sideKey; // toggled on every move, so it is set when player 2 is to move
+    private final long emptyKey; // the key of the empty board, never 0
+    private final int[] moves; // cells played since the last newGame() or load(), in order
+    private final int[] undoneMoves; // cells taken back by undo(), the last one on top
+    private int undoneCount;
+
+    private int currentPlayer;
+    private int emptyCount;
+    private int moveCount;
+    private long hash;
+    private int winningDirection;
+    private boolean gameOver;
+    private int winner;
+    private final GameListeners listeners = new GameListeners();
+
+    /**
+     * Creates a classic 3x3 board with three in a row
+     */
+    public KInARowBoard() {
+        this(3, 3);
+    }
+
+    /**
+     * @param size number of rows and columns
+     * @param winLength stones in a row needed to win
+     */
+    public KInARowBoard(int size, int winLength) {
+        if (size < 1 || winLength < 1 || winLength > size) {
+            throw new IllegalArgumentException("Invalid board " + size + "x" + size + " with " + winLength + " in a row");
+        }
+        this.size = size;
+        this.winLength = winLength;
+        this.cells = size * size;
+        this.stones = new long[3][(cells + 63) >>> 6];
+        if (cells <= 64) {
+            this.windowsByCell = new long[cells][];
+            this.windowDirections = new int[cells][];
+            buildWindows();
+            this.allWindows = Arrays.stream(windowsByCell).flatMapToLong(Arrays::stream).distinct().toArray();
+        } else {
+            this.windowsByCell = null;
+            this.windowDirections = null;
+            this.allWindows = null;
+        }
+        ZobristKeys keys = ZobristKeys.of(size, winLength);
+        this.zobrist = keys.cells;
+        this.sideKey = keys.side;
+        this.emptyKey = keys.empty;
+        this.moves = new int[cells];
+        this.undoneMoves = new int[cells];
+        newGame();
+    }
+
+    private void buildWindows() {
+        for (int index = 0; index < cells; index++) {
+            long[] windows = new long[DIRECTIONS.length * winLength];
+            int[] directions = new int[windows.length];
+            int n = 0;
+            for (int d = 0; d < DIRECTIONS.length; d++) {
+                int dc = DIRECTIONS[d][0];
+                int dr = DIRECTIONS[d][1];
+                // windows through the cell start up to winLength - 1 steps behind it
+                for (int offset = 0; offset < winLength; offset++) {
+                    int startCol = index % size - offset * dc;
+                    int startRow = index / size - offset * dr;
+                    long window = 0;
+                    for (int i = 0; i < winLength && window != -1; i++) {
+                        int c = startCol + i * dc;
+                        int r = startRow + i * dr;
+                        window = (c < 0 || c >= size || r < 0 || r >= size) ? -1 : window | (1L << indexOf(c, r));
+                    }
+                    if (window != -1) {
+                        windows[n] = window;
+                        directions[n++] = d;
+                    }
+                }
+            }
+            windowsByCell[index] = Arrays.copyOf(windows, n);
+            windowDirections[index] = Arrays.copyOf(directions, n);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    @Override
+    public int getNextPlayer() {
+        return currentPlayer;
+    }
+
+    @Override
+    public boolean play(int col, int row) {
+        if (gameOver || col < 0 || col >= size || row < 0 || row >= size) {
+            return false;
+        }
+        int index = indexOf(col, row);
+        if (getCellAt(index) != 0) {
+            return false;
+        }
+        undoneCount = 0;
+        int player = currentPlayer;
+        makeMove(index);
+        listeners.fireMovePlayed(player, col, row, this);
+        return true;
+    }
+
+    @Override
+    public boolean undo() {
+        if (moveCount == 0) {
+            return false;
+        }
+        int player = getCellAt(getLastMove());
+        int index = unmakeMove();
+        undoneMoves[undoneCount++] = index;
+        listeners.fireMoveUndone(player, index % size, index / size);
+        return true;
+    }
+
+    @Override
+    public boolean redo() {
+        if (undoneCount == 0 || gameOver) {
+            return false;
+        }
+        int index = undoneMoves[--undoneCount];
+        int player = currentPlayer;
+        makeMove(index);
+        listeners.fireMovePlayed(player, index % size, index / size, this);
+        return true;
+    }
+
+    @Override
+    public boolean isGameOver() {
+        return gameOver;
+    }
+
+    @Override
+    public int getWinner() {
+        return winner;
+    }
+
+    @Override
+    public void newGame() {
+        for (long[] words : stones) {
+            Arrays.fill(words, 0L);
+        }
+        currentPlayer = 1;
+        emptyCount = cells;
+        moveCount = 0;
+        undoneCount = 0;
+        hash = emptyKey;
+        winningDirection = -1;
+        gameOver = false;
+        winner = -1;
+        listeners.fireNewGame();
+    }
+
+    @Override
+    public void addGameListener(IGameListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeGameListener(IGameListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Gets the winning line coordinates if there is a winner. The line is the
+     * whole run through the winning move, so it may be longer than the win length.
+     *
+     * @return array of [col, row] coordinates, or null if no winner.
+     */
+    @Override
+    public int[][] getWinningLine() {
+        if (winningDirection == -1) {
+            return null;
+        }
+        int dc = DIRECTIONS[winningDirection][0];
+        int dr = DIRECTIONS[winningDirection][1];
+        int col = getLastMove() % size;
+        int row = getLastMove() / size;
+        int back = countRun(winner, col, row, -dc, -dr);
+        int length = back + 1 + countRun(winner, col, row, dc, dr);
+        int[][] line = new int[length][];
+        for (int i = 0; i < length; i++) {
+            line[i] = new int[]{col + (i - back) * dc, row + (i - back) * dr};
+        }
+        return line;
+    }
+
+    /**
+     * Gets the player occupying a cell
+     * @return 1 or 2, or 0 if the cell is empty
+     */
+    public int getCell(int col, int row) {
+        return getCellAt(indexOf(col, row));
+    }
+
+    public int getEmptyCount() {
+        return emptyCount;
+    }
+
+    /**
+     * Gets the cell index of the most recent move
+     * @return row * size + col, or -1 if no move has been played
+     */
+    public int getLastMove() {
+        return moveCount == 0 ? -1 : moves[moveCount - 1];
+    }
+
+    /**
+     * Gets the number of moves on the move stack, i.e. played since the last newGame() or load()
+     */
+    @Override
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Gets a 64-bit Zobrist key of the stones and the side to move. Boards of the same size and
+     * win length give equal positions the same key, however the position was reached.
+     */
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * Writes the current board state into a caller supplied array.
+     * @param target a [size][size] array indexed [col][row]
+     * @return the same array, for chaining
+     */
+    @Override
+    public int[][] getBoardCopy(int[][] target) {
+        for (int col = 0; col < size; col++) {
+            for (int row = 0; row < size; row++) {
+                target[col][row] = getCellAt(indexOf(col, row));
+            }
+        }
+        return target;
+    }
+
+    /**
+     * Returns a copy of the current board state for AI processing
+     * @return A new [col][row] array
+     */
+    @Override
+    public int[][] getBoardCopy() {
+        return getBoardCopy(new int[size][size]);
+    }
+
+    public int indexOf(int col, int row) {
+        return row * size + col;
+    }
+
+    /**
+     * Gets the player occupying a cell
+     * @param index row * size + col
+     * @return 1 or 2, or 0 if the cell is empty
+     */
+    public int getCellAt(int index) {
+        int word = index >>> 6;
+        long bit = 1L << index;
+        if ((stones[1][word] & bit) != 0) {
+            return 1;
+        }
+        return (stones[2][word] & bit) != 0 ? 2 : 0;
+    }
+
+    /**
+     * Sets up a running game from a board array without checking for wins. The move stack
+     * starts out empty, so the loaded stones cannot be unmade.
+     * @param board board indexed [col][row], 0 for empty
+     * @param nextPlayer the player to move
+     */
+    void load(int[][] board, int nextPlayer) {
+        newGame();
+        for (int col = 0; col < size; col++) {
+            for (int row = 0; row < size; row++) {
+                int player = board[col][row];
+                if (player != 0) {
+                    int index = indexOf(col, row);
+                    stones[player][index >>> 6] |= 1L << index;
+                    emptyCount--;
+                    hash ^= zobrist[player][index];
+                }
+            }
+        }
+        currentPlayer = nextPlayer;
+        if (nextPlayer == 2) {
+            hash ^= sideKey;
+        }
+    }
+
+    /**
+     * Puts the current player's stone on a cell and updates the game state, the move stack and
+     * the Zobrist key. Unlike play() no listeners are notified, so searches use this to walk
+     * the game tree.
+     * @param index row * size + col of an empty cell
+     * @throws IllegalStateException if the game is over
+     * @throws IllegalArgumentException if the cell is outside the board or not empty
+     */
+    @Override
+    public void makeMove(int index) {
+        if (gameOver) {
+            throw new IllegalStateException("The game is over");
+        }
+        if (index < 0 || index >= cells || getCellAt(index) != 0) {
+            throw new IllegalArgumentException("Cell " + index + " is not an empty cell");
+        }
+        int player = currentPlayer;
+        stones[player][index >>> 6] |= 1L << index;
+        emptyCount--;
+        moves[moveCount++] = index;
+        hash ^= zobrist[player][index] ^ sideKey;
+
+        winningDirection = findWinningDirection(player, index % size, index / size);
+        if (winningDirection != -1) {
+            gameOver = true;
+            winner = player;
+        } else if (emptyCount == 0) {
+            gameOver = true;
+            winner = -1;
+        } else {
+            currentPlayer = (player == 2) ? 1 : 2;
+        }
+    }
+
+    /**
+     * Takes back the most recent move on the move stack, restoring the game state and the
+     * Zobrist key from before it. No listeners are notified.
+     * @return the cell index of the move taken back
+     * @throws IllegalStateException if no move has been made since the last newGame() or load()
+     */
+    @Override
+    public int unmakeMove() {
+        if (moveCount == 0) {
+            throw new IllegalStateException("No move to take back");
+        }
+        int index = moves[--moveCount];
+        int player = getCellAt(index);
+        stones[player][index >>> 6] &= ~(1L << index);
+        emptyCount++;
+        hash ^= zobrist[player][index] ^ sideKey;
+        winningDirection = -1;
+        gameOver = false;
+        winner = -1;
+        currentPlayer = player;
+        return index;
+    }
+
+    /**
+     * Checks whether a player still has a line without opponent stones. Boards of more than
+     * 64 cells are not checked and always return true.
+     */
+    boolean canStillWin(int player) {
+        if (allWindows == null) {
+            return true;
+        }
+        long blocked = stones[player == 1 ? 2 : 1][0];
+        for (long window : allWindows) {
+            if ((window & blocked) == 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Checks whether the stone on a cell is part of a winning line, for positions set up by load()
+     */
+    boolean isWinAt(int index) {
+        int player = getCellAt(index);
+        return player != 0 && findWinningDirection(player, index % size, index / size) != -1;
+    }
+
+    private boolean isSet(int player, int index) {
+        return (stones[player][index >>> 6] & (1L << index)) != 0;
+    }
+
+    private int findWinningDirection(int player, int col, int row) {
+        if (windowsByCell != null) {
+            long mine = stones[player][0];
+            long[] windows = windowsByCell[indexOf(col, row)];
+            for (int i = 0; i < windows.length; i++) {
+                if ((mine & windows[i]) == windows[i]) {
+                    return windowDirections[indexOf(col, row)][i];
+                }
+            }
+            return -1;
+        }
+        for (int d = 0; d < DIRECTIONS.length; d++) {
+            int dc = DIRECTIONS[d][0];
+            int dr = DIRECTIONS[d][1];
+            int run = 1 + countRun(player, col, row, dc, dr);
+            if (run < winLength) {
+                run += countRun(player, col, row, -dc, -dr);
+            }
+            if (run >= winLength) {
+                return d;
+            }
+        }
+        return -1;
+    }
+
+    // counts the player's stones in a row starting next to (col, row), at most winLength - 1
+    private int countRun(int player, int col, int row, int dc, int dr) {
+        int count = 0;
+        int c = col + dc;
+        int r = row + dr;
+        while (count < winLength - 1 && c >= 0 && c < size && r >= 0 && r < size && isSet(player, indexOf(c, r))) {
+            count++;
+            c += dc;
+            r += dr;
+        }
+        return count;
+    }
+}
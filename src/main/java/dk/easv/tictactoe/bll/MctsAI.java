@@ -0,0 +1,287 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.metrics.Metrics;
+import java.time.Duration;
+import java.util.SplittableRandom;
+
+/**
+ * AI player using Monte Carlo Tree Search with UCT selection.
+ * Strength is set by the compute budget, a number of playouts or a time limit, instead of random
+ * mistakes, and it works on any KInARowBoard size. Playouts run on a primitive board and only
+ * tree expansion allocates. The subtree of the position reached after the AI's move and the
+ * opponent's reply is kept for the next move.
+ */
+public class MctsAI implements IAIPlayer {
+
+    private static final double EXPLORATION = Math.sqrt(2);
+    private static final int TIME_CHECK_INTERVAL = 64; // playouts between clock reads
+
+    private final int aiPlayer;
+    private final int winLength;
+    private final SplittableRandom random;
+    private int playouts;
+    private Duration timeBudget;
+
+    private KInARowBoard board;
+    private int[] empties; // scratch list of empty cells for the random playout
+    private Node root;
+    private int[] rootCells; // the position root belongs to, by cell index
+    private int lastPlayouts;
+
+    /**
+     * Creates an AI for the classic 3x3 board
+     * @param aiPlayer The player id the AI plays as
+     * @param playouts Number of playouts per move
+     */
+    public MctsAI(int aiPlayer, int playouts) {
+        this(aiPlayer, 3, playouts);
+    }
+
+    /**
+     * @param aiPlayer The player id the AI plays as
+     * @param winLength Stones in a row needed to win, the board size comes from the board passed in
+     * @param playouts Number of playouts per move
+     */
+    public MctsAI(int aiPlayer, int winLength, int playouts) {
+        this.aiPlayer = aiPlayer;
+        this.winLength = winLength;
+        this.playouts = playouts;
+        this.random = new SplittableRandom();
+    }
+
+    public int getPlayouts() {
+        return playouts;
+    }
+
+    public void setPlayouts(int playouts) {
+        this.playouts = playouts;
+    }
+
+    public Duration getTimeBudget() {
+        return timeBudget;
+    }
+
+    /**
+     * Searches for a fixed time per move instead of a fixed number of playouts
+     * @param timeBudget time per move, or null to use the playout count
+     */
+    public void setTimeBudget(Duration timeBudget) {
+        this.timeBudget = timeBudget;
+    }
+
+    /**
+     * Gets the number of playouts run by the most recent findBestMove call
+     */
+    public int getLastPlayouts() {
+        return lastPlayouts;
+    }
+
+    /**
+     * Gets how many playouts the current root has seen, including those reused from earlier moves
+     */
+    public int getRootVisits() {
+        return root == null ? 0 : root.visits;
+    }
+
+    @Override
+    public int[] findBestMove(int[][] position) {
+        int move = findBestMoveIndex(position);
+        if (move == -1) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{move % position.length, move / position.length};
+    }
+
+    @Override
+    public int findBestMoveIndex(int[][] position) {
+        int size = position.length;
+        if (board == null || board.getSize() != size) {
+            board = new KInARowBoard(size, winLength);
+            empties = new int[size * size];
+            root = null;
+        }
+        board.load(position, aiPlayer);
+        if (board.getEmptyCount() == 0) {
+            return -1;
+        }
+        reuseOrCreateRoot();
+
+        long start = System.nanoTime();
+        long deadline = timeBudget == null ? 0 : start + timeBudget.toNanos();
+        int count = 0;
+        while (timeBudget == null ? count < playouts
+                : (count % TIME_CHECK_INTERVAL != 0 || System.nanoTime() < deadline)) {
+            iterate();
+            count++;
+        }
+        lastPlayouts = count;
+        if (Metrics.ENABLED) {
+            Metrics.recordSearch(start, count);
+        }
+
+        Node best = null;
+        for (int i = 0; i < root.childCount; i++) {
+            Node child = root.children[i];
+            if (best == null || child.visits > best.visits) {
+                best = child;
+            }
+        }
+        return best != null ? best.move : root.untried[0];
+    }
+
+    // selection, expansion, playout and backpropagation for one playout
+    private void iterate() {
+        Node node = root;
+        int depth = 0;
+
+        while (!board.isGameOver() && node.untriedCount == 0 && node.childCount > 0) {
+            node = node.selectChild();
+            board.makeMove(node.move);
+            depth++;
+        }
+
+        if (!board.isGameOver() && node.untriedCount > 0) {
+            int pick = random.nextInt(node.untriedCount);
+            int move = node.untried[pick];
+            node.untried[pick] = node.untried[--node.untriedCount];
+            int mover = board.getNextPlayer();
+            board.makeMove(move);
+            depth++;
+            node = node.addChild(move, mover, board);
+        }
+
+        int emptyCount = collectEmptyCells();
+        while (!board.isGameOver()) {
+            int pick = random.nextInt(emptyCount);
+            int move = empties[pick];
+            empties[pick] = empties[--emptyCount];
+            board.makeMove(move);
+            depth++;
+        }
+        int winner = board.getWinner();
+
+        for (int i = 0; i < depth; i++) {
+            board.unmakeMove();
+        }
+
+        for (Node n = node; n != null; n = n.parent) {
+            n.visits++;
+            if (winner == -1) {
+                n.wins += 0.5;
+            } else if (winner == n.mover) {
+                n.wins += 1;
+            }
+        }
+    }
+
+    private int collectEmptyCells() {
+        int cells = board.getSize() * board.getSize();
+        int count = 0;
+        for (int index = 0; index < cells; index++) {
+            if (board.getCellAt(index) == 0) {
+                empties[count++] = index;
+            }
+        }
+        return count;
+    }
+
+    // keeps the subtree for the current position if it is two moves below the old root
+    private void reuseOrCreateRoot() {
+        int cells = board.getSize() * board.getSize();
+        Node reused = null;
+        if (root != null) {
+            int ownMove = -1;
+            int replyMove = -1;
+            boolean valid = true;
+            for (int index = 0; index < cells && valid; index++) {
+                int before = rootCells[index];
+                int now = board.getCellAt(index);
+                if (before == now) {
+                    continue;
+                }
+                if (before != 0) {
+                    valid = false;
+                } else if (now == aiPlayer && ownMove == -1) {
+                    ownMove = index;
+                } else if (now != aiPlayer && replyMove == -1) {
+                    replyMove = index;
+                } else {
+                    valid = false;
+                }
+            }
+            if (valid && ownMove != -1 && replyMove != -1) {
+                Node child = root.findChild(ownMove);
+                reused = child == null ? null : child.findChild(replyMove);
+            }
+        }
+
+        if (reused != null) {
+            reused.parent = null;
+            root = reused;
+        } else {
+            root = new Node(-1, 0, null, board);
+        }
+        if (rootCells == null || rootCells.length != cells) {
+            rootCells = new int[cells];
+        }
+        for (int index = 0; index < cells; index++) {
+            rootCells[index] = board.getCellAt(index);
+        }
+    }
+
+    private static final class Node {
+        private final int move;
+        private final int mover; // the player who played move, wins are counted for them
+        private Node parent;
+        private Node[] children;
+        private int childCount;
+        private final int[] untried;
+        private int untriedCount;
+        private double wins;
+        private int visits;
+
+        Node(int move, int mover, Node parent, KInARowBoard board) {
+            this.move = move;
+            this.mover = mover;
+            this.parent = parent;
+            int cells = board.getSize() * board.getSize();
+            this.untried = new int[board.isGameOver() ? 0 : board.getEmptyCount()];
+            for (int index = 0; index < cells && untriedCount < untried.length; index++) {
+                if (board.getCellAt(index) == 0) {
+                    untried[untriedCount++] = index;
+                }
+            }
+            this.children = new Node[untried.length];
+        }
+
+        Node addChild(int move, int mover, KInARowBoard board) {
+            Node child = new Node(move, mover, this, board);
+            children[childCount++] = child;
+            return child;
+        }
+
+        Node findChild(int move) {
+            for (int i = 0; i < childCount; i++) {
+                if (children[i].move == move) {
+                    return children[i];
+                }
+            }
+            return null;
+        }
+
+        Node selectChild() {
+            double logVisits = Math.log(visits);
+            Node best = null;
+            double bestValue = Double.NEGATIVE_INFINITY;
+            for (int i = 0; i < childCount; i++) {
+                Node child = children[i];
+                double value = child.wins / child.visits + EXPLORATION * Math.sqrt(logVisits / child.visits);
+                if (value > bestValue) {
+                    bestValue = value;
+                    best = child;
+                }
+            }
+            return best;
+        }
+    }
+}
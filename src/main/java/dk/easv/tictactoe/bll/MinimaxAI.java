@@ -1,19 +1,60 @@
 package dk.easv.tictactoe.bll;
 
+import dk.easv.tictactoe.metrics.Metrics;
+import java.time.Duration;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static dk.easv.tictactoe.bll.BitboardGameBoard.FULL_MASK;
+import static dk.easv.tictactoe.bll.BitboardGameBoard.cellIndex;
+import static dk.easv.tictactoe.bll.BitboardGameBoard.colOf;
+import static dk.easv.tictactoe.bll.BitboardGameBoard.hasWin;
+import static dk.easv.tictactoe.bll.BitboardGameBoard.rowOf;
 
 /**
  * AI player using the Minimax algorithm for Tic-Tac-Toe
  * With adjustable difficulty level
  */
-public class MinimaxAI {
+public class MinimaxAI implements IAIPlayer {
+
+    /**
+     * How the game tree is searched. All modes find the same set of best moves.
+     */
+    public enum SearchMode {
+        /** Plain minimax over the full game tree */
+        MINIMAX,
+        /** Alpha-beta pruning on bitboards with center/corner-first move ordering */
+        ALPHA_BETA,
+        /** ALPHA_BETA with the root moves searched in parallel on a ForkJoinPool */
+        PARALLEL
+    }
 
     private final int aiPlayer;
     private final int humanPlayer;
     private final Random random;
-    private static final double MISTAKE_PROBABILITY = 0.25; // 25% chance to make a non-optimal move
+    private static final double DEFAULT_MISTAKE_PROBABILITY = 0.25; // 25% chance to make a non-optimal move
+    private static final int INFINITY = 1000; // larger than any reachable score
+    private static final int[] MOVE_ORDER = {4, 0, 2, 6, 8, 1, 3, 5, 7}; // center, corners, edges
+
+    private double mistakeProbability = DEFAULT_MISTAKE_PROBABILITY;
+    private SearchMode searchMode = SearchMode.ALPHA_BETA;
+    private TranspositionTable transpositionTable;
+    private ForkJoinPool pool = ForkJoinPool.commonPool();
+    private long nodeCount;
+    private int bestScore;
+    private int winLength = 3;
+    private IEvaluator evaluator = new ThreatEvaluator();
+    private IterativeDeepeningSearch deepeningSearch;
+    private PositionStatsIndex positionStats;
+    private int lastSearchDepth;
+    private final AlphaBetaWorker worker = new AlphaBetaWorker(); // sequential searches only
+    private final long[] nodesByDepth = new long[BitboardGameBoard.CELLS + 1]; // plain minimax, for Metrics
+    private final KInARowBoard minimaxBoard = new KInARowBoard(); // plain minimax walks this with make/unmake
 
     public MinimaxAI(int aiPlayer) {
         this.aiPlayer = aiPlayer;
@@ -21,159 +62,512 @@ public class MinimaxAI {
         this.random = new Random();
     }
 
+    /**
+     * Creates an AI that reuses positions from a transposition table
+     * @param aiPlayer The player id the AI plays as
+     * @param transpositionTable Table to share, may be shared with other instances and threads
+     */
+    public MinimaxAI(int aiPlayer, TranspositionTable transpositionTable) {
+        this(aiPlayer);
+        this.transpositionTable = transpositionTable;
+    }
+
+    public double getMistakeProbability() {
+        return mistakeProbability;
+    }
+
+    /**
+     * Sets how often findBestMove plays a random move instead of a best one, 0.25 by default
+     * @param mistakeProbability chance between 0 and 1
+     */
+    public void setMistakeProbability(double mistakeProbability) {
+        this.mistakeProbability = mistakeProbability;
+    }
+
+    public SearchMode getSearchMode() {
+        return searchMode;
+    }
+
+    public void setSearchMode(SearchMode searchMode) {
+        this.searchMode = searchMode;
+    }
+
+    public ForkJoinPool getPool() {
+        return pool;
+    }
+
+    /**
+     * Sets the pool used by SearchMode.PARALLEL, the common pool by default
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    /**
+     * Sets the table used by the alpha-beta search, or null to search without one
+     */
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    public PositionStatsIndex getPositionStats() {
+        return positionStats;
+    }
+
+    /**
+     * Sets recorded game statistics used to choose between equally good moves. The move after
+     * which human players lost most often is preferred, or a random one without enough data.
+     * @param positionStats the statistics, or null to always choose randomly
+     */
+    public void setPositionStats(PositionStatsIndex positionStats) {
+        this.positionStats = positionStats;
+    }
+
+    /**
+     * Gets the number of positions visited by the most recent search
+     * @return node count of the last findBestMove or findBestMoveMask call
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    public int getWinLength() {
+        return winLength;
+    }
+
+    /**
+     * Sets how many stones in a row win, used by the time-budgeted search on larger boards
+     */
+    public void setWinLength(int winLength) {
+        this.winLength = winLength;
+    }
+
+    public IEvaluator getEvaluator() {
+        return evaluator;
+    }
+
+    /**
+     * Sets the evaluator used by the time-budgeted search to score positions at its depth limit
+     */
+    public void setEvaluator(IEvaluator evaluator) {
+        this.evaluator = evaluator;
+        this.deepeningSearch = null;
+    }
+
+    /**
+     * Gets the deepest fully searched depth of the last time-budgeted search
+     * @return depth in plies, 0 if no iteration finished in time
+     */
+    public int getLastSearchDepth() {
+        return lastSearchDepth;
+    }
+
+    /**
+     * Gets the score of the best move found by the most recent findBestMoveMask call
+     * @return 10 - depth for a forced win, depth - 10 for a forced loss, 0 for a draw
+     */
+    public int getBestScore() {
+        return bestScore;
+    }
+
     /**
      * Finds the best move for the AI player
      * @param board The current game board
      * @return An array with [col, row] for the best move
      */
+    @Override
     public int[] findBestMove(int[][] board) {
+        int index = findBestMoveIndex(board);
+        if (index == -1) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{colOf(index), rowOf(index)};
+    }
+
+    /**
+     * Finds the best move for the AI player without allocating
+     * @param board The current game board
+     * @return The cell index (row * 3 + col) of the best move, or -1 if no move is possible
+     */
+    @Override
+    public int findBestMoveIndex(int[][] board) {
         // Sometimes make a random move instead of optimal (makes AI beatable)
-        if (random.nextDouble() < MISTAKE_PROBABILITY) {
+        if (mistakeProbability > 0 && random.nextDouble() < mistakeProbability) {
             return findRandomMove(board);
         }
 
-        int bestScore = Integer.MIN_VALUE;
-        List<int[]> bestMoves = new ArrayList<>();
+        int bestMoves = findBestMoveMask(board);
+        if (bestMoves == 0) {
+            return -1;
+        }
 
-        for (int col = 0; col < 3; col++) {
-            for (int row = 0; row < 3; row++) {
-                if (board[col][row] == 0) {
-                    board[col][row] = aiPlayer;
-                    int score = minimax(board, 0, false);
-                    board[col][row] = 0;
-
-                    if (score > bestScore) {
-                        bestScore = score;
-                        bestMoves.clear();
-                        bestMoves.add(new int[]{col, row});
-                    } else if (score == bestScore) {
-                        bestMoves.add(new int[]{col, row});
-                    }
-                }
+        // Prefer the best move real players struggle against most
+        if (positionStats != null) {
+            int tricky = positionStats.findTrickyMove(toMask(board, aiPlayer), toMask(board, humanPlayer), bestMoves);
+            if (tricky != -1) {
+                return tricky;
             }
         }
 
         // Randomly pick from equally good moves
-        if (!bestMoves.isEmpty()) {
-            return bestMoves.get(random.nextInt(bestMoves.size()));
+        return BitboardGameBoard.randomCell(bestMoves, random);
+    }
+
+    /**
+     * Finds the best move within a time budget using iterative deepening.
+     * Works on any square board with getWinLength() in a row, and never makes random mistakes.
+     * @param board The current game board, indexed [col][row]
+     * @param budget How long the search may take
+     * @return An array with [col, row] for the best move of the deepest finished iteration
+     */
+    public int[] findBestMove(int[][] board, Duration budget) {
+        IterativeDeepeningSearch search = deepeningSearch;
+        if (search == null || search.getSize() != board.length || search.getWinLength() != winLength) {
+            search = new IterativeDeepeningSearch(board.length, winLength, evaluator);
+            deepeningSearch = search;
         }
 
-        return new int[]{-1, -1};
+        int index = search.search(board, aiPlayer, budget);
+        nodeCount = search.getNodeCount();
+        bestScore = search.getBestScore();
+        lastSearchDepth = search.getCompletedDepth();
+
+        if (index == -1) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{index % board.length, index / board.length};
     }
 
     /**
-     * Finds a random valid move
+     * Finds every move that scores as well as the best one, without the random mistakes
      * @param board The current game board
-     * @return An array with [col, row] for a random move
+     * @return A 9-bit mask with bit (row * 3 + col) set for each best move, 0 if no move is possible
      */
-    private int[] findRandomMove(int[][] board) {
-        List<int[]> availableMoves = new ArrayList<>();
+    public int findBestMoveMask(int[][] board) {
+        if (searchMode != SearchMode.MINIMAX) {
+            return findBestMoveMask(toMask(board, aiPlayer), toMask(board, humanPlayer));
+        }
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        nodeCount = 0;
 
-        for (int col = 0; col < 3; col++) {
-            for (int row = 0; row < 3; row++) {
-                if (board[col][row] == 0) {
-                    availableMoves.add(new int[]{col, row});
+        int bestScore = Integer.MIN_VALUE;
+        int bestMoves = 0;
+        minimaxBoard.load(board, aiPlayer);
+
+        for (int index = 0; index < BitboardGameBoard.CELLS; index++) {
+            if (minimaxBoard.getCellAt(index) == 0) {
+                minimaxBoard.makeMove(index);
+                int score = minimax(minimaxBoard, 0, false);
+                minimaxBoard.unmakeMove();
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMoves = 1 << index;
+                } else if (score == bestScore) {
+                    bestMoves |= 1 << index;
                 }
             }
         }
 
-        if (!availableMoves.isEmpty()) {
-            return availableMoves.get(random.nextInt(availableMoves.size()));
+        this.bestScore = bestScore;
+        if (Metrics.ENABLED) {
+            Metrics.recordSearch(start, nodeCount);
+            flushNodesByDepth(nodesByDepth);
         }
+        return bestMoves;
+    }
 
-        return new int[]{-1, -1};
+    /**
+     * Finds every best move of a position given as bitboards, searched with alpha-beta even
+     * in SearchMode.MINIMAX. The player ids of this instance do not matter here.
+     * @param aiMask stones of the player to move
+     * @param humanMask stones of the other player
+     * @return A 9-bit mask of the best moves, 0 if the board is full
+     */
+    int findBestMoveMask(int aiMask, int humanMask) {
+        long start = Metrics.ENABLED ? System.nanoTime() : 0;
+        nodeCount = 0;
+        int bestMoves = searchMode == SearchMode.PARALLEL
+                ? parallelRoot(aiMask, humanMask)
+                : alphaBetaRoot(aiMask, humanMask);
+        if (Metrics.ENABLED) {
+            Metrics.recordSearch(start, nodeCount);
+        }
+        return bestMoves;
     }
 
     /**
-     * Minimax algorithm implementation
-     * @param board The current board state
-     * @param depth Current depth in the game tree
-     * @param isMaximizing Whether this is a maximizing or minimizing move
-     * @return The score for this board state
+     * Scores every root move with alpha-beta. Each move is searched with alpha just below
+     * the best score so far, so moves tying the best are scored exactly and worse ones are cut.
      */
-    private int minimax(int[][] board, int depth, boolean isMaximizing) {
-        int result = checkWinner(board);
+    private int alphaBetaRoot(int aiMask, int humanMask) {
+        int empty = ~(aiMask | humanMask) & FULL_MASK;
+        int bestScore = -INFINITY;
+        int bestMoves = 0;
+        worker.nodes = 0;
 
-        // Terminal state
-        if (result != 0) {
-            if (result == aiPlayer) {
-                return 10 - depth;
-            } else if (result == humanPlayer) {
-                return depth - 10;
-            } else {
-                return 0; // Draw
+        for (int index : MOVE_ORDER) {
+            int bit = 1 << index;
+            if ((empty & bit) != 0) {
+                int score = worker.alphaBeta(aiMask | bit, humanMask, 0, bestScore - 1, INFINITY, false);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestMoves = bit;
+                } else if (score == bestScore) {
+                    bestMoves |= bit;
+                }
             }
         }
 
-        if (isMaximizing) {
-            int bestScore = Integer.MIN_VALUE;
-            for (int col = 0; col < 3; col++) {
-                for (int row = 0; row < 3; row++) {
-                    if (board[col][row] == 0) {
-                        board[col][row] = aiPlayer;
-                        int score = minimax(board, depth + 1, false);
-                        board[col][row] = 0;
-                        bestScore = Math.max(score, bestScore);
-                    }
-                }
+        this.bestScore = bestScore;
+        nodeCount = worker.nodes;
+        if (Metrics.ENABLED) {
+            flushNodesByDepth(worker.nodesByDepth);
+        }
+        return bestMoves;
+    }
+
+    /**
+     * Scores the root moves as parallel ForkJoin tasks, one per move, each on its own pair of masks.
+     * Tasks share the best score found so far and search with alpha just below it, exactly like
+     * alphaBetaRoot, so the best-move set is the same as the sequential search.
+     */
+    private int parallelRoot(int aiMask, int humanMask) {
+        int empty = ~(aiMask | humanMask) & FULL_MASK;
+        AtomicInteger bestSoFar = new AtomicInteger(-INFINITY);
+        List<RootMoveTask> tasks = new ArrayList<>();
+
+        for (int index : MOVE_ORDER) {
+            int bit = 1 << index;
+            if ((empty & bit) != 0) {
+                tasks.add(new RootMoveTask(aiMask | bit, humanMask, bit, bestSoFar));
             }
-            return bestScore;
-        } else {
-            int bestScore = Integer.MAX_VALUE;
-            for (int col = 0; col < 3; col++) {
-                for (int row = 0; row < 3; row++) {
-                    if (board[col][row] == 0) {
-                        board[col][row] = humanPlayer;
-                        int score = minimax(board, depth + 1, true);
-                        board[col][row] = 0;
-                        bestScore = Math.min(score, bestScore);
-                    }
-                }
+        }
+        tasks.forEach(pool::execute);
+
+        int bestScore = -INFINITY;
+        int bestMoves = 0;
+        long nodes = 0;
+        for (RootMoveTask task : tasks) {
+            int score = task.join();
+            nodes += task.worker.nodes;
+            if (Metrics.ENABLED) {
+                flushNodesByDepth(task.worker.nodesByDepth);
+            }
+            if (score > bestScore) {
+                bestScore = score;
+                bestMoves = task.bit;
+            } else if (score == bestScore) {
+                bestMoves |= task.bit;
             }
-            return bestScore;
+        }
+
+        this.bestScore = bestScore;
+        nodeCount = nodes;
+        return bestMoves;
+    }
+
+    private class RootMoveTask extends RecursiveTask<Integer> {
+        private static final long serialVersionUID = 1L;
+
+        private final transient AlphaBetaWorker worker = new AlphaBetaWorker();
+        private final int aiMask;
+        private final int humanMask;
+        private final int bit;
+        private final AtomicInteger bestSoFar;
+
+        RootMoveTask(int aiMask, int humanMask, int bit, AtomicInteger bestSoFar) {
+            this.aiMask = aiMask;
+            this.humanMask = humanMask;
+            this.bit = bit;
+            this.bestSoFar = bestSoFar;
+        }
+
+        @Override
+        protected Integer compute() {
+            int score = worker.alphaBeta(aiMask, humanMask, 0, bestSoFar.get() - 1, INFINITY, false);
+            bestSoFar.accumulateAndGet(score, Math::max);
+            return score;
         }
     }
 
     /**
-     * Checks if there's a winner on the board
-     * @param board The current board state
-     * @return The winner (1 or 2), -1 for draw, 0 for ongoing game
+     * Runs alpha-beta searches and counts their nodes. Each thread needs its own worker.
      */
-    private int checkWinner(int[][] board) {
-        // Check rows and columns
-        for (int i = 0; i < 3; i++) {
-            if (board[i][0] != 0 && board[i][0] == board[i][1] && board[i][1] == board[i][2]) {
-                return board[i][0];
+    private class AlphaBetaWorker {
+        private long nodes;
+        private final long[] nodesByDepth = new long[BitboardGameBoard.CELLS + 1]; // for Metrics
+
+        /**
+         * Fail-hard alpha-beta with the same scoring as minimax
+         * @return the score clamped to [alpha, beta]
+         */
+        private int alphaBeta(int aiMask, int humanMask, int depth, int alpha, int beta, boolean isMaximizing) {
+            nodes++;
+            if (Metrics.ENABLED) {
+                nodesByDepth[depth]++;
+            }
+
+            // Terminal state
+            if (hasWin(aiMask)) {
+                return 10 - depth;
+            }
+            if (hasWin(humanMask)) {
+                return depth - 10;
+            }
+            int empty = ~(aiMask | humanMask) & FULL_MASK;
+            if (empty == 0) {
+                return 0; // Draw
+            }
+
+            TranspositionTable table = transpositionTable;
+            int toMove = isMaximizing ? aiMask : humanMask;
+            int opponent = isMaximizing ? humanMask : aiMask;
+            int alphaOrig = alpha;
+            int betaOrig = beta;
+            if (table != null) {
+                int entry = table.probe(toMove, opponent);
+                if (entry != TranspositionTable.MISSING) {
+                    // entries are from the mover's point of view, flip them back for the minimizing side
+                    int relative = isMaximizing ? TranspositionTable.scoreOf(entry) : -TranspositionTable.scoreOf(entry);
+                    int bound = isMaximizing ? TranspositionTable.boundOf(entry) : flipBound(TranspositionTable.boundOf(entry));
+                    int score = fromRelative(relative, depth, bound);
+                    if (bound == TranspositionTable.EXACT) {
+                        return Math.max(alpha, Math.min(beta, score));
+                    } else if (bound == TranspositionTable.LOWER_BOUND) {
+                        alpha = Math.max(alpha, score);
+                    } else {
+                        beta = Math.min(beta, score);
+                    }
+                    if (alpha >= beta) {
+                        return isMaximizing ? alpha : beta;
+                    }
+                }
+            }
+
+            for (int index : MOVE_ORDER) {
+                int bit = 1 << index;
+                if ((empty & bit) == 0) {
+                    continue;
+                }
+                if (isMaximizing) {
+                    int score = alphaBeta(aiMask | bit, humanMask, depth + 1, alpha, beta, false);
+                    alpha = Math.max(alpha, score);
+                } else {
+                    int score = alphaBeta(aiMask, humanMask | bit, depth + 1, alpha, beta, true);
+                    beta = Math.min(beta, score);
+                }
+                if (alpha >= beta) {
+                    break;
+                }
             }
-            if (board[0][i] != 0 && board[0][i] == board[1][i] && board[1][i] == board[2][i]) {
-                return board[0][i];
+            int result = isMaximizing ? alpha : beta;
+
+            if (table != null && Math.abs(result) <= 10) {
+                int bound = result <= alphaOrig ? TranspositionTable.UPPER_BOUND
+                        : result >= betaOrig ? TranspositionTable.LOWER_BOUND
+                        : TranspositionTable.EXACT;
+                int relative = toRelative(result, depth);
+                if (isMaximizing) {
+                    table.store(toMove, opponent, relative, bound);
+                } else {
+                    table.store(toMove, opponent, -relative, flipBound(bound));
+                }
             }
+            return result;
         }
+    }
 
-        // Check diagonals
-        if (board[0][0] != 0 && board[0][0] == board[1][1] && board[1][1] == board[2][2]) {
-            return board[0][0];
+    // A score at this depth as seen from the position itself: a win in k plies is 10 - k
+    private static int toRelative(int score, int depth) {
+        return score > 0 ? score + depth : score < 0 ? score - depth : 0;
+    }
+
+    // Inverse of toRelative. Wins always score at least 1 and losses at most -1,
+    // so a bound that crosses zero after shifting only tells us about draws.
+    private static int fromRelative(int relative, int depth, int bound) {
+        if (relative > 0) {
+            return bound == TranspositionTable.UPPER_BOUND ? Math.max(0, relative - depth) : relative - depth;
         }
-        if (board[0][2] != 0 && board[0][2] == board[1][1] && board[1][1] == board[2][0]) {
-            return board[0][2];
+        if (relative < 0) {
+            return bound == TranspositionTable.LOWER_BOUND ? Math.min(0, relative + depth) : relative + depth;
         }
+        return 0;
+    }
+
+    private static void flushNodesByDepth(long[] counts) {
+        Metrics.addNodesByDepth(counts);
+        Arrays.fill(counts, 0);
+    }
 
-        // Check for draw
-        boolean isFull = true;
+    private static int flipBound(int bound) {
+        if (bound == TranspositionTable.LOWER_BOUND) {
+            return TranspositionTable.UPPER_BOUND;
+        }
+        return bound == TranspositionTable.UPPER_BOUND ? TranspositionTable.LOWER_BOUND : bound;
+    }
+
+    private static int toMask(int[][] board, int player) {
+        int mask = 0;
         for (int col = 0; col < 3; col++) {
             for (int row = 0; row < 3; row++) {
-                if (board[col][row] == 0) {
-                    isFull = false;
-                    break;
+                if (board[col][row] == player) {
+                    mask |= 1 << cellIndex(col, row);
                 }
             }
-            if (!isFull) break;
         }
+        return mask;
+    }
 
-        if (isFull) {
-            return -1; // Draw
+    /**
+     * Finds a random valid move
+     * @param board The current game board
+     * @return The cell index of a random empty cell, or -1 if the board is full
+     */
+    private int findRandomMove(int[][] board) {
+        int empty = toMask(board, 0);
+        return empty == 0 ? -1 : BitboardGameBoard.randomCell(empty, random);
+    }
+
+    /**
+     * Minimax algorithm implementation
+     * @param board The current board state, moves are made and unmade on it in place
+     * @param depth Current depth in the game tree
+     * @param isMaximizing Whether this is a maximizing or minimizing move
+     * @return The score for this board state
+     */
+    private int minimax(KInARowBoard board, int depth, boolean isMaximizing) {
+        nodeCount++;
+        if (Metrics.ENABLED) {
+            nodesByDepth[depth]++;
+        }
+
+        // Terminal state
+        if (board.isGameOver()) {
+            int result = board.getWinner();
+            if (result == aiPlayer) {
+                return 10 - depth;
+            } else if (result == humanPlayer) {
+                return depth - 10;
+            } else {
+                return 0; // Draw
+            }
         }
 
-        return 0; // Game ongoing
+        int bestScore = isMaximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+        for (int index = 0; index < BitboardGameBoard.CELLS; index++) {
+            if (board.getCellAt(index) == 0) {
+                board.makeMove(index);
+                int score = minimax(board, depth + 1, !isMaximizing);
+                board.unmakeMove();
+                bestScore = isMaximizing ? Math.max(score, bestScore) : Math.min(score, bestScore);
+            }
+        }
+        return bestScore;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Random;
+
+/**
+ * AI player that looks its moves up in the precomputed PerfectPlayTable.
+ * Plays exactly like MinimaxAI without mistakes, at the cost of one array read per move.
+ */
+public class PerfectPlayAI implements IAIPlayer {
+
+    // loaded on first use and shared by every instance
+    private static class Holder {
+        static final PerfectPlayTable TABLE = PerfectPlayTable.load();
+    }
+
+    private final int aiPlayer;
+    private final Random random;
+
+    public PerfectPlayAI(int aiPlayer) {
+        this.aiPlayer = aiPlayer;
+        this.random = new Random();
+    }
+
+    /**
+     * Loads the shared table if that has not happened yet
+     * @return false if the table resource is missing or corrupt
+     */
+    public static boolean isAvailable() {
+        try {
+            return Holder.TABLE != null;
+        } catch (ExceptionInInitializerError | NoClassDefFoundError e) {
+            return false;
+        }
+    }
+
+    /**
+     * Finds the best move for the AI player, picking randomly among equally good moves
+     * @param board The current game board
+     * @return An array with [col, row] for the best move
+     */
+    @Override
+    public int[] findBestMove(int[][] board) {
+        int index = findBestMoveIndex(board);
+        if (index == -1) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{BitboardGameBoard.colOf(index), BitboardGameBoard.rowOf(index)};
+    }
+
+    /**
+     * Finds the best move for the AI player without allocating
+     * @param board The current game board
+     * @return The cell index (row * 3 + col) of the best move, or -1 if the game is over
+     */
+    @Override
+    public int findBestMoveIndex(int[][] board) {
+        int bestMoves = findBestMoveMask(board);
+        return bestMoves == 0 ? -1 : BitboardGameBoard.randomCell(bestMoves, random);
+    }
+
+    /**
+     * Finds every move that scores as well as the best one
+     * @param board The current game board
+     * @return A 9-bit mask with bit (row * 3 + col) set for each best move, 0 if the game is over
+     */
+    public int findBestMoveMask(int[][] board) {
+        return Holder.TABLE.bestMoves(PerfectPlayTable.indexOf(board, aiPlayer));
+    }
+
+    /**
+     * Finds every best move of a position given as bitboards, bit (row * 3 + col) per cell.
+     * Does not depend on the player this instance was created for and is safe to call from any thread.
+     * @param toMove stones of the player to move
+     * @param opponent stones of the other player
+     * @return A 9-bit mask of the best moves, 0 if the game is over
+     */
+    public int findBestMoveMask(int toMove, int opponent) {
+        return Holder.TABLE.bestMoves(PerfectPlayTable.indexOf(toMove, opponent));
+    }
+
+    /**
+     * Gets the minimax value of the position for the AI, scored like MinimaxAI.getBestScore()
+     * @param board The current game board
+     */
+    public int getValue(int[][] board) {
+        return Holder.TABLE.value(PerfectPlayTable.indexOf(board, aiPlayer));
+    }
+}
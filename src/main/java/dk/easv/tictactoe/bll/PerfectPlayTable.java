@@ -0,0 +1,120 @@
+package dk.easv.tictactoe.bll;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Solved 3x3 game: the minimax value and best-move set of every reachable position.
+ * Positions are indexed in base 3, one digit per cell (row * 3 + col):
+ * 0 for empty, 1 for the player to move and 2 for the opponent.
+ * Each entry is a short holding the best-move mask in bits 0-8 and the value + 64 in bits 9-15.
+ * Unreachable and finished positions hold 0.
+ */
+public final class PerfectPlayTable {
+
+    static final String RESOURCE = "/ai/perfect-play.bin";
+    static final int MAGIC = 0x54545450; // "TTTP"
+    static final int VERSION = 1;
+    static final int SIZE = 19683; // 3^9
+
+    private static final int VALUE_SHIFT = BitboardGameBoard.CELLS;
+    private static final int VALUE_OFFSET = 64;
+    private static final int[] POW3 = {1, 3, 9, 27, 81, 243, 729, 2187, 6561};
+
+    private final short[] entries;
+
+    PerfectPlayTable(short[] entries) {
+        this.entries = entries;
+    }
+
+    /**
+     * Loads the table bundled with the application
+     * @throws IllegalStateException if the resource is missing or corrupt
+     */
+    static PerfectPlayTable load() {
+        try (InputStream in = PerfectPlayTable.class.getResourceAsStream(RESOURCE)) {
+            if (in == null) {
+                throw new IllegalStateException("Missing resource " + RESOURCE);
+            }
+            return read(in);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not read " + RESOURCE, e);
+        }
+    }
+
+    static PerfectPlayTable read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != MAGIC || data.readInt() != VERSION || data.readInt() != SIZE) {
+            throw new IOException("Not a perfect play table");
+        }
+        byte[] bytes = data.readNBytes(SIZE * 2);
+        if (bytes.length != SIZE * 2) {
+            throw new IOException("Truncated perfect play table");
+        }
+        short[] entries = new short[SIZE];
+        for (int i = 0; i < SIZE; i++) {
+            entries[i] = (short) (((bytes[2 * i] & 0xFF) << 8) | (bytes[2 * i + 1] & 0xFF));
+        }
+        return new PerfectPlayTable(entries);
+    }
+
+    void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(SIZE);
+        for (short entry : entries) {
+            data.writeShort(entry);
+        }
+        data.flush();
+    }
+
+    /**
+     * Computes the table index of a position
+     * @param toMove stones of the player to move
+     * @param opponent stones of the other player
+     */
+    static int indexOf(int toMove, int opponent) {
+        int index = 0;
+        for (int cell = 0; cell < BitboardGameBoard.CELLS; cell++) {
+            if ((toMove & (1 << cell)) != 0) {
+                index += POW3[cell];
+            } else if ((opponent & (1 << cell)) != 0) {
+                index += 2 * POW3[cell];
+            }
+        }
+        return index;
+    }
+
+    /**
+     * Computes the table index of a board with the given player to move
+     * @param board board indexed [col][row]
+     */
+    static int indexOf(int[][] board, int player) {
+        int index = 0;
+        for (int col = 0; col < BitboardGameBoard.SIZE; col++) {
+            for (int row = 0; row < BitboardGameBoard.SIZE; row++) {
+                int cell = board[col][row];
+                if (cell != 0) {
+                    index += (cell == player ? 1 : 2) * POW3[BitboardGameBoard.cellIndex(col, row)];
+                }
+            }
+        }
+        return index;
+    }
+
+    static short entry(int bestMoves, int value) {
+        return (short) (bestMoves | ((value + VALUE_OFFSET) << VALUE_SHIFT));
+    }
+
+    int bestMoves(int index) {
+        return entries[index] & BitboardGameBoard.FULL_MASK;
+    }
+
+    int value(int index) {
+        return ((entries[index] & 0xFFFF) >>> VALUE_SHIFT) - VALUE_OFFSET;
+    }
+}
@@ -0,0 +1,78 @@
+package dk.easv.tictactoe.bll;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * Builds the PerfectPlayTable resource by scoring every reachable position with MinimaxAI.
+ * Run from the project root to regenerate src/main/resources/ai/perfect-play.bin.
+ */
+public class PerfectPlayTableGenerator {
+
+    private static final Path DEFAULT_OUTPUT = Path.of("src/main/resources" + PerfectPlayTable.RESOURCE);
+
+    private final short[] entries = new short[PerfectPlayTable.SIZE];
+    private final boolean[] visited = new boolean[PerfectPlayTable.SIZE];
+    private final MinimaxAI ai = new MinimaxAI(1, new TranspositionTable());
+    private final int[][] board = new int[BitboardGameBoard.SIZE][BitboardGameBoard.SIZE];
+    private int positions;
+
+    /**
+     * Walks the game tree from the empty board, with either player moving first
+     * @return the finished table
+     */
+    public PerfectPlayTable generate() {
+        walk(0, 0);
+        return new PerfectPlayTable(entries);
+    }
+
+    public int getPositionCount() {
+        return positions;
+    }
+
+    private void walk(int toMove, int opponent) {
+        int index = PerfectPlayTable.indexOf(toMove, opponent);
+        if (visited[index]) {
+            return;
+        }
+        visited[index] = true;
+        if (BitboardGameBoard.hasWin(toMove) || BitboardGameBoard.hasWin(opponent)) {
+            return;
+        }
+        int empty = ~(toMove | opponent) & BitboardGameBoard.FULL_MASK;
+        if (empty == 0) {
+            return;
+        }
+
+        // the AI always plays as player 1 here, the opponent as player 2
+        for (int cell = 0; cell < BitboardGameBoard.CELLS; cell++) {
+            int bit = 1 << cell;
+            board[BitboardGameBoard.colOf(cell)][BitboardGameBoard.rowOf(cell)] =
+                    (toMove & bit) != 0 ? 1 : (opponent & bit) != 0 ? 2 : 0;
+        }
+        int bestMoves = ai.findBestMoveMask(board);
+        entries[index] = PerfectPlayTable.entry(bestMoves, ai.getBestScore());
+        positions++;
+
+        for (int cell = 0; cell < BitboardGameBoard.CELLS; cell++) {
+            if ((empty & (1 << cell)) != 0) {
+                walk(opponent, toMove | (1 << cell));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path output = args.length > 0 ? Path.of(args[0]) : DEFAULT_OUTPUT;
+        PerfectPlayTableGenerator generator = new PerfectPlayTableGenerator();
+        PerfectPlayTable table = generator.generate();
+
+        Files.createDirectories(output.toAbsolutePath().getParent());
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(output))) {
+            table.write(out);
+        }
+        System.out.println("Wrote " + generator.getPositionCount() + " positions to " + output);
+    }
+}
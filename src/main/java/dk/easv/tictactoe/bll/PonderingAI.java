@@ -0,0 +1,157 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.metrics.Metrics;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps an AI player and searches the opponent's possible replies while the opponent is thinking.
+ * After the AI moves, ponder() searches the AI's answer to every empty cell in the background.
+ * When the opponent has played one of them, findBestMove returns the cached answer without
+ * searching; for any other position it searches as usual.
+ * The wrapped player is only used by one thread at a time, so it does not need to be thread safe.
+ */
+public class PonderingAI implements IAIPlayer {
+
+    private static final int NOT_PONDERED = -2;
+
+    private final IAIPlayer ai;
+    private final ExecutorService executor;
+    private final Object searchLock = new Object(); // held while the wrapped player searches
+    private final AtomicInteger generation = new AtomicInteger(); // bumped to stop pondering
+    private volatile Future<?> pondering;
+
+    // guarded by searchLock
+    private int[][] ponderedBoard;
+    private int[] replies; // AI move by the opponent's cell index, NOT_PONDERED if not searched yet
+
+    /**
+     * @param ai the player to search with
+     * @param executor runs the pondering, must have a thread to spare for it
+     */
+    public PonderingAI(IAIPlayer ai, ExecutorService executor) {
+        this.ai = ai;
+        this.executor = executor;
+    }
+
+    public IAIPlayer getAI() {
+        return ai;
+    }
+
+    /**
+     * Starts searching the AI's answer to every reply of the opponent, replacing earlier pondering
+     * @param board the position with the opponent to move, indexed [col][row]; it is copied
+     * @param opponent the player id of the opponent
+     */
+    public void ponder(int[][] board, int opponent) {
+        int ponderGeneration = generation.incrementAndGet();
+        int[][] position = new int[board.length][];
+        for (int col = 0; col < board.length; col++) {
+            position[col] = board[col].clone();
+        }
+        pondering = executor.submit(() -> ponder(position, opponent, ponderGeneration));
+    }
+
+    /**
+     * Stops pondering. A reply already being searched finishes in the background.
+     */
+    public void cancel() {
+        generation.incrementAndGet();
+        Future<?> task = pondering;
+        if (task != null) {
+            task.cancel(false);
+            pondering = null;
+        }
+    }
+
+    /**
+     * Checks whether findBestMove would answer a position from the ponder cache
+     */
+    public boolean isPondered(int[][] board) {
+        synchronized (searchLock) {
+            return cachedReply(board) != NOT_PONDERED;
+        }
+    }
+
+    @Override
+    public int[] findBestMove(int[][] board) {
+        int index = findBestMoveIndex(board);
+        if (index == -1) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{index % board.length, index / board.length};
+    }
+
+    @Override
+    public int findBestMoveIndex(int[][] board) {
+        generation.incrementAndGet(); // the opponent has moved, the other replies are no longer needed
+        synchronized (searchLock) {
+            int reply = cachedReply(board);
+            if (reply != NOT_PONDERED) {
+                if (Metrics.ENABLED) {
+                    Metrics.PONDER_HITS.increment();
+                }
+                return reply;
+            }
+            if (Metrics.ENABLED && ponderedBoard != null) {
+                Metrics.PONDER_MISSES.increment();
+            }
+            return ai.findBestMoveIndex(board);
+        }
+    }
+
+    private void ponder(int[][] position, int opponent, int ponderGeneration) {
+        int size = position.length;
+        int[] found = new int[size * size];
+        Arrays.fill(found, NOT_PONDERED);
+        synchronized (searchLock) {
+            if (ponderGeneration != generation.get()) {
+                return;
+            }
+            ponderedBoard = position;
+            replies = found;
+        }
+
+        for (int index = 0; index < found.length; index++) {
+            int col = index % size;
+            int row = index / size;
+            if (position[col][row] != 0) {
+                continue;
+            }
+            // the lock is released between replies, so a real search never waits for more than one
+            synchronized (searchLock) {
+                if (ponderGeneration != generation.get()) {
+                    return;
+                }
+                position[col][row] = opponent;
+                found[index] = ai.findBestMoveIndex(position);
+                position[col][row] = 0;
+            }
+        }
+    }
+
+    // the answer for a position one opponent stone after the pondered one, or NOT_PONDERED
+    private int cachedReply(int[][] board) {
+        if (ponderedBoard == null || ponderedBoard.length != board.length) {
+            return NOT_PONDERED;
+        }
+        int size = board.length;
+        int played = -1;
+        for (int col = 0; col < size; col++) {
+            for (int row = 0; row < size; row++) {
+                int before = ponderedBoard[col][row];
+                int now = board[col][row];
+                if (before == now) {
+                    continue;
+                }
+                if (before != 0 || played != -1) {
+                    return NOT_PONDERED;
+                }
+                played = row * size + col;
+            }
+        }
+        return played == -1 ? NOT_PONDERED : replies[played];
+    }
+}
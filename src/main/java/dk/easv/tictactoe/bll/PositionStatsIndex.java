@@ -0,0 +1,241 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.dal.GameRecordReader;
+import dk.easv.tictactoe.dal.PositionStatsFile;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static dk.easv.tictactoe.dal.PositionStatsFile.DRAWS;
+import static dk.easv.tictactoe.dal.PositionStatsFile.LOSSES;
+import static dk.easv.tictactoe.dal.PositionStatsFile.REPLIES;
+import static dk.easv.tictactoe.dal.PositionStatsFile.WINS;
+
+/**
+ * Win, draw and loss counts and reply counts of recorded games for every 3x3 position,
+ * kept in a memory-mapped PositionStatsFile. Symmetric positions share one slot: each of the
+ * 765 canonical positions has a fixed slot, found through a key-to-slot array, so every query
+ * is O(1) whatever the number of games. Results are counted from the point of view of the
+ * player to move. Replies are counted per cell in the canonical orientation of the position,
+ * and a queried cell is transformed into that orientation on lookup.
+ */
+public class PositionStatsIndex implements Closeable {
+
+    private static final int MIN_GAMES = 10; // positions seen less often are ignored by findTrickyMove
+    private static final int[] SLOT_OF_KEY = new int[1 << (2 * BitboardGameBoard.CELLS)];
+    private static final int SLOT_COUNT;
+
+    static {
+        // number the canonical keys of every legal position in ascending order,
+        // which gives every process the same slots
+        boolean[] seen = new boolean[SLOT_OF_KEY.length];
+        collectCanonicalKeys(0, 0, seen, new boolean[SLOT_OF_KEY.length]);
+        Arrays.fill(SLOT_OF_KEY, -1);
+        int slot = 0;
+        for (int key = 0; key < seen.length; key++) {
+            if (seen[key]) {
+                SLOT_OF_KEY[key] = slot++;
+            }
+        }
+        SLOT_COUNT = slot;
+    }
+
+    private final PositionStatsFile file;
+
+    private PositionStatsIndex(PositionStatsFile file) {
+        this.file = file;
+    }
+
+    /**
+     * Opens an index for reading and updating, creating it if it does not exist
+     */
+    public static PositionStatsIndex open(Path file) throws IOException {
+        return new PositionStatsIndex(PositionStatsFile.open(file, SLOT_COUNT));
+    }
+
+    /**
+     * Opens an existing index read-only, it may be shared with other processes
+     */
+    public static PositionStatsIndex openReadOnly(Path file) throws IOException {
+        PositionStatsFile stats = PositionStatsFile.openReadOnly(file);
+        if (stats.getSlotCount() != SLOT_COUNT) {
+            stats.close();
+            throw new IOException(file + " does not have one slot per canonical position");
+        }
+        return new PositionStatsIndex(stats);
+    }
+
+    /**
+     * Counts the games added to a game record file since the last update.
+     * Only the new part of the record file is read. The offset moves on with every game counted,
+     * so an update that fails part way is continued, not repeated, by the next one.
+     * @return the number of games counted
+     */
+    public long update(Path recordFile) throws IOException {
+        long games = 0;
+        int[] moves = new int[BitboardGameBoard.CELLS];
+        try (GameRecordReader reader = new GameRecordReader(recordFile)) {
+            if (file.getRecordOffset() > 0) {
+                reader.seek(file.getRecordOffset());
+            }
+            while (reader.next()) {
+                for (int i = 0; i < reader.getMoveCount(); i++) {
+                    moves[i] = reader.getMove(i);
+                }
+                addGame(moves, reader.getMoveCount(), reader.getWinner());
+                file.setRecordOffset(reader.getPosition());
+                games++;
+            }
+        } finally {
+            file.force();
+        }
+        return games;
+    }
+
+    /**
+     * Counts one game
+     * @param moves cell indexes (row * 3 + col), X first
+     * @param moveCount number of moves
+     * @param winner 1 or 2, -1 for a draw; unfinished games (0) only add reply counts
+     * @return false if the game is illegal, it is then not counted at all
+     */
+    public boolean addGame(int[] moves, int moveCount, int winner) {
+        // the whole game is checked before anything is counted
+        int[] slots = new int[moveCount + 1];
+        int[] replies = new int[moveCount];
+        int toMove = 0;
+        int opponent = 0;
+        for (int i = 0; i <= moveCount; i++) {
+            slots[i] = slotOf(toMove, opponent);
+            if (slots[i] == -1) {
+                return false; // a position no legal game reaches
+            }
+            if (i < moveCount) {
+                if (moves[i] < 0 || moves[i] >= BitboardGameBoard.CELLS || ((toMove | opponent) & (1 << moves[i])) != 0) {
+                    return false; // a move off the board or on a taken cell
+                }
+                replies[i] = REPLIES + BoardSymmetry.transformCell(moves[i], BoardSymmetry.canonicalSymmetry(toMove, opponent));
+                int next = toMove | (1 << moves[i]);
+                toMove = opponent;
+                opponent = next;
+            }
+        }
+
+        for (int i = 0; i <= moveCount; i++) {
+            int mover = i % 2 == 0 ? 1 : 2;
+            if (winner != 0) {
+                file.add(slots[i], winner == -1 ? DRAWS : winner == mover ? WINS : LOSSES, 1);
+            }
+            if (i < moveCount) {
+                file.add(slots[i], replies[i], 1);
+            }
+        }
+        file.addGames(1);
+        return true;
+    }
+
+    public long getGameCount() {
+        return file.getGameCount();
+    }
+
+    /**
+     * Gets the number of recorded games the player to move went on to win from this position
+     * @param toMove stones of the player to move, bit (row * 3 + col) per cell
+     * @param opponent stones of the other player
+     */
+    public long getWins(int toMove, int opponent) {
+        return count(toMove, opponent, WINS);
+    }
+
+    public long getDraws(int toMove, int opponent) {
+        return count(toMove, opponent, DRAWS);
+    }
+
+    public long getLosses(int toMove, int opponent) {
+        return count(toMove, opponent, LOSSES);
+    }
+
+    /**
+     * Gets how often a move was played in this position
+     * @param cell row * 3 + col
+     */
+    public long getReplyCount(int toMove, int opponent, int cell) {
+        int symmetry = BoardSymmetry.canonicalSymmetry(toMove, opponent);
+        return count(toMove, opponent, REPLIES + BoardSymmetry.transformCell(cell, symmetry));
+    }
+
+    /**
+     * Finds the move played most often in this position
+     * @return row * 3 + col, or -1 if the position was never played on from
+     */
+    public int getMostCommonReply(int toMove, int opponent) {
+        int best = -1;
+        long bestCount = 0;
+        for (int cell = 0; cell < BitboardGameBoard.CELLS; cell++) {
+            long count = getReplyCount(toMove, opponent, cell);
+            if (count > bestCount) {
+                bestCount = count;
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Picks the candidate move after which the opponent lost most often in recorded games
+     * @param candidates mask of moves to choose from, typically the equally good moves of a search
+     * @return row * 3 + col, or -1 if no candidate has been seen often enough
+     */
+    public int findTrickyMove(int toMove, int opponent, int candidates) {
+        int best = -1;
+        double bestLossRate = -1;
+        for (int cell = 0; cell < BitboardGameBoard.CELLS; cell++) {
+            if ((candidates & (1 << cell)) == 0) {
+                continue;
+            }
+            // after the move the opponent is to move
+            int nextToMove = opponent;
+            int nextOpponent = toMove | (1 << cell);
+            long losses = getLosses(nextToMove, nextOpponent);
+            long games = getWins(nextToMove, nextOpponent) + getDraws(nextToMove, nextOpponent) + losses;
+            if (games >= MIN_GAMES && (double) losses / games > bestLossRate) {
+                bestLossRate = (double) losses / games;
+                best = cell;
+            }
+        }
+        return best;
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    private long count(int toMove, int opponent, int field) {
+        int slot = slotOf(toMove, opponent);
+        return slot == -1 ? 0 : file.get(slot, field);
+    }
+
+    private static int slotOf(int toMove, int opponent) {
+        return SLOT_OF_KEY[BoardSymmetry.canonicalKey(toMove, opponent)];
+    }
+
+    private static void collectCanonicalKeys(int toMove, int opponent, boolean[] canonical, boolean[] visited) {
+        int key = BoardSymmetry.key(toMove, opponent);
+        if (visited[key]) {
+            return;
+        }
+        visited[key] = true;
+        canonical[BoardSymmetry.canonicalKey(toMove, opponent)] = true;
+        if (BitboardGameBoard.hasWin(toMove) || BitboardGameBoard.hasWin(opponent)) {
+            return;
+        }
+        int empty = ~(toMove | opponent) & BitboardGameBoard.FULL_MASK;
+        for (int cell = 0; cell < BitboardGameBoard.CELLS; cell++) {
+            if ((empty & (1 << cell)) != 0) {
+                collectCanonicalKeys(opponent, toMove | (1 << cell), canonical, visited);
+            }
+        }
+    }
+}
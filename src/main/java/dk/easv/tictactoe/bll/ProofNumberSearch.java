@@ -0,0 +1,347 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+
+/**
+ * Exact solver for k-in-a-row positions using depth-first proof-number search (df-pn).
+ * Two searches settle a position: the first tries to prove a win for the player to move, and
+ * if that fails the second tries to prove a win for the opponent, leaving a draw if both fail.
+ * Proof and disproof numbers are kept in a ProofNumberTable bounded by a memory budget, so large
+ * boards degrade into re-searching evicted positions instead of running out of memory.
+ */
+public class ProofNumberSearch {
+
+    /**
+     * Game theoretic value of a position for the player to move
+     */
+    public enum Result {
+        WIN, DRAW, LOSS,
+        /** The node limit was reached before the position was solved */
+        UNKNOWN
+    }
+
+    /** Default table budget, 64 MB */
+    public static final long DEFAULT_TABLE_BYTES = 64L << 20;
+
+    private static final int INFINITY = 1 << 30;
+    // mixed into the board's Zobrist key when the search tries to prove a win for player 2
+    private static final long ATTACKER_KEY = 0x9E3779B97F4A7C15L;
+
+    private final KInARowBoard board;
+    private final ProofNumberTable table;
+    private final int[] cellOrder;
+    private final int[][] moveBuffers; // one candidate list per ply
+    private final int[][] phiBuffers; // phi of each candidate, from the side to move in the child
+    private final int[][] deltaBuffers; // delta of each candidate
+    private final long[] rootWork; // nodes searched below each root candidate by the current search
+
+    private int attacker;
+    private long nodeCount;
+    private long maxNodes = Long.MAX_VALUE;
+    private boolean aborted;
+    private int lastPhi; // values of the node searched by the last mid() call
+    private int lastDelta;
+    private int bestMove;
+    private Result lastResult;
+
+    public ProofNumberSearch(int size, int winLength) {
+        this(size, winLength, DEFAULT_TABLE_BYTES);
+    }
+
+    /**
+     * @param size number of rows and columns
+     * @param winLength stones in a row needed to win
+     * @param tableBytes memory the node table may use
+     */
+    public ProofNumberSearch(int size, int winLength, long tableBytes) {
+        this.board = new KInARowBoard(size, winLength);
+        this.table = new ProofNumberTable(tableBytes);
+        int cells = size * size;
+        this.cellOrder = IterativeDeepeningSearch.orderCells(size, winLength);
+        this.moveBuffers = new int[cells + 1][cells];
+        this.phiBuffers = new int[cells + 1][cells];
+        this.deltaBuffers = new int[cells + 1][cells];
+        this.rootWork = new long[cells];
+    }
+
+    public int getSize() {
+        return board.getSize();
+    }
+
+    public int getWinLength() {
+        return board.getWinLength();
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    /**
+     * Limits the nodes a solve() call may search, it returns UNKNOWN when the limit is reached
+     */
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Gets the number of positions expanded by the last solve() call
+     */
+    public long getNodeCount() {
+        return nodeCount;
+    }
+
+    /**
+     * Gets the move found by the last solve() call: a winning move for a win, a move that keeps
+     * the draw for a draw, and for a loss the move whose refutation took the most nodes to prove,
+     * which tends to put off the loss the longest
+     * @return cell index (row * size + col), or -1 if the game was already over or the result unknown
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    public Result getLastResult() {
+        return lastResult;
+    }
+
+    /**
+     * Gets the number of positions held in the node table
+     */
+    public int getTableSize() {
+        return table.size();
+    }
+
+    /**
+     * Gets the memory allocated for the node table in bytes
+     */
+    public long getTableBytes() {
+        return (long) table.capacity() * ProofNumberTable.ENTRY_BYTES;
+    }
+
+    /**
+     * Gets how many table entries were replaced by other positions since the table was cleared
+     */
+    public long getEvictions() {
+        return table.getEvictions();
+    }
+
+    /**
+     * Empties the node table, solve() otherwise reuses what earlier calls proved
+     */
+    public void clearTable() {
+        table.clear();
+    }
+
+    /**
+     * Solves a position
+     * @param position board indexed [col][row], 0 for empty
+     * @param player the player to move
+     * @return the value of the position for the player to move
+     */
+    public Result solve(int[][] position, int player) {
+        nodeCount = 0;
+        aborted = false;
+        bestMove = -1;
+        board.load(position, player);
+        lastResult = solveLoaded(player);
+        return lastResult;
+    }
+
+    private Result solveLoaded(int player) {
+        int opponent = player == 1 ? 2 : 1;
+        if (hasWinner(opponent)) {
+            return Result.LOSS;
+        }
+        if (hasWinner(player)) {
+            return Result.WIN;
+        }
+        if (board.getEmptyCount() == 0) {
+            return Result.DRAW;
+        }
+
+        // can the player to move force a win?
+        if (solveRoot(player)) {
+            bestMove = findMove(false);
+            return Result.WIN;
+        }
+        if (aborted) {
+            return Result.UNKNOWN;
+        }
+
+        // can the player to move stop the opponent from forcing a win?
+        if (solveRoot(opponent)) {
+            bestMove = findMove(false);
+            return Result.DRAW;
+        }
+        if (aborted) {
+            return Result.UNKNOWN;
+        }
+        bestMove = findMove(true);
+        return Result.LOSS;
+    }
+
+    // searches the root until it is solved, true if the player to move reaches its goal
+    private boolean solveRoot(int attackingPlayer) {
+        attacker = attackingPlayer;
+        mid(0, INFINITY, INFINITY);
+        return lastPhi == 0;
+    }
+
+    /*
+     * Values are kept from the side to move: phi is the proof number of its goal and delta the
+     * disproof number. The attacker's goal is a win, the defender's goal is to stop that.
+     * A node's phi is the smallest delta of its children and its delta the sum of their phis.
+     */
+    private void mid(int ply, int thresholdPhi, int thresholdDelta) {
+        nodeCount++;
+        long hash = positionHash();
+        int player = board.getNextPlayer();
+        int[] moves = moveBuffers[ply];
+        int[] phis = phiBuffers[ply];
+        int[] deltas = deltaBuffers[ply];
+        int count = 0;
+        for (int index : cellOrder) {
+            if (board.getCellAt(index) != 0) {
+                continue;
+            }
+            board.makeMove(index);
+            initChild(positionHash(), player, phis, deltas, count);
+            board.unmakeMove();
+            moves[count++] = index;
+        }
+        if (ply == 0) {
+            Arrays.fill(rootWork, 0, count, 0);
+        }
+
+        long startNodes = nodeCount;
+        int phi;
+        int delta;
+        while (true) {
+            phi = INFINITY;
+            long deltaSum = 0;
+            int best = 0;
+            int secondDelta = INFINITY;
+            for (int i = 0; i < count; i++) {
+                deltaSum += phis[i];
+                if (deltas[i] < phi) {
+                    secondDelta = phi;
+                    phi = deltas[i];
+                    best = i;
+                } else if (deltas[i] < secondDelta) {
+                    secondDelta = deltas[i];
+                }
+            }
+            delta = (int) Math.min(deltaSum, INFINITY);
+            if (phi >= thresholdPhi || delta >= thresholdDelta || aborted) {
+                break;
+            }
+
+            int childPhi = (int) Math.min(INFINITY, (long) thresholdDelta - delta + phis[best]);
+            int childDelta = Math.min(thresholdPhi, secondDelta == INFINITY ? INFINITY : secondDelta + 1);
+            int move = moves[best];
+            long childStart = nodeCount;
+            board.makeMove(move);
+            mid(ply + 1, childPhi, childDelta);
+            board.unmakeMove();
+            if (ply == 0) {
+                rootWork[best] += nodeCount - childStart;
+            }
+            phis[best] = lastPhi;
+            deltas[best] = lastDelta;
+            if (nodeCount >= maxNodes) {
+                aborted = true;
+            }
+        }
+
+        if (!aborted) {
+            table.store(hash, phi, delta, nodeCount - startNodes + 1);
+        }
+        lastPhi = phi;
+        lastDelta = delta;
+    }
+
+    // values of the position just played, which has not been expanded yet
+    private void initChild(long hash, int mover, int[] phis, int[] deltas, int i) {
+        if (board.isGameOver()) {
+            // the side to move in the child lost, unless the board is full and it is the defender
+            boolean goalReached = board.getWinner() == -1 && mover == attacker;
+            phis[i] = goalReached ? 0 : INFINITY;
+            deltas[i] = goalReached ? INFINITY : 0;
+        } else if (!board.canStillWin(attacker)) {
+            // every line is blocked, the defender has reached its goal
+            boolean defenderToMove = mover == attacker;
+            phis[i] = defenderToMove ? 0 : INFINITY;
+            deltas[i] = defenderToMove ? INFINITY : 0;
+        } else if (table.lookup(hash)) {
+            phis[i] = table.getProof();
+            deltas[i] = table.getDisproof();
+        } else {
+            phis[i] = 1;
+            deltas[i] = 1;
+        }
+    }
+
+    // picks a root move from the values left in the root buffers by the last search. In a lost
+    // position every move is proven lost: moves the opponent can answer with a win at once come
+    // last, and of the rest the one that took the most work to refute is taken, counting work
+    // stored by earlier solve() calls for moves this search found in the table
+    private int findMove(boolean losing) {
+        int[] moves = moveBuffers[0];
+        int[] deltas = deltaBuffers[0];
+        int best = -1;
+        long bestWork = -1;
+        for (int i = 0; i < board.getEmptyCount(); i++) {
+            if (!losing) {
+                if (deltas[i] == 0) {
+                    return moves[i];
+                }
+                continue;
+            }
+            long work = rootWork[i];
+            board.makeMove(moves[i]);
+            if (table.lookup(positionHash())) {
+                work = Math.max(work, table.getWork());
+            }
+            if (!board.isGameOver() && !canWinAtOnce()) {
+                work += Integer.MAX_VALUE;
+            }
+            board.unmakeMove();
+            if (work > bestWork) {
+                best = i;
+                bestWork = work;
+            }
+        }
+        return best == -1 ? -1 : moves[best];
+    }
+
+    // true if the player to move has a winning move
+    private boolean canWinAtOnce() {
+        int size = board.getSize();
+        for (int index = 0; index < size * size; index++) {
+            if (board.getCellAt(index) == 0) {
+                board.makeMove(index);
+                boolean won = board.getWinner() > 0;
+                board.unmakeMove();
+                if (won) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    // table key of the current position, the same position is stored apart for each attacker
+    private long positionHash() {
+        return attacker == 2 ? board.getHash() ^ ATTACKER_KEY : board.getHash();
+    }
+
+    private boolean hasWinner(int player) {
+        int size = board.getSize();
+        for (int index = 0; index < size * size; index++) {
+            if (board.getCellAt(index) == player && board.isWinAt(index)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,123 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+
+/**
+ * Bounded hash table of proof and disproof numbers for ProofNumberSearch, sized from a memory budget.
+ * Entries live in buckets of four slots. When a bucket is full, the entry with the least work
+ * (nodes searched below it) is replaced, so cheap positions are evicted and expensive ones, which
+ * would take longest to search again, are kept. Not thread safe.
+ */
+class ProofNumberTable {
+
+    /** Bytes per entry: key, proof number, disproof number and work */
+    static final int ENTRY_BYTES = Long.BYTES + 3 * Integer.BYTES;
+    private static final int BUCKET_SIZE = 4;
+
+    private final long[] keys; // 0 marks an empty slot
+    private final int[] proof;
+    private final int[] disproof;
+    private final int[] work;
+    private final int bucketMask;
+    private int size;
+    private long evictions;
+
+    // results of the last successful lookup
+    private int foundProof;
+    private int foundDisproof;
+    private int foundWork;
+
+    /**
+     * @param maxBytes memory the table may use, at least one bucket is allocated
+     */
+    ProofNumberTable(long maxBytes) {
+        long buckets = Math.max(1, maxBytes / ENTRY_BYTES / BUCKET_SIZE);
+        int bucketCount = (int) Long.highestOneBit(Math.min(buckets, (1 << 28) / BUCKET_SIZE));
+        int capacity = bucketCount * BUCKET_SIZE;
+        this.keys = new long[capacity];
+        this.proof = new int[capacity];
+        this.disproof = new int[capacity];
+        this.work = new int[capacity];
+        this.bucketMask = bucketCount - 1;
+    }
+
+    /**
+     * Looks up a position, the numbers are then read with getProof(), getDisproof() and getWork()
+     * @param key non-zero position hash
+     * @return true if the position is stored
+     */
+    boolean lookup(long key) {
+        int start = bucketOf(key);
+        for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+            if (keys[slot] == key) {
+                foundProof = proof[slot];
+                foundDisproof = disproof[slot];
+                foundWork = work[slot];
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getProof() {
+        return foundProof;
+    }
+
+    int getDisproof() {
+        return foundDisproof;
+    }
+
+    int getWork() {
+        return foundWork;
+    }
+
+    /**
+     * Stores or updates a position
+     * @param key non-zero position hash
+     * @param nodes nodes searched below the position, used to decide what to evict
+     */
+    void store(long key, int proofNumber, int disproofNumber, long nodes) {
+        int start = bucketOf(key);
+        int target = start;
+        for (int slot = start; slot < start + BUCKET_SIZE; slot++) {
+            if (keys[slot] == key || keys[slot] == 0) {
+                target = slot;
+                break;
+            }
+            if (work[slot] < work[target]) {
+                target = slot;
+            }
+        }
+        if (keys[target] == 0) {
+            size++;
+        } else if (keys[target] != key) {
+            evictions++;
+        }
+        keys[target] = key;
+        proof[target] = proofNumber;
+        disproof[target] = disproofNumber;
+        work[target] = (int) Math.min(nodes, Integer.MAX_VALUE);
+    }
+
+    void clear() {
+        Arrays.fill(keys, 0L);
+        size = 0;
+        evictions = 0;
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return keys.length;
+    }
+
+    long getEvictions() {
+        return evictions;
+    }
+
+    private int bucketOf(long key) {
+        return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET_SIZE;
+    }
+}
@@ -0,0 +1,57 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.SplittableRandom;
+
+/**
+ * AI player that picks a uniformly random empty cell, on a board of any size.
+ * Not thread safe, give every thread its own instance.
+ */
+public class RandomAI implements IAIPlayer {
+
+    private final SplittableRandom random;
+
+    public RandomAI() {
+        this(new SplittableRandom());
+    }
+
+    /**
+     * @param random source of moves, pass a seeded one for repeatable games
+     */
+    public RandomAI(SplittableRandom random) {
+        this.random = random;
+    }
+
+    @Override
+    public int[] findBestMove(int[][] board) {
+        int index = findBestMoveIndex(board);
+        if (index == -1) {
+            return new int[]{-1, -1};
+        }
+        return new int[]{index % board.length, index / board.length};
+    }
+
+    @Override
+    public int findBestMoveIndex(int[][] board) {
+        int empty = 0;
+        for (int[] column : board) {
+            for (int cell : column) {
+                if (cell == 0) {
+                    empty++;
+                }
+            }
+        }
+        if (empty == 0) {
+            return -1;
+        }
+
+        int skip = random.nextInt(empty);
+        for (int col = 0; col < board.length; col++) {
+            for (int row = 0; row < board[col].length; row++) {
+                if (board[col][row] == 0 && skip-- == 0) {
+                    return row * board.length + col;
+                }
+            }
+        }
+        return -1;
+    }
+}
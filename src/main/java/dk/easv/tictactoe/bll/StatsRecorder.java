@@ -0,0 +1,69 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.dal.PlayerStats;
+import dk.easv.tictactoe.dal.PlayerStatsStore;
+
+/**
+ * Listener that records the result of every finished game for both players in a PlayerStatsStore.
+ * Add it to a board with addGameListener; recording only updates memory and queues a write,
+ * so it is safe on the FX thread. Games that are reset before they end are not recorded.
+ */
+public class StatsRecorder implements IGameListener {
+
+    private final PlayerStatsStore store;
+    private volatile String player1;
+    private volatile String player2;
+    private long aiThinkNanos; // over the AI moves of the current game
+    private int aiMoves;
+
+    /**
+     * @param store where to record, may be shared by many recorders
+     * @param player1 name of the player who plays X
+     * @param player2 name of the player who plays O
+     */
+    public StatsRecorder(PlayerStatsStore store, String player1, String player2) {
+        this.store = store;
+        setPlayers(player1, player2);
+    }
+
+    /**
+     * Changes who is playing, from the next recorded game on
+     */
+    public void setPlayers(String player1, String player2) {
+        this.player1 = player1;
+        this.player2 = player2;
+    }
+
+    public String getPlayer(int player) {
+        return player == 1 ? player1 : player2;
+    }
+
+    /**
+     * Adds the time the AI took for one of its moves in the current game
+     */
+    public void addAIMove(long thinkNanos) {
+        aiThinkNanos += thinkNanos;
+        aiMoves++;
+    }
+
+    @Override
+    public void onGameOver(int winner) {
+        store.record(player1, resultFor(1, winner), aiThinkNanos, aiMoves);
+        store.record(player2, resultFor(2, winner), aiThinkNanos, aiMoves);
+        aiThinkNanos = 0;
+        aiMoves = 0;
+    }
+
+    @Override
+    public void onNewGame() {
+        aiThinkNanos = 0;
+        aiMoves = 0;
+    }
+
+    private static PlayerStats.Result resultFor(int player, int winner) {
+        if (winner == -1) {
+            return PlayerStats.Result.DRAW;
+        }
+        return winner == player ? PlayerStats.Result.WIN : PlayerStats.Result.LOSS;
+    }
+}
@@ -0,0 +1,178 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Arrays;
+
+/**
+ * Evaluator that keeps a stone count per player for every k-cell window and updates it in
+ * O(windows through the cell) on makeMove and unmakeMove, so evaluate() never scans the board.
+ * Windows holding stones of one player only are counted by their number of stones, which gives
+ * open twos and threes, and a window one stone short of k is a threat on its empty cell.
+ * A player to move with a threat wins, and a player facing threats on two cells cannot block both.
+ * Keeps state for one search at a time, give every search its own instance.
+ */
+public class ThreatEvaluator implements IEvaluator {
+
+    /** Score of a position that is won in one or two moves, far below IterativeDeepeningSearch.WIN_SCORE */
+    public static final int THREAT_WIN_SCORE = 1_000_000;
+
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+    private static final int MAX_WEIGHT_STONES = 8; // keeps the total far below THREAT_WIN_SCORE
+
+    private int size;
+    private int winLength;
+    private int[][] windowCells; // cell indexes of every window
+    private int[][] windowsByCell; // windows through each cell
+    private int[] cells; // player on each cell
+    private int[][] stoneCounts; // [player][window]
+    private int[][] openWindows; // [player][stones], windows with only that player's stones
+    private int[][] threatsByCell; // [player][cell], threat windows completed by that cell
+    private int[] threatCells; // [player], cells that complete at least one threat
+
+    @Override
+    public void reset(KInARowBoard board) {
+        if (board.getSize() != size || board.getWinLength() != winLength) {
+            build(board.getSize(), board.getWinLength());
+        }
+        Arrays.fill(cells, 0);
+        for (int player = 1; player <= 2; player++) {
+            Arrays.fill(stoneCounts[player], 0);
+            Arrays.fill(openWindows[player], 0);
+            Arrays.fill(threatsByCell[player], 0);
+            threatCells[player] = 0;
+        }
+        for (int index = 0; index < cells.length; index++) {
+            int player = board.getCellAt(index);
+            if (player != 0) {
+                makeMove(index, player);
+            }
+        }
+    }
+
+    @Override
+    public void makeMove(int index, int player) {
+        int[] windows = windowsByCell[index];
+        for (int window : windows) {
+            count(window, -1);
+        }
+        cells[index] = player;
+        for (int window : windows) {
+            stoneCounts[player][window]++;
+            count(window, 1);
+        }
+    }
+
+    @Override
+    public void unmakeMove(int index, int player) {
+        int[] windows = windowsByCell[index];
+        for (int window : windows) {
+            count(window, -1);
+        }
+        cells[index] = 0;
+        for (int window : windows) {
+            stoneCounts[player][window]--;
+            count(window, 1);
+        }
+    }
+
+    /**
+     * Scores the position from the counters kept by makeMove and unmakeMove. The board is only
+     * read if reset() has not been called for it.
+     */
+    @Override
+    public int evaluate(KInARowBoard board, int player) {
+        if (board.getSize() != size || board.getWinLength() != winLength) {
+            reset(board);
+        }
+        int opponent = player == 1 ? 2 : 1;
+        int score = 0;
+        for (int stones = 1; stones < winLength; stones++) {
+            score += weight(stones) * (openWindows[player][stones] - openWindows[opponent][stones]);
+        }
+        // the open lines still rank lost positions, so a losing side keeps blocking
+        if (threatCells[player] > 0) {
+            return THREAT_WIN_SCORE + score; // completes a line now
+        }
+        if (threatCells[opponent] > 1) {
+            return -THREAT_WIN_SCORE / 2 + score; // can only block one of them
+        }
+        return score;
+    }
+
+    // adds (sign 1) or removes (sign -1) what a window contributes to the totals
+    private void count(int window, int sign) {
+        int own1 = stoneCounts[1][window];
+        int own2 = stoneCounts[2][window];
+        if (own1 > 0 && own2 == 0) {
+            countOpen(1, window, own1, sign);
+        } else if (own2 > 0 && own1 == 0) {
+            countOpen(2, window, own2, sign);
+        }
+    }
+
+    private void countOpen(int player, int window, int stones, int sign) {
+        openWindows[player][stones] += sign;
+        if (stones == winLength - 1) {
+            int cell = emptyCell(window);
+            int before = threatsByCell[player][cell];
+            threatsByCell[player][cell] = before + sign;
+            if (before == 0) {
+                threatCells[player]++;
+            } else if (before + sign == 0) {
+                threatCells[player]--;
+            }
+        }
+    }
+
+    private int emptyCell(int window) {
+        for (int cell : windowCells[window]) {
+            if (cells[cell] == 0) {
+                return cell;
+            }
+        }
+        throw new IllegalStateException("Window " + window + " is full");
+    }
+
+    private void build(int size, int winLength) {
+        this.size = size;
+        this.winLength = winLength;
+        int cellCount = size * size;
+        int[][] windows = new int[DIRECTIONS.length * cellCount][];
+        int[] perCell = new int[cellCount];
+        int count = 0;
+        for (int index = 0; index < cellCount; index++) {
+            for (int[] d : DIRECTIONS) {
+                int endCol = index % size + (winLength - 1) * d[0];
+                int endRow = index / size + (winLength - 1) * d[1];
+                if (endCol < 0 || endCol >= size || endRow < 0 || endRow >= size) {
+                    continue;
+                }
+                int[] window = new int[winLength];
+                for (int i = 0; i < winLength; i++) {
+                    window[i] = (index / size + i * d[1]) * size + index % size + i * d[0];
+                    perCell[window[i]]++;
+                }
+                windows[count++] = window;
+            }
+        }
+        windowCells = Arrays.copyOf(windows, count);
+        windowsByCell = new int[cellCount][];
+        for (int index = 0; index < cellCount; index++) {
+            windowsByCell[index] = new int[perCell[index]];
+            perCell[index] = 0;
+        }
+        for (int window = 0; window < count; window++) {
+            for (int cell : windowCells[window]) {
+                windowsByCell[cell][perCell[cell]++] = window;
+            }
+        }
+        cells = new int[cellCount];
+        stoneCounts = new int[3][count];
+        openWindows = new int[3][winLength + 1];
+        threatsByCell = new int[3][cellCount];
+        threatCells = new int[3];
+    }
+
+    private static int weight(int stones) {
+        return 1 << (2 * Math.min(stones, MAX_WEIGHT_STONES));
+    }
+}
@@ -0,0 +1,91 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.metrics.Metrics;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Cache of searched 3x3 positions, shared by any number of MinimaxAI instances and threads.
+ * Positions are keyed by BoardSymmetry.canonicalKey, so all symmetric variants share one entry.
+ * Scores are stored from the point of view of the player to move and relative to the position
+ * itself (a win in k plies is 10 - k), which makes them valid from any search depth.
+ */
+public class TranspositionTable {
+
+    static final int EXACT = 1;
+    static final int LOWER_BOUND = 2;
+    static final int UPPER_BOUND = 3;
+
+    static final int MISSING = 0;
+    private static final int SCORE_OFFSET = 32; // scores are in [-10, 10]
+    private static final int SCORE_BITS = 6;
+
+    private final AtomicIntegerArray entries = new AtomicIntegerArray(1 << (2 * BitboardGameBoard.CELLS));
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * Looks up a position
+     * @return the packed entry, or MISSING
+     */
+    int probe(int toMove, int opponent) {
+        int entry = entries.get(BoardSymmetry.canonicalKey(toMove, opponent));
+        if (entry == MISSING) {
+            misses.increment();
+            if (Metrics.ENABLED) {
+                Metrics.TRANSPOSITION_MISSES.increment();
+            }
+        } else {
+            hits.increment();
+            if (Metrics.ENABLED) {
+                Metrics.TRANSPOSITION_HITS.increment();
+            }
+        }
+        return entry;
+    }
+
+    void store(int toMove, int opponent, int score, int bound) {
+        entries.set(BoardSymmetry.canonicalKey(toMove, opponent), ((score + SCORE_OFFSET) | (bound << SCORE_BITS)));
+    }
+
+    static int scoreOf(int entry) {
+        return (entry & ((1 << SCORE_BITS) - 1)) - SCORE_OFFSET;
+    }
+
+    static int boundOf(int entry) {
+        return entry >>> SCORE_BITS;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Counts the positions currently stored
+     * @return number of filled entries
+     */
+    public int size() {
+        int size = 0;
+        for (int i = 0; i < entries.length(); i++) {
+            if (entries.get(i) != MISSING) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Removes all entries and resets the hit/miss counters
+     */
+    public void clear() {
+        for (int i = 0; i < entries.length(); i++) {
+            entries.set(i, MISSING);
+        }
+        hits.reset();
+        misses.reset();
+    }
+}
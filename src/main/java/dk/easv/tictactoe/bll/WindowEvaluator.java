@@ -0,0 +1,50 @@
+package dk.easv.tictactoe.bll;
+
+/**
+ * Evaluator that scans every k-cell window on the board. A window holding stones of only one
+ * player is still winnable for that player and scores 4^stones for them.
+ */
+public class WindowEvaluator implements IEvaluator {
+
+    private static final int[][] DIRECTIONS = {{1, 0}, {0, 1}, {1, 1}, {1, -1}};
+    private static final int MAX_WEIGHT_STONES = 8; // keeps the total far below WIN_SCORE
+
+    @Override
+    public int evaluate(KInARowBoard board, int player) {
+        int size = board.getSize();
+        int k = board.getWinLength();
+        int score = 0;
+
+        for (int col = 0; col < size; col++) {
+            for (int row = 0; row < size; row++) {
+                for (int[] direction : DIRECTIONS) {
+                    int endCol = col + (k - 1) * direction[0];
+                    int endRow = row + (k - 1) * direction[1];
+                    if (endCol < 0 || endCol >= size || endRow < 0 || endRow >= size) {
+                        continue;
+                    }
+                    int own = 0;
+                    int other = 0;
+                    for (int i = 0; i < k; i++) {
+                        int cell = board.getCell(col + i * direction[0], row + i * direction[1]);
+                        if (cell == player) {
+                            own++;
+                        } else if (cell != 0) {
+                            other++;
+                        }
+                    }
+                    if (other == 0 && own > 0) {
+                        score += weight(own);
+                    } else if (own == 0 && other > 0) {
+                        score -= weight(other);
+                    }
+                }
+            }
+        }
+        return score;
+    }
+
+    private static int weight(int stones) {
+        return 1 << (2 * Math.min(stones, MAX_WEIGHT_STONES));
+    }
+}
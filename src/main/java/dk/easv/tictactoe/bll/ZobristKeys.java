@@ -0,0 +1,38 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.SplittableRandom;
+
+/**
+ * Random keys for Zobrist hashing: one per player and cell, one that is toggled on every
+ * move, and the key of the empty board. The empty board is not 0, so no position's key is the
+ * empty-slot marker of the search tables. The keys are seeded by the board geometry, so every board of one size and win length,
+ * whatever its implementation, gives a position the same key.
+ */
+final class ZobristKeys {
+
+    private static final ZobristKeys CLASSIC = new ZobristKeys(3, 3);
+
+    final long[][] cells; // indexed [player][row * size + col], slot 0 unused
+    final long side;
+    final long empty;
+
+    private ZobristKeys(int size, int winLength) {
+        SplittableRandom random = new SplittableRandom(size * 31L + winLength);
+        int count = size * size;
+        cells = new long[3][count];
+        for (int player = 1; player <= 2; player++) {
+            for (int index = 0; index < count; index++) {
+                cells[player][index] = random.nextLong();
+            }
+        }
+        side = random.nextLong();
+        empty = random.nextLong() | 1L; // drawn last so the other keys stay as they were
+    }
+
+    /**
+     * Gets the keys of a board geometry, the classic 3x3 keys are created once and shared
+     */
+    static ZobristKeys of(int size, int winLength) {
+        return size == 3 && winLength == 3 ? CLASSIC : new ZobristKeys(size, winLength);
+    }
+}
@@ -0,0 +1,160 @@
+package dk.easv.tictactoe.dal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Streams the games of a record file written by GameRecordWriter, one at a time through a
+ * fixed buffer, so files of any size can be read without loading them. The reader is a cursor:
+ * next() moves to the following game and the getters describe the current one.
+ * <pre>
+ * try (GameRecordReader reader = new GameRecordReader(file)) {
+ *     while (reader.next()) {
+ *         for (int i = 0; i &lt; reader.getMoveCount(); i++) { ... reader.getMove(i) ... }
+ *     }
+ * }
+ * </pre>
+ * A game cut short at the end of the file, e.g. by a crash while writing, is skipped.
+ */
+public class GameRecordReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+    private final int[] moves = new int[GameRecordWriter.MAX_MOVES];
+    private int moveCount;
+    private int winner;
+    private boolean endOfFile;
+    private long bufferStart; // file position of the first byte in the buffer
+
+    /**
+     * @throws IOException if the file cannot be read or is not a game record file
+     */
+    public GameRecordReader(Path file) throws IOException {
+        channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            readFileHeader(channel, file);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        bufferStart = GameRecordWriter.FILE_HEADER_SIZE;
+        buffer.limit(0);
+    }
+
+    /**
+     * Moves to the next game
+     * @return false when there are no more complete games
+     */
+    public boolean next() throws IOException {
+        if (!fill(1)) {
+            return false;
+        }
+        int header = buffer.get(buffer.position()) & 0xFF;
+        int count = header & 0x0F;
+        int result = (header >>> GameRecordWriter.RESULT_SHIFT) & 0b11;
+        if (count > GameRecordWriter.MAX_MOVES || header >>> 6 != 0) {
+            throw new IOException("Corrupt game record header " + header);
+        }
+        if (!fill(1 + (count + 1) / 2)) {
+            return false;
+        }
+
+        buffer.get();
+        for (int i = 0; i < count; i += 2) {
+            int packed = buffer.get() & 0xFF;
+            moves[i] = packed & 0x0F;
+            if (i + 1 < count) {
+                moves[i + 1] = packed >>> 4;
+            }
+        }
+        moveCount = count;
+        winner = result == GameRecordWriter.DRAW ? -1 : result;
+        return true;
+    }
+
+    /**
+     * Gets the file position of the next game, to continue from with seek() later
+     */
+    public long getPosition() {
+        return bufferStart + buffer.position();
+    }
+
+    /**
+     * Continues reading at a position returned by getPosition()
+     */
+    public void seek(long position) throws IOException {
+        channel.position(position);
+        bufferStart = position;
+        endOfFile = false;
+        buffer.clear().limit(0);
+    }
+
+    /**
+     * Gets the number of moves of the current game
+     */
+    public int getMoveCount() {
+        return moveCount;
+    }
+
+    /**
+     * Gets a move of the current game
+     * @param i move number, starting at 0 for X's first move
+     * @return the cell index, row * 3 + col
+     */
+    public int getMove(int i) {
+        if (i < 0 || i >= moveCount) {
+            throw new IndexOutOfBoundsException("Move " + i + " of " + moveCount);
+        }
+        return moves[i];
+    }
+
+    /**
+     * Gets the result of the current game
+     * @return 1 or 2 for the winner, -1 for a draw, 0 if the game was not finished
+     */
+    public int getWinner() {
+        return winner;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    // makes at least count bytes available, returns false at the end of the file
+    private boolean fill(int count) throws IOException {
+        if (buffer.remaining() >= count) {
+            return true;
+        }
+        bufferStart += buffer.position();
+        buffer.compact();
+        while (!endOfFile && buffer.position() < count) {
+            if (channel.read(buffer) == -1) {
+                endOfFile = true;
+            }
+        }
+        buffer.flip();
+        return buffer.remaining() >= count;
+    }
+
+    static void readFileHeader(FileChannel channel, Path file) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(GameRecordWriter.FILE_HEADER_SIZE);
+        while (header.hasRemaining() && channel.read(header) != -1) {
+            // keep reading until the header is complete or the file ends
+        }
+        header.flip();
+        if (header.remaining() < GameRecordWriter.FILE_HEADER_SIZE || header.getInt() != GameRecordWriter.MAGIC) {
+            throw new IOException(file + " is not a game record file");
+        }
+        byte version = header.get();
+        if (version != GameRecordWriter.VERSION) {
+            throw new IOException(file + " has unsupported game record version " + version);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package dk.easv.tictactoe.dal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Appends finished 3x3 games to a game record file.
+ * <p>
+ * The file starts with the magic bytes "TTTR" and a version byte. Each game follows as one
+ * header byte, the number of moves in bits 0-3 and the result in bits 4-5 (1 or 2 for the
+ * winner, 3 for a draw, 0 for an unfinished game), and then the moves, a cell index
+ * (row * 3 + col) per 4 bits, two per byte with the first in the low nibble. X always moves first.
+ * A whole game takes at most six bytes.
+ * <p>
+ * Records are buffered and written on flush, close or when the buffer is full.
+ * Safe to share between threads.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x54545452; // "TTTR"
+    static final byte VERSION = 1;
+    static final int FILE_HEADER_SIZE = 5;
+    static final int MAX_MOVES = 9;
+    static final int MAX_RECORD_SIZE = 1 + (MAX_MOVES + 1) / 2;
+    static final int RESULT_SHIFT = 4;
+    static final int DRAW = 3;
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+
+    /**
+     * Opens a record file for appending, creating it if it does not exist
+     * @throws IOException if the file cannot be opened or is not a game record file
+     */
+    public GameRecordWriter(Path file) throws IOException {
+        if (Files.exists(file) && Files.size(file) > 0) {
+            try (FileChannel existing = FileChannel.open(file, StandardOpenOption.READ)) {
+                GameRecordReader.readFileHeader(existing, file);
+            }
+        }
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            buffer.putInt(MAGIC).put(VERSION);
+        }
+    }
+
+    /**
+     * Appends one game
+     * @param moves cell indexes (row * 3 + col) in the order they were played
+     * @param moveCount number of moves to take from the array
+     * @param winner 1 or 2, -1 for a draw, 0 for an unfinished game
+     * @throws IOException if a full buffer cannot be written
+     */
+    public synchronized void write(int[] moves, int moveCount, int winner) throws IOException {
+        if (moveCount < 0 || moveCount > MAX_MOVES) {
+            throw new IllegalArgumentException("A game has 0 to 9 moves, was " + moveCount);
+        }
+        if (buffer.remaining() < MAX_RECORD_SIZE) {
+            flush();
+        }
+        int result = winner == -1 ? DRAW : winner;
+        buffer.put((byte) (moveCount | (result << RESULT_SHIFT)));
+        for (int i = 0; i < moveCount; i += 2) {
+            int low = moves[i];
+            int high = i + 1 < moveCount ? moves[i + 1] : 0;
+            buffer.put((byte) (low | (high << 4)));
+        }
+    }
+
+    /**
+     * Writes buffered games to the file
+     */
+    public synchronized void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package dk.easv.tictactoe.dal;
+
+/**
+ * Results of one player, an immutable snapshot. A new snapshot is made for every game,
+ * so a reader never sees a half applied result.
+ */
+public final class PlayerStats {
+
+    /**
+     * Outcome of a game for the player it is recorded for
+     */
+    public enum Result {
+        WIN, DRAW, LOSS
+    }
+
+    private final String player;
+    private final long wins;
+    private final long draws;
+    private final long losses;
+    private final int streak;
+    private final int bestStreak;
+    private final long aiThinkNanos;
+    private final long aiMoves;
+
+    PlayerStats(String player, long wins, long draws, long losses, int streak, int bestStreak,
+            long aiThinkNanos, long aiMoves) {
+        this.player = player;
+        this.wins = wins;
+        this.draws = draws;
+        this.losses = losses;
+        this.streak = streak;
+        this.bestStreak = bestStreak;
+        this.aiThinkNanos = aiThinkNanos;
+        this.aiMoves = aiMoves;
+    }
+
+    /**
+     * Gets the stats of a player who has not played yet
+     */
+    public static PlayerStats empty(String player) {
+        return new PlayerStats(player, 0, 0, 0, 0, 0, 0, 0);
+    }
+
+    /**
+     * Adds one game
+     * @param aiThinkNanos time the AI spent on its moves in the game, 0 without an AI
+     * @param aiMoves number of moves the AI made in the game
+     */
+    PlayerStats with(Result result, long aiThinkNanos, int aiMoves) {
+        int nextStreak = switch (result) {
+            case WIN -> streak > 0 ? streak + 1 : 1;
+            case LOSS -> streak < 0 ? streak - 1 : -1;
+            case DRAW -> 0;
+        };
+        return new PlayerStats(player,
+                wins + (result == Result.WIN ? 1 : 0),
+                draws + (result == Result.DRAW ? 1 : 0),
+                losses + (result == Result.LOSS ? 1 : 0),
+                nextStreak, Math.max(bestStreak, nextStreak),
+                this.aiThinkNanos + aiThinkNanos, this.aiMoves + aiMoves);
+    }
+
+    public String getPlayer() {
+        return player;
+    }
+
+    public long getWins() {
+        return wins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getLosses() {
+        return losses;
+    }
+
+    public long getGames() {
+        return wins + draws + losses;
+    }
+
+    /**
+     * Gets the current streak
+     * @return the number of wins in a row if positive, losses in a row if negative, 0 after a draw
+     */
+    public int getStreak() {
+        return streak;
+    }
+
+    /**
+     * Gets the most wins in a row
+     */
+    public int getBestStreak() {
+        return bestStreak;
+    }
+
+    public long getAIThinkNanos() {
+        return aiThinkNanos;
+    }
+
+    public long getAIMoves() {
+        return aiMoves;
+    }
+
+    /**
+     * Gets the average time the AI took per move in this player's games
+     * @return milliseconds, 0 if the AI has not moved yet
+     */
+    public double getAverageAIThinkMillis() {
+        return aiMoves == 0 ? 0 : aiThinkNanos / 1e6 / aiMoves;
+    }
+
+    @Override
+    public String toString() {
+        return player + ": " + wins + " won, " + draws + " drawn, " + losses + " lost";
+    }
+}
@@ -0,0 +1,357 @@
+package dk.easv.tictactoe.dal;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Write-behind store of player statistics, backed by an append log.
+ * <p>
+ * record() updates the in-memory stats and queues the game; a background thread appends queued
+ * games to the log in batches, so recording never waits for the disk. Reads come from memory.
+ * Stats are kept for all time, loaded from the log, and for this session, since the store was opened.
+ * <p>
+ * The log starts with the magic bytes "TTTP" and a version byte. Each record is a type byte,
+ * the player name (DataOutput.writeUTF) and then either one game (result byte, AI think nanos,
+ * AI moves) or the totals of the player. When the log holds many more records than players it
+ * is compacted: the totals are written to a new file that replaces the log. A record cut short
+ * by a crash is dropped when the log is opened. Games queued but not yet written are lost on a
+ * crash, at most one flush interval's worth.
+ * <p>
+ * One process at a time may use a log, since compaction writes only the totals this process
+ * knows of. The store holds a lock on a {@code .lock} file next to the log while it is open.
+ */
+public class PlayerStatsStore implements Closeable {
+
+    public static final Duration DEFAULT_FLUSH_INTERVAL = Duration.ofSeconds(1);
+
+    static final int MAGIC = 0x54545450; // "TTTP"
+    static final byte VERSION = 1;
+    static final int FILE_HEADER_SIZE = 5;
+    static final byte GAME = 1;
+    static final byte TOTALS = 2;
+
+    private static final int BATCH_SIZE = 256; // queued games that trigger a flush before the interval is up
+    private static final int MIN_COMPACT_RECORDS = 1024;
+
+    private final Path file;
+    private final Map<String, PlayerStats> stats = new ConcurrentHashMap<>();
+    private final Map<String, PlayerStats> sessionStats = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Game> queue = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ScheduledExecutorService writer;
+
+    // owned by the writer, guarded by this
+    private final Map<String, PlayerStats> written = new HashMap<>(); // what the log holds, for compaction
+    private final List<Game> batch = new ArrayList<>(); // taken from the queue, not yet written
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    private final DataOutputStream out = new DataOutputStream(bytes);
+    private final FileChannel lockChannel; // holds the lock while the store is open
+    private FileChannel channel;
+    private long records;
+    private int compactions;
+    private volatile boolean closed;
+
+    public PlayerStatsStore(Path file) throws IOException {
+        this(file, DEFAULT_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Opens a stats log, creating it if it does not exist, and loads it into memory
+     * @param flushInterval longest time a recorded game waits before it is written
+     * @throws IOException if the file cannot be opened, is not a stats log or is in use by another store
+     */
+    public PlayerStatsStore(Path file, Duration flushInterval) throws IOException {
+        this.file = file;
+        lockChannel = FileChannel.open(file.resolveSibling(file.getFileName() + ".lock"),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        try {
+            FileLock lock = lockChannel.tryLock();
+            if (lock == null) {
+                throw new IOException(file + " is in use by another process");
+            }
+            load();
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            if (channel.size() == 0) {
+                channel.write(ByteBuffer.allocate(FILE_HEADER_SIZE).putInt(MAGIC).put(VERSION).flip());
+            }
+        } catch (IOException | OverlappingFileLockException e) {
+            if (channel != null) {
+                channel.close();
+            }
+            lockChannel.close(); // releases the lock
+            if (e instanceof OverlappingFileLockException) {
+                throw new IOException(file + " is already open in this process", e);
+            }
+            throw e;
+        }
+        stats.putAll(written);
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "stats-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, flushInterval.toMillis());
+        writer.scheduleWithFixedDelay(this::flushQuietly, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Records a finished game for a player. Returns at once, the game is written in the background.
+     * @param aiThinkNanos time the AI spent on its moves in the game, 0 without an AI
+     * @param aiMoves number of moves the AI made in the game
+     * @throws IllegalStateException if the store is closed
+     */
+    public void record(String player, PlayerStats.Result result, long aiThinkNanos, int aiMoves) {
+        if (closed) {
+            throw new IllegalStateException("Stats store is closed");
+        }
+        stats.compute(player, (name, old) -> (old == null ? PlayerStats.empty(name) : old).with(result, aiThinkNanos, aiMoves));
+        sessionStats.compute(player, (name, old) -> (old == null ? PlayerStats.empty(name) : old).with(result, aiThinkNanos, aiMoves));
+        queue.add(new Game(player, result, aiThinkNanos, aiMoves));
+        if (queued.incrementAndGet() == BATCH_SIZE) {
+            writer.execute(this::flushQuietly);
+        }
+    }
+
+    /**
+     * Gets the stats of a player over all sessions, including games not written yet
+     */
+    public PlayerStats getStats(String player) {
+        PlayerStats result = stats.get(player);
+        return result != null ? result : PlayerStats.empty(player);
+    }
+
+    /**
+     * Gets the stats of a player since the store was opened
+     */
+    public PlayerStats getSessionStats(String player) {
+        PlayerStats result = sessionStats.get(player);
+        return result != null ? result : PlayerStats.empty(player);
+    }
+
+    /**
+     * Gets the stats of every player, sorted by name
+     */
+    public Map<String, PlayerStats> getAllStats() {
+        return Collections.unmodifiableMap(new TreeMap<>(stats));
+    }
+
+    /**
+     * Gets the number of records in the log, which compaction brings down to one per player
+     */
+    public synchronized long getRecordCount() {
+        return records;
+    }
+
+    public synchronized int getCompactions() {
+        return compactions;
+    }
+
+    // games recorded but not written yet, for tests
+    synchronized int getPendingGames() {
+        return queued.get() + batch.size();
+    }
+
+    /**
+     * Writes every game recorded so far, and compacts the log if it has grown large.
+     * Called in the background, call it directly to make sure recent games are on disk.
+     * @throws IOException if the games cannot be written, they stay queued for the next try
+     */
+    public synchronized void flush() throws IOException {
+        if (channel == null) {
+            return;
+        }
+        for (Game game; (game = queue.poll()) != null; ) {
+            queued.decrementAndGet();
+            batch.add(game);
+        }
+        if (!batch.isEmpty()) {
+            bytes.reset();
+            for (Game game : batch) {
+                out.writeByte(GAME);
+                out.writeUTF(game.player);
+                out.writeByte(game.result.ordinal());
+                out.writeLong(game.aiThinkNanos);
+                out.writeInt(game.aiMoves);
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            long end = channel.size();
+            try {
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            } catch (IOException e) {
+                // drop what made it to disk, the whole batch is written again by the next flush
+                channel.truncate(end);
+                throw e;
+            }
+            for (Game game : batch) {
+                written.compute(game.player, (name, old) -> (old == null ? PlayerStats.empty(name) : old)
+                        .with(game.result, game.aiThinkNanos, game.aiMoves));
+            }
+            records += batch.size();
+            batch.clear();
+        }
+        if (records > Math.max(MIN_COMPACT_RECORDS, 2L * written.size())) {
+            compact();
+        }
+    }
+
+    /**
+     * Writes the remaining games and closes the log
+     * @throws IOException if the games cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        writer.shutdown();
+        try {
+            writer.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                channel.close();
+                channel = null;
+                lockChannel.close(); // releases the lock
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            // the games stay in the batch, the next flush tries again
+        }
+    }
+
+    // replaces the log by the totals of every player, through a temporary file so a crash keeps the old log
+    private void compact() throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        bytes.reset();
+        out.writeInt(MAGIC);
+        out.writeByte(VERSION);
+        for (PlayerStats player : written.values()) {
+            out.writeByte(TOTALS);
+            out.writeUTF(player.getPlayer());
+            out.writeLong(player.getWins());
+            out.writeLong(player.getDraws());
+            out.writeLong(player.getLosses());
+            out.writeInt(player.getStreak());
+            out.writeInt(player.getBestStreak());
+            out.writeLong(player.getAIThinkNanos());
+            out.writeLong(player.getAIMoves());
+        }
+        try (FileChannel compacted = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+            while (buffer.hasRemaining()) {
+                compacted.write(buffer);
+            }
+            compacted.force(true);
+        }
+        channel.close();
+        try {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            records = written.size();
+            compactions++;
+        } finally {
+            // the old log if the move failed
+            channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }
+    }
+
+    // reads the log into written. Reading stops at the first record that cannot be read, which is
+    // dropped with everything after it: that is how a record cut short by a crash looks.
+    private void load() throws IOException {
+        if (!Files.exists(file) || Files.size(file) == 0) {
+            return;
+        }
+        byte[] data = Files.readAllBytes(file);
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(data));
+        if (data.length < FILE_HEADER_SIZE || in.readInt() != MAGIC) {
+            throw new IOException(file + " is not a player stats file");
+        }
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new IOException(file + " has unsupported version " + version);
+        }
+        int complete = FILE_HEADER_SIZE;
+        try {
+            while (in.available() > 0) {
+                byte type = in.readByte();
+                String player = in.readUTF();
+                if (type == GAME) {
+                    int result = in.readByte();
+                    if (result < 0 || result >= PlayerStats.Result.values().length) {
+                        break;
+                    }
+                    long aiThinkNanos = in.readLong();
+                    int aiMoves = in.readInt();
+                    written.compute(player, (name, old) -> (old == null ? PlayerStats.empty(name) : old)
+                            .with(PlayerStats.Result.values()[result], aiThinkNanos, aiMoves));
+                } else if (type == TOTALS) {
+                    written.put(player, new PlayerStats(player, in.readLong(), in.readLong(), in.readLong(),
+                            in.readInt(), in.readInt(), in.readLong(), in.readLong()));
+                } else {
+                    break;
+                }
+                records++;
+                complete = data.length - in.available();
+            }
+        } catch (IOException e) {
+            // cut short, or a name that is not valid modified UTF-8
+        }
+        if (complete < data.length) {
+            // append after the last complete record
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(complete);
+            }
+        }
+    }
+
+    private static final class Game {
+        private final String player;
+        private final PlayerStats.Result result;
+        private final long aiThinkNanos;
+        private final int aiMoves;
+
+        Game(String player, PlayerStats.Result result, long aiThinkNanos, int aiMoves) {
+            this.player = player;
+            this.result = result;
+            this.aiThinkNanos = aiThinkNanos;
+            this.aiMoves = aiMoves;
+        }
+    }
+}
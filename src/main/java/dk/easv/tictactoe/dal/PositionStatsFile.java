@@ -0,0 +1,168 @@
+package dk.easv.tictactoe.dal;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Memory-mapped table of position counters: a fixed number of slots of FIELDS longs each.
+ * The file is mapped once, so lookups and updates are plain memory accesses, and any number
+ * of processes can map it read-only and share the same pages. One process at a time may write.
+ * <p>
+ * Layout: a 64 byte header (magic "TTTS", version, slot count, field count, the byte offset
+ * of the game record file read so far and the number of games counted), then the slots.
+ */
+public class PositionStatsFile implements Closeable {
+
+    /** Games won by the player to move */
+    public static final int WINS = 0;
+    /** Games drawn */
+    public static final int DRAWS = 1;
+    /** Games lost by the player to move */
+    public static final int LOSSES = 2;
+    /** First of nine reply counters, one per cell */
+    public static final int REPLIES = 3;
+    public static final int FIELDS = REPLIES + 9;
+
+    private static final int MAGIC = 0x54545453; // "TTTS"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int SLOT_COUNT_OFFSET = 8;
+    private static final int FIELD_COUNT_OFFSET = 12;
+    private static final int RECORD_OFFSET_OFFSET = 16;
+    private static final int GAME_COUNT_OFFSET = 24;
+
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int slotCount;
+    private final boolean writable;
+
+    private PositionStatsFile(FileChannel channel, MappedByteBuffer buffer, int slotCount, boolean writable) {
+        this.channel = channel;
+        this.buffer = buffer;
+        this.slotCount = slotCount;
+        this.writable = writable;
+    }
+
+    /**
+     * Opens a stats file for reading and writing, creating an empty one if it does not exist
+     * @param slotCount number of slots, must match an existing file
+     * @throws IOException if the file cannot be mapped or does not match
+     */
+    public static PositionStatsFile open(Path file, int slotCount) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            boolean created = channel.size() == 0;
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize(slotCount));
+            if (created) {
+                buffer.putInt(0, MAGIC);
+                buffer.putInt(4, VERSION);
+                buffer.putInt(SLOT_COUNT_OFFSET, slotCount);
+                buffer.putInt(FIELD_COUNT_OFFSET, FIELDS);
+            }
+            checkHeader(buffer, file, slotCount);
+            return new PositionStatsFile(channel, buffer, slotCount, true);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Maps an existing stats file read-only
+     * @throws IOException if the file cannot be mapped or is not a stats file
+     */
+    public static PositionStatsFile openReadOnly(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException(file + " is not a position stats file");
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            int slotCount = header.getInt(SLOT_COUNT_OFFSET);
+            checkHeader(header, file, slotCount);
+            if (channel.size() < fileSize(slotCount)) {
+                throw new IOException(file + " is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, fileSize(slotCount));
+            return new PositionStatsFile(channel, buffer, slotCount, false);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public int getSlotCount() {
+        return slotCount;
+    }
+
+    public boolean isWritable() {
+        return writable;
+    }
+
+    public long get(int slot, int field) {
+        return buffer.getLong(offsetOf(slot, field));
+    }
+
+    public void add(int slot, int field, long delta) {
+        int offset = offsetOf(slot, field);
+        buffer.putLong(offset, buffer.getLong(offset) + delta);
+    }
+
+    /**
+     * Gets how far the game record file has been read, so the next update can continue there
+     */
+    public long getRecordOffset() {
+        return buffer.getLong(RECORD_OFFSET_OFFSET);
+    }
+
+    public void setRecordOffset(long offset) {
+        buffer.putLong(RECORD_OFFSET_OFFSET, offset);
+    }
+
+    public long getGameCount() {
+        return buffer.getLong(GAME_COUNT_OFFSET);
+    }
+
+    public void addGames(long games) {
+        buffer.putLong(GAME_COUNT_OFFSET, getGameCount() + games);
+    }
+
+    /**
+     * Writes changed pages to disk
+     */
+    public void force() {
+        if (writable) {
+            buffer.force();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        channel.close();
+    }
+
+    private int offsetOf(int slot, int field) {
+        if (slot < 0 || slot >= slotCount || field < 0 || field >= FIELDS) {
+            throw new IndexOutOfBoundsException("Slot " + slot + ", field " + field);
+        }
+        return HEADER_SIZE + (slot * FIELDS + field) * Long.BYTES;
+    }
+
+    private static long fileSize(int slotCount) {
+        return HEADER_SIZE + (long) slotCount * FIELDS * Long.BYTES;
+    }
+
+    private static void checkHeader(MappedByteBuffer buffer, Path file, int slotCount) throws IOException {
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException(file + " is not a position stats file");
+        }
+        if (buffer.getInt(SLOT_COUNT_OFFSET) != slotCount || buffer.getInt(FIELD_COUNT_OFFSET) != FIELDS) {
+            throw new IOException(file + " has a different layout");
+        }
+    }
+}
@@ -7,6 +7,8 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.stage.Stage;
+// Project imports
+import dk.easv.tictactoe.metrics.Metrics;
 
 /**
  *
@@ -43,6 +45,7 @@ public class TicTacToe extends Application
      */
     public static void main(String[] args)
     {
+        Metrics.start();
         launch(args);
     }
 }
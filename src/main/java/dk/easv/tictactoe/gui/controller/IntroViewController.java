@@ -1,5 +1,6 @@
 package dk.easv.tictactoe.gui.controller;
 
+import dk.easv.tictactoe.bll.AIDifficulty;
 import java.io.IOException;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -7,10 +8,20 @@ import javafx.fxml.FXMLLoader;
 import javafx.scene.Node;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
+import javafx.scene.control.ChoiceBox;
 import javafx.stage.Stage;
 
 public class IntroViewController {
 
+    @FXML
+    private ChoiceBox<AIDifficulty> choiceDifficulty;
+
+    @FXML
+    private void initialize() {
+        choiceDifficulty.getItems().setAll(AIDifficulty.values());
+        choiceDifficulty.setValue(AIDifficulty.MEDIUM);
+    }
+
     @FXML
     private void onBtnPlay1v1Click(ActionEvent event) {
         loadGameView(event, false);
@@ -35,6 +46,9 @@ public class IntroViewController {
 
             // Get the controller and set AI mode
             TicTacViewController controller = loader.getController();
+            if (aiMode) {
+                controller.setDifficulty(choiceDifficulty.getValue());
+            }
             controller.setAIMode(aiMode);
 
             Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
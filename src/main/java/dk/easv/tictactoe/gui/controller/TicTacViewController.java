@@ -1,7 +1,18 @@
 package dk.easv.tictactoe.gui.controller;
 // Java imports
+import java.io.IOException;
 import java.net.URL;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.ResourceBundle;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import javafx.application.Platform;
 import javafx.event.ActionEvent;
 import javafx.fxml.FXML;
@@ -11,15 +22,24 @@ import javafx.scene.control.Button;
 import javafx.scene.control.Label;
 import javafx.scene.layout.GridPane;
 // Project imports
+import dk.easv.tictactoe.bll.AIDifficulty;
+import dk.easv.tictactoe.bll.AIRegistry;
 import dk.easv.tictactoe.bll.GameBoard;
+import dk.easv.tictactoe.bll.GameRecorder;
 import dk.easv.tictactoe.bll.IGameBoard;
-import dk.easv.tictactoe.bll.MinimaxAI;
+import dk.easv.tictactoe.bll.IGameListener;
+import dk.easv.tictactoe.bll.PonderingAI;
+import dk.easv.tictactoe.bll.StatsRecorder;
+import dk.easv.tictactoe.dal.GameRecordWriter;
+import dk.easv.tictactoe.dal.PlayerStats;
+import dk.easv.tictactoe.dal.PlayerStatsStore;
+import dk.easv.tictactoe.metrics.Metrics;
 import javafx.stage.Stage;
 /**
  *
  * @author EASV
  */
-public class TicTacViewController implements Initializable
+public class TicTacViewController implements Initializable, IGameListener
 {
     @FXML
     private Label lblPlayer;
@@ -27,10 +47,41 @@ public class TicTacViewController implements Initializable
     private GridPane gridPane;
 
     private static final String TXT_PLAYER = "Player: ";
+    // set -Dtictactoe.gameRecords=<file> to append every finished game to a record file
+    private static final String GAME_RECORDS_PROPERTY = "tictactoe.gameRecords";
+    // set -Dtictactoe.playerStats=<file> to keep the player statistics somewhere else
+    private static final String PLAYER_STATS_PROPERTY = "tictactoe.playerStats";
+    private static final String PLAYER_STATS_FILE = ".tictactoe-stats"; // in the user's home directory
+    // shortest time between the human's move and the AI's reply, so the human's move is seen first
+    private static final long MIN_AI_MOVE_DELAY_MS = 250;
+    // shared by every game view; daemon threads so a pending search never keeps the app alive
+    private static final ScheduledExecutorService AI_EXECUTOR = Executors.newScheduledThreadPool(2, new ThreadFactory()
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r)
+        {
+            Thread thread = new Thread(r, "ai-worker-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
     private IGameBoard game;
-    private MinimaxAI ai;
+    private Button[][] buttons; // indexed [col][row], built once in initialize()
+    private final List<Button> changedButtons = new ArrayList<>(); // marked since the last reset
+    private PonderingAI ai;
+    private AIDifficulty difficulty = AIDifficulty.MEDIUM;
     private boolean aiMode = false;
     private boolean processingAIMove = false;
+    private volatile Future<?> pendingAIMove;
+    private volatile int aiMoveGeneration; // bumped on reset, stale AI results are dropped
+    private GameRecordWriter recordWriter;
+    // record files still open, closed by one shutdown hook in case a window is closed without the exit button
+    private static final List<GameRecordWriter> OPEN_RECORD_WRITERS = new ArrayList<>();
+    private static boolean recordWritersHooked;
+    private static PlayerStatsStore statsStore; // shared by every game view, opened by the first one
+    private StatsRecorder statsRecorder;
 
     /**
      * Event handler for the grid buttons
@@ -43,28 +94,17 @@ public class TicTacViewController implements Initializable
         if (processingAIMove) {
             return;
         }
+        long clickedAt = Metrics.ENABLED ? System.nanoTime() : 0;
 
         try
         {
-            Integer row = GridPane.getRowIndex((Node) event.getSource());
-            Integer col = GridPane.getColumnIndex((Node) event.getSource());
-            int r = (row == null) ? 0 : row;
-            int c = (col == null) ? 0 : col;
-            int player = game.getNextPlayer();
+            int r = cellIndex(GridPane.getRowIndex((Node) event.getSource()));
+            int c = cellIndex(GridPane.getColumnIndex((Node) event.getSource()));
 
+            // the board reports the move back through onMovePlayed, which renders it
             if (game.play(c, r))
             {
-                Button btn = (Button) event.getSource();
-                String xOrO = player == 1 ? "X" : "O";
-                btn.setText(xOrO);
-
-                if (game.isGameOver())
-                {
-                    int winner = game.getWinner();
-                    displayWinner(winner);
-                    highlightWinningLine();
-                }
-                else
+                if (!game.isGameOver())
                 {
                     setPlayer();
 
@@ -74,6 +114,10 @@ public class TicTacViewController implements Initializable
                         makeAIMove();
                     }
                 }
+                if (Metrics.ENABLED)
+                {
+                    Metrics.UI_UPDATE_LATENCY.recordSince(clickedAt);
+                }
             }
         } catch (Exception e)
         {
@@ -82,7 +126,9 @@ public class TicTacViewController implements Initializable
     }
 
     /**
-     * Makes the AI move using minimax algorithm
+     * Makes the AI move with the engine of the chosen difficulty. The search runs on the shared AI
+     * executor and only its result is posted back to the FX thread. When the AI pondered the
+     * human's move the reply is already known and is only held back for MIN_AI_MOVE_DELAY_MS.
      */
     private void makeAIMove()
     {
@@ -95,58 +141,72 @@ public class TicTacViewController implements Initializable
                 "AI is calculating...",
                 "AI is planning..."
         };
+        lblPlayer.setText(thinkingMessages[(int)(Math.random() * thinkingMessages.length)]);
 
-        Platform.runLater(() -> {
-            lblPlayer.setText(thinkingMessages[(int)(Math.random() * thinkingMessages.length)]);
-        });
-
-        // Add delay so user can see their move and the thinking message
-        new Thread(() -> {
-            try {
-                // Random delay between 800-1500ms for more realistic thinking
-                Thread.sleep(800 + (long)(Math.random() * 700));
-
-                Platform.runLater(() -> {
-                    lblPlayer.setText("AI is making move...");
-                });
+        int[][] boardCopy = game.getBoardCopy();
+        int generation = aiMoveGeneration;
+        long requestedAt = System.nanoTime();
 
-                Thread.sleep(300);
+        pendingAIMove = AI_EXECUTOR.submit(() -> {
+            int[] move = ai.findBestMove(boardCopy);
+            long thinkNanos = System.nanoTime() - requestedAt;
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(thinkNanos);
+            pendingAIMove = AI_EXECUTOR.schedule(
+                    () -> Platform.runLater(() -> applyAIMove(move, generation, thinkNanos)),
+                    Math.max(0, MIN_AI_MOVE_DELAY_MS - elapsedMs), TimeUnit.MILLISECONDS);
+        });
+    }
 
-                Platform.runLater(() -> {
-                    int[][] boardCopy = ((GameBoard) game).getBoardCopy();
-                    int[] move = ai.findBestMove(boardCopy);
+    /**
+     * Plays the move found by the AI, unless the board was reset while it was thinking
+     */
+    private void applyAIMove(int[] move, int generation, long thinkNanos)
+    {
+        if (generation != aiMoveGeneration)
+        {
+            return;
+        }
 
-                    if (move[0] != -1 && move[1] != -1)
-                    {
-                        int player = game.getNextPlayer();
-                        if (game.play(move[0], move[1]))
-                        {
-                            Button btn = getButtonAt(move[0], move[1]);
-                            if (btn != null)
-                            {
-                                String xOrO = player == 1 ? "X" : "O";
-                                btn.setText(xOrO);
-                            }
-
-                            if (game.isGameOver())
-                            {
-                                int winner = game.getWinner();
-                                displayWinner(winner);
-                                highlightWinningLine();
-                            }
-                            else
-                            {
-                                setPlayer();
-                            }
-                        }
-                    }
-                    processingAIMove = false;
-                });
-            } catch (InterruptedException e) {
-                e.printStackTrace();
-                processingAIMove = false;
+        if (move[0] != -1 && move[1] != -1)
+        {
+            if (statsRecorder != null)
+            {
+                statsRecorder.addAIMove(thinkNanos);
             }
-        }).start();
+            if (game.play(move[0], move[1]))
+            {
+                if (!game.isGameOver())
+                {
+                    setPlayer();
+                    // search the AI's answers while the human is thinking
+                    ai.ponder(game.getBoardCopy(), game.getNextPlayer());
+                }
+                if (Metrics.ENABLED)
+                {
+                    // the AI's own time, without the MIN_AI_MOVE_DELAY_MS the reply is held back for
+                    Metrics.AI_MOVE_LATENCY.record(thinkNanos);
+                }
+            }
+        }
+        processingAIMove = false;
+        pendingAIMove = null;
+    }
+
+    /**
+     * Cancels an AI search that has not been played yet, and any pondering. A search
+     * that already finished is ignored because its generation no longer matches.
+     */
+    private void cancelPendingAIMove()
+    {
+        aiMoveGeneration++;
+        ai.cancel();
+        Future<?> pending = pendingAIMove;
+        if (pending != null)
+        {
+            pending.cancel(true);
+            pendingAIMove = null;
+        }
+        processingAIMove = false;
     }
 
     /**
@@ -157,14 +217,77 @@ public class TicTacViewController implements Initializable
     @FXML
     private void handleNewGame(ActionEvent event)
     {
+        cancelPendingAIMove();
         game.newGame();
         setPlayer();
-        clearBoard();
-        processingAIMove = false;
+        if (Metrics.ENABLED)
+        {
+            Metrics.GAMES_STARTED.increment();
+        }
 
         if (aiMode)
         {
             lblPlayer.setText("You are X - AI is O");
+            ai.ponder(game.getBoardCopy(), game.getNextPlayer());
+        }
+    }
+
+    /**
+     * Event handler for taking back a move. Against the AI the AI's reply is taken back with the
+     * human's move, so it is the human's turn again. A finished game is already counted in the
+     * statistics and cannot be taken back.
+     *
+     * @param event
+     */
+    @FXML
+    private void handleUndo(ActionEvent event)
+    {
+        if (game.isGameOver())
+        {
+            return;
+        }
+        cancelPendingAIMove();
+        boolean undone = game.undo();
+        while (undone && aiMode && game.getNextPlayer() != 1)
+        {
+            undone = game.undo();
+        }
+        setPlayer();
+        if (aiMode)
+        {
+            ai.ponder(game.getBoardCopy(), game.getNextPlayer());
+        }
+    }
+
+    /**
+     * Event handler for playing the moves taken back by undo again, up to the human's next turn
+     * against the AI. If the AI's reply was never played the AI is asked for one.
+     *
+     * @param event
+     */
+    @FXML
+    private void handleRedo(ActionEvent event)
+    {
+        if (processingAIMove || game.isGameOver() || !game.redo())
+        {
+            return;
+        }
+        boolean redone = true;
+        while (redone && aiMode && game.getNextPlayer() != 1 && !game.isGameOver())
+        {
+            redone = game.redo();
+        }
+        if (!game.isGameOver())
+        {
+            setPlayer();
+            if (aiMode && game.getNextPlayer() == 2)
+            {
+                makeAIMove();
+            }
+            else if (aiMode)
+            {
+                ai.ponder(game.getBoardCopy(), game.getNextPlayer());
+            }
         }
     }
 
@@ -183,10 +306,45 @@ public class TicTacViewController implements Initializable
     public void initialize(URL url, ResourceBundle rb)
     {
         game = new GameBoard();
-        ai = new MinimaxAI(2); // AI is player 2 (O)
+        indexButtons();
+        PlayerStatsStore store = openStatsStore();
+        if (store != null)
+        {
+            // added before this controller, so the stats shown at game over include that game
+            statsRecorder = new StatsRecorder(store, "Player 1", "Player 2");
+            game.addGameListener(statsRecorder);
+        }
+        game.addGameListener(this);
+        ai = new PonderingAI(AIRegistry.getDefault().create(difficulty, 2), AI_EXECUTOR); // AI is player 2 (O)
+        String recordFile = System.getProperty(GAME_RECORDS_PROPERTY);
+        if (recordFile != null)
+        {
+            try
+            {
+                recordWriter = new GameRecordWriter(Paths.get(recordFile));
+                game.addGameListener(new GameRecorder(recordWriter, true));
+                registerRecordWriter(recordWriter);
+            } catch (IOException e)
+            {
+                System.out.println(e.getMessage());
+            }
+        }
         setPlayer();
     }
 
+    /**
+     * Sets how strong the AI plays, replacing the current AI player
+     * Called by IntroViewController before the game starts
+     * @param difficulty The difficulty chosen by the user
+     */
+    public void setDifficulty(AIDifficulty difficulty)
+    {
+        cancelPendingAIMove();
+        this.difficulty = difficulty;
+        ai = new PonderingAI(AIRegistry.getDefault().create(difficulty, 2), AI_EXECUTOR);
+        setStatsPlayers();
+    }
+
     /**
      * Sets the AI mode for the game
      * Called by IntroViewController to configure the game mode
@@ -195,12 +353,18 @@ public class TicTacViewController implements Initializable
     public void setAIMode(boolean enabled)
     {
         this.aiMode = enabled;
+        cancelPendingAIMove();
+        setStatsPlayers();
         game.newGame();
-        clearBoard();
+        if (Metrics.ENABLED)
+        {
+            Metrics.GAMES_STARTED.increment();
+        }
 
         if (aiMode)
         {
             lblPlayer.setText("You are X - AI is O");
+            ai.ponder(game.getBoardCopy(), game.getNextPlayer());
         }
         else
         {
@@ -222,6 +386,50 @@ public class TicTacViewController implements Initializable
         }
     }
 
+    /**
+     * Renders a move accepted by the board, only the button of that cell changes
+     */
+    @Override
+    public void onMovePlayed(int player, int col, int row)
+    {
+        Button btn = buttons[col][row];
+        btn.setText(player == 1 ? "X" : "O");
+        changedButtons.add(btn);
+    }
+
+    @Override
+    public void onMoveUndone(int player, int col, int row)
+    {
+        Button btn = buttons[col][row];
+        btn.setText("");
+        changedButtons.remove(btn);
+    }
+
+    @Override
+    public void onGameOver(int winner)
+    {
+        displayWinner(winner);
+        highlightWinningLine();
+        if (Metrics.ENABLED)
+        {
+            Metrics.GAMES_FINISHED.increment();
+        }
+    }
+
+    /**
+     * Clears the buttons changed since the last reset, the rest are already empty
+     */
+    @Override
+    public void onNewGame()
+    {
+        for (Button btn : changedButtons)
+        {
+            btn.setText("");
+            btn.getStyleClass().remove("winning-button");
+        }
+        changedButtons.clear();
+    }
+
     // display the winner
     private void displayWinner(int winner)
     {
@@ -238,9 +446,56 @@ public class TicTacViewController implements Initializable
                 message = aiMode ? "AI Wins!" : "Player 2 Wins!";
                 break;
         }
+        if (statsRecorder != null)
+        {
+            // read from the store's memory, the game itself is written in the background
+            PlayerStats stats = statsStore.getStats(statsRecorder.getPlayer(aiMode || winner == -1 ? 1 : winner));
+            message += String.format(" %s: %dW %dD %dL", stats.getPlayer(), stats.getWins(), stats.getDraws(), stats.getLosses());
+        }
         lblPlayer.setText(message);
     }
 
+    // the human is player 1 against the AI, which is named after its difficulty
+    private void setStatsPlayers()
+    {
+        if (statsRecorder != null)
+        {
+            statsRecorder.setPlayers(aiMode ? "You" : "Player 1", aiMode ? "AI (" + difficulty.getDisplayName() + ")" : "Player 2");
+        }
+    }
+
+    /**
+     * Opens the player statistics once for the whole application. It is closed, writing the last
+     * games, when the JVM exits.
+     * @return the store, or null if it could not be opened
+     */
+    private static synchronized PlayerStatsStore openStatsStore()
+    {
+        if (statsStore == null)
+        {
+            String file = System.getProperty(PLAYER_STATS_PROPERTY);
+            Path path = file != null ? Paths.get(file) : Paths.get(System.getProperty("user.home"), PLAYER_STATS_FILE);
+            try
+            {
+                PlayerStatsStore store = new PlayerStatsStore(path);
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                    try
+                    {
+                        store.close();
+                    } catch (IOException e)
+                    {
+                        System.out.println(e.getMessage());
+                    }
+                }));
+                statsStore = store;
+            } catch (IOException e)
+            {
+                System.out.println(e.getMessage());
+            }
+        }
+        return statsStore;
+    }
+
     // highlight the winning line
     private void highlightWinningLine()
     {
@@ -249,49 +504,91 @@ public class TicTacViewController implements Initializable
         {
             for (int[] position : winningLine)
             {
-                int col = position[0];
-                int row = position[1];
-                Button btn = getButtonAt(col, row);
-                if (btn != null)
-                {
-                    btn.getStyleClass().add("winning-button");
-                }
+                buttons[position[0]][position[1]].getStyleClass().add("winning-button");
             }
         }
     }
 
-    // get button at specific grid position
-    private Button getButtonAt(int col, int row)
+    // map every grid cell to its button, so moves are rendered without searching the grid
+    private void indexButtons()
     {
+        int size = 0;
+        for (Node node : gridPane.getChildren())
+        {
+            size = Math.max(size, Math.max(cellIndex(GridPane.getColumnIndex(node)), cellIndex(GridPane.getRowIndex(node))) + 1);
+        }
+        buttons = new Button[size][size];
         for (Node node : gridPane.getChildren())
         {
-            Integer nodeCol = GridPane.getColumnIndex(node);
-            Integer nodeRow = GridPane.getRowIndex(node);
-            int c = (nodeCol == null) ? 0 : nodeCol;
-            int r = (nodeRow == null) ? 0 : nodeRow;
-            if (c == col && r == row && node instanceof Button)
+            if (node instanceof Button)
             {
-                return (Button) node;
+                buttons[cellIndex(GridPane.getColumnIndex(node))][cellIndex(GridPane.getRowIndex(node))] = (Button) node;
             }
         }
-        return null;
     }
 
-    // clear the board
-    private void clearBoard()
+    // GridPane leaves the index unset for column or row 0
+    private static int cellIndex(Integer index)
     {
-        for(Node n : gridPane.getChildren())
-        {
-            Button btn = (Button) n;
-            btn.setText("");
-            btn.getStyleClass().remove("winning-button");
-        }
+        return (index == null) ? 0 : index;
     }
 
     // close the window
     @FXML
     private void onBtnExitClick(ActionEvent event) {
+        cancelPendingAIMove();
+        closeRecordWriter();
         Stage stage = (Stage) ((Node) event.getSource()).getScene().getWindow();
         stage.close();
     }
+
+    /**
+     * Keeps a record file to be closed when the JVM exits. The hook is added once for the whole
+     * application and only holds the writers, so closed game views can be collected.
+     */
+    private static synchronized void registerRecordWriter(GameRecordWriter writer)
+    {
+        OPEN_RECORD_WRITERS.add(writer);
+        if (!recordWritersHooked)
+        {
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                for (GameRecordWriter open : takeRecordWriters())
+                {
+                    closeQuietly(open);
+                }
+            }));
+            recordWritersHooked = true;
+        }
+    }
+
+    private static synchronized List<GameRecordWriter> takeRecordWriters()
+    {
+        List<GameRecordWriter> writers = new ArrayList<>(OPEN_RECORD_WRITERS);
+        OPEN_RECORD_WRITERS.clear();
+        return writers;
+    }
+
+    private void closeRecordWriter()
+    {
+        if (recordWriter != null)
+        {
+            synchronized (TicTacViewController.class)
+            {
+                OPEN_RECORD_WRITERS.remove(recordWriter);
+            }
+            closeQuietly(recordWriter);
+        }
+    }
+
+    // closing twice is harmless, the second close has nothing left to write
+    private static void closeQuietly(GameRecordWriter writer)
+    {
+        try
+        {
+            writer.close();
+        } catch (IOException e)
+        {
+            System.out.println(e.getMessage());
+        }
+    }
 }
\ No newline at end of file
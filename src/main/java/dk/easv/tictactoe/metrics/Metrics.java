@@ -0,0 +1,100 @@
+package dk.easv.tictactoe.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+/**
+ * Process wide counters and latency histograms of the AI and the game loop.
+ * <p>
+ * Off unless the JVM is started with -Dtictactoe.metrics=true. ENABLED is a constant, so
+ * instrumented code guarded by {@code if (Metrics.ENABLED)} is compiled away when it is off.
+ * When on, start() registers the MetricsMXBean under dk.easv.tictactoe:type=Metrics and, with
+ * -Dtictactoe.metrics.csv=&lt;file&gt;, appends a line of CSV every
+ * tictactoe.metrics.interval seconds (10 by default), or logs the line to System.out without a file.
+ */
+public final class Metrics {
+
+    public static final boolean ENABLED = Boolean.getBoolean("tictactoe.metrics");
+
+    /** Calls of findBestMove and its variants on any AI */
+    public static final LongAdder AI_SEARCHES = new LongAdder();
+    /** Positions visited by AI searches, playouts for Monte Carlo searches */
+    public static final LongAdder AI_NODES = new LongAdder();
+    /** Wall clock time of each AI search */
+    public static final LatencyHistogram AI_SEARCH_TIME = new LatencyHistogram();
+    /** Positions visited per depth below the root, searches deeper than the array are counted in the last slot */
+    public static final AtomicLongArray NODES_BY_DEPTH = new AtomicLongArray(64);
+    public static final LongAdder TRANSPOSITION_HITS = new LongAdder();
+    public static final LongAdder TRANSPOSITION_MISSES = new LongAdder();
+    /** AI moves answered from a search run during the human's turn */
+    public static final LongAdder PONDER_HITS = new LongAdder();
+    /** AI moves searched after the human moved, because pondering had not covered that reply */
+    public static final LongAdder PONDER_MISSES = new LongAdder();
+    public static final LongAdder GAMES_STARTED = new LongAdder();
+    public static final LongAdder GAMES_FINISHED = new LongAdder();
+    /** From the AI being asked for a move to its reply being found, without the delay before it is shown */
+    public static final LatencyHistogram AI_MOVE_LATENCY = new LatencyHistogram();
+    /** From a click on the board to the move being shown */
+    public static final LatencyHistogram UI_UPDATE_LATENCY = new LatencyHistogram();
+
+    private static final String OBJECT_NAME = "dk.easv.tictactoe:type=Metrics";
+    private static MetricsReporter reporter;
+
+    private Metrics() {
+    }
+
+    /**
+     * Adds the per-depth node counts of a search
+     * @param nodesByDepth node counts indexed by depth, the array is not changed
+     */
+    public static void addNodesByDepth(long[] nodesByDepth) {
+        int last = NODES_BY_DEPTH.length() - 1;
+        for (int depth = 0; depth < nodesByDepth.length; depth++) {
+            if (nodesByDepth[depth] != 0) {
+                NODES_BY_DEPTH.addAndGet(Math.min(depth, last), nodesByDepth[depth]);
+            }
+        }
+    }
+
+    /**
+     * Records a finished AI search
+     * @param startNanos System.nanoTime() when the search started
+     * @param nodes positions visited
+     */
+    public static void recordSearch(long startNanos, long nodes) {
+        AI_SEARCH_TIME.recordSince(startNanos);
+        AI_SEARCHES.increment();
+        AI_NODES.add(nodes);
+    }
+
+    /**
+     * Gets the positions searched per second of search time, over the life of the process
+     */
+    public static long getNodesPerSecond() {
+        long nanos = AI_SEARCH_TIME.getTotalNanos();
+        return nanos == 0 ? 0 : (long) (AI_NODES.sum() * 1e9 / nanos);
+    }
+
+    /**
+     * Registers the MBean and starts the periodic dump. Does nothing when metrics are off
+     * or when already started.
+     */
+    public static synchronized void start() {
+        if (!ENABLED || reporter != null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsView(), new ObjectName(OBJECT_NAME));
+        } catch (JMException e) {
+            System.out.println("Metrics MBean not registered: " + e.getMessage());
+        }
+        String csv = System.getProperty("tictactoe.metrics.csv");
+        Duration interval = Duration.ofSeconds(Long.getLong("tictactoe.metrics.interval", 10));
+        reporter = new MetricsReporter(csv, interval);
+        reporter.start();
+    }
+}
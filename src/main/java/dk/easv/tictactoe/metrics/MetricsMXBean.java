@@ -0,0 +1,39 @@
+package dk.easv.tictactoe.metrics;
+
+/**
+ * Read-only JMX view of Metrics. Latencies are in microseconds.
+ */
+public interface MetricsMXBean {
+
+    long getAiSearches();
+
+    long getAiNodes();
+
+    long getNodesPerSecond();
+
+    long getSearchTimeP50Micros();
+
+    long getSearchTimeP99Micros();
+
+    long getSearchTimeMaxMicros();
+
+    long[] getNodesByDepth();
+
+    long getTranspositionHits();
+
+    long getTranspositionMisses();
+
+    long getPonderHits();
+
+    long getPonderMisses();
+
+    long getGamesStarted();
+
+    long getGamesFinished();
+
+    long getAiMoveLatencyP50Micros();
+
+    long getAiMoveLatencyP99Micros();
+
+    long getUiUpdateLatencyP99Micros();
+}
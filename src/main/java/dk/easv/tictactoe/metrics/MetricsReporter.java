@@ -0,0 +1,90 @@
+package dk.easv.tictactoe.metrics;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes a snapshot of the metrics MBean at a fixed interval, as CSV lines appended to a
+ * file or as log lines on System.out. Runs on a daemon thread.
+ */
+public class MetricsReporter {
+
+    static final String HEADER = "time,aiSearches,aiNodes,nodesPerSecond,searchP50us,searchP99us,searchMaxUs,"
+            + "transpositionHits,transpositionMisses,ponderHits,ponderMisses,gamesStarted,gamesFinished,aiMoveP50us,aiMoveP99us,uiUpdateP99us";
+
+    private final Path csvFile;
+    private final Duration interval;
+    private final MetricsMXBean view = new MetricsView();
+    private ScheduledExecutorService scheduler;
+    private boolean headerLogged;
+
+    /**
+     * @param csvFile file to append to, or null to log to System.out
+     * @param interval time between snapshots
+     */
+    public MetricsReporter(String csvFile, Duration interval) {
+        this.csvFile = csvFile == null ? null : Paths.get(csvFile);
+        this.interval = interval;
+    }
+
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "metrics-reporter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long period = Math.max(1, interval.toMillis());
+        scheduler.scheduleAtFixedRate(this::report, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Writes one snapshot now
+     */
+    public synchronized void report() {
+        String line = snapshot();
+        if (csvFile == null) {
+            if (!headerLogged) {
+                System.out.println("metrics " + HEADER);
+                headerLogged = true;
+            }
+            System.out.println("metrics " + line);
+            return;
+        }
+        try {
+            boolean header = !Files.exists(csvFile) || Files.size(csvFile) == 0;
+            String text = (header ? HEADER + System.lineSeparator() : "") + line + System.lineSeparator();
+            Files.write(csvFile, text.getBytes(StandardCharsets.UTF_8), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            System.out.println("Could not write metrics to " + csvFile + ": " + e.getMessage());
+        }
+    }
+
+    String snapshot() {
+        return Instant.now() + "," + view.getAiSearches() + "," + view.getAiNodes() + "," + view.getNodesPerSecond()
+                + "," + view.getSearchTimeP50Micros() + "," + view.getSearchTimeP99Micros() + "," + view.getSearchTimeMaxMicros()
+                + "," + view.getTranspositionHits() + "," + view.getTranspositionMisses()
+                + "," + view.getPonderHits() + "," + view.getPonderMisses()
+                + "," + view.getGamesStarted() + "," + view.getGamesFinished()
+                + "," + view.getAiMoveLatencyP50Micros() + "," + view.getAiMoveLatencyP99Micros()
+                + "," + view.getUiUpdateLatencyP99Micros();
+    }
+}
@@ -0,0 +1,96 @@
+package dk.easv.tictactoe.metrics;
+
+/**
+ * The MBean registered by Metrics.start()
+ */
+class MetricsView implements MetricsMXBean {
+
+    @Override
+    public long getAiSearches() {
+        return Metrics.AI_SEARCHES.sum();
+    }
+
+    @Override
+    public long getAiNodes() {
+        return Metrics.AI_NODES.sum();
+    }
+
+    @Override
+    public long getNodesPerSecond() {
+        return Metrics.getNodesPerSecond();
+    }
+
+    @Override
+    public long getSearchTimeP50Micros() {
+        return Metrics.AI_SEARCH_TIME.getPercentileNanos(0.5) / 1000;
+    }
+
+    @Override
+    public long getSearchTimeP99Micros() {
+        return Metrics.AI_SEARCH_TIME.getPercentileNanos(0.99) / 1000;
+    }
+
+    @Override
+    public long getSearchTimeMaxMicros() {
+        return Metrics.AI_SEARCH_TIME.getMaxNanos() / 1000;
+    }
+
+    @Override
+    public long[] getNodesByDepth() {
+        // trailing empty depths are left out
+        int length = Metrics.NODES_BY_DEPTH.length();
+        while (length > 0 && Metrics.NODES_BY_DEPTH.get(length - 1) == 0) {
+            length--;
+        }
+        long[] nodes = new long[length];
+        for (int depth = 0; depth < length; depth++) {
+            nodes[depth] = Metrics.NODES_BY_DEPTH.get(depth);
+        }
+        return nodes;
+    }
+
+    @Override
+    public long getTranspositionHits() {
+        return Metrics.TRANSPOSITION_HITS.sum();
+    }
+
+    @Override
+    public long getTranspositionMisses() {
+        return Metrics.TRANSPOSITION_MISSES.sum();
+    }
+
+    @Override
+    public long getPonderHits() {
+        return Metrics.PONDER_HITS.sum();
+    }
+
+    @Override
+    public long getPonderMisses() {
+        return Metrics.PONDER_MISSES.sum();
+    }
+
+    @Override
+    public long getGamesStarted() {
+        return Metrics.GAMES_STARTED.sum();
+    }
+
+    @Override
+    public long getGamesFinished() {
+        return Metrics.GAMES_FINISHED.sum();
+    }
+
+    @Override
+    public long getAiMoveLatencyP50Micros() {
+        return Metrics.AI_MOVE_LATENCY.getPercentileNanos(0.5) / 1000;
+    }
+
+    @Override
+    public long getAiMoveLatencyP99Micros() {
+        return Metrics.AI_MOVE_LATENCY.getPercentileNanos(0.99) / 1000;
+    }
+
+    @Override
+    public long getUiUpdateLatencyP99Micros() {
+        return Metrics.UI_UPDATE_LATENCY.getPercentileNanos(0.99) / 1000;
+    }
+}
@@ -0,0 +1,203 @@
+package dk.easv.tictactoe.server;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dk.easv.tictactoe.metrics.Metrics;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP front end for GameService on the JDK HttpServer, one virtual thread per request.
+ * <pre>
+ * POST   /games?ai=2           create a game, the AI plays X when ai=1
+ * GET    /games/{id}           get a game
+ * POST   /games/{id}/moves?cell=4   play a cell (row * 3 + col) and get the AI's reply
+ * DELETE /games/{id}           end a game
+ * GET    /games/{id}/events    watch a game as server-sent events, see SpectatorHub
+ * </pre>
+ * Games come back as {"id":..,"board":"X...O....","next":1,"ai":2,"winner":0},
+ * winner being 1 or 2, -1 for a draw and 0 while running. Idle games are evicted in the background.
+ */
+public class GameServer {
+
+    private static final String PATH = "/games";
+    private static final long HEARTBEAT_SECONDS = 15; // comment line sent to idle spectators
+
+    static {
+        // without TCP_NODELAY small responses wait for the client's delayed ACK, about 40 ms each;
+        // the JDK server reads this once, so it has to be set before the first HttpServer is created
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final HttpServer server;
+    private final GameService service;
+    private final ExecutorService requestExecutor;
+    private final ScheduledExecutorService evictor;
+    private final Duration idleTimeout;
+
+    /**
+     * @param port port to listen on, 0 for any free port
+     * @param capacity maximum number of concurrent games
+     * @param idleTimeout how long an untouched game is kept
+     */
+    public GameServer(int port, int capacity, Duration idleTimeout) throws IOException {
+        this.service = new GameService(new SessionStore(capacity));
+        this.idleTimeout = idleTimeout;
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.requestExecutor = Executors.newVirtualThreadPerTaskExecutor();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-evictor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server.setExecutor(requestExecutor);
+        server.createContext(PATH, this::handle);
+    }
+
+    public void start() {
+        server.start();
+        long period = Math.max(1, idleTimeout.toMillis() / 2);
+        evictor.scheduleAtFixedRate(() -> service.evictIdle(idleTimeout.toNanos()),
+                period, period, TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        evictor.shutdownNow();
+        server.stop(0);
+        requestExecutor.shutdownNow();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    public GameService getService() {
+        return service;
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try {
+            String[] parts = exchange.getRequestURI().getPath().substring(PATH.length()).split("/");
+            String method = exchange.getRequestMethod();
+            String query = exchange.getRequestURI().getQuery();
+
+            if (parts.length <= 1 && method.equals("POST")) {
+                long id = service.createGame(intParam(query, "ai", 2));
+                if (id == -1) {
+                    send(exchange, 503, "Server is full");
+                } else {
+                    sendGame(exchange, 201, id, service.getGame(id));
+                }
+            } else if (parts.length == 2 && method.equals("GET")) {
+                long id = Long.parseLong(parts[1]);
+                sendGame(exchange, 200, id, service.getGame(id));
+            } else if (parts.length == 2 && method.equals("DELETE")) {
+                boolean removed = service.endGame(Long.parseLong(parts[1]));
+                send(exchange, removed ? 204 : 404, removed ? null : "No such game");
+            } else if (parts.length == 3 && parts[2].equals("moves") && method.equals("POST")) {
+                long id = Long.parseLong(parts[1]);
+                sendGame(exchange, 200, id, service.playMove(id, intParam(query, "cell", -1)));
+            } else if (parts.length == 3 && parts[2].equals("events") && method.equals("GET")) {
+                stream(exchange, Long.parseLong(parts[1]));
+            } else {
+                send(exchange, 404, "Not found");
+            }
+        } catch (IllegalArgumentException e) {
+            // also covers NumberFormatException from a malformed id or parameter
+            send(exchange, 400, e.getMessage());
+        } catch (IllegalStateException e) {
+            send(exchange, 409, e.getMessage());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // runs on the request's own virtual thread until the game ends or the spectator goes away
+    private void stream(HttpExchange exchange, long id) throws IOException {
+        SpectatorHub.Subscription subscription = service.watch(id);
+        if (subscription == null) {
+            send(exchange, 404, "No such game");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.getResponseHeaders().set("Cache-Control", "no-cache");
+        exchange.sendResponseHeaders(200, 0);
+        try (OutputStream out = exchange.getResponseBody()) {
+            String batch = subscription.getSnapshot();
+            while (batch != null) {
+                if (batch.isEmpty()) {
+                    if (service.getSessions().peek(id) == 0) {
+                        service.getSpectators().close(id); // the game was evicted
+                    }
+                    batch = ":\n\n";
+                }
+                out.write(batch.getBytes(StandardCharsets.UTF_8));
+                out.flush();
+                batch = subscription.awaitBatch(HEARTBEAT_SECONDS, TimeUnit.SECONDS);
+            }
+        } catch (IOException e) {
+            // the spectator disconnected
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // the server is stopping
+        }
+    }
+
+    private static int intParam(String query, String name, int defaultValue) {
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                if (pair.startsWith(name + "=")) {
+                    return Integer.parseInt(pair.substring(name.length() + 1));
+                }
+            }
+        }
+        return defaultValue;
+    }
+
+    private static void sendGame(HttpExchange exchange, int status, long id, long state) throws IOException {
+        if (state == 0) {
+            send(exchange, 404, "No such game");
+            return;
+        }
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        send(exchange, status, "{\"id\":" + id
+                + ",\"board\":\"" + PackedGame.board(state)
+                + "\",\"next\":" + PackedGame.nextPlayer(state)
+                + ",\"ai\":" + PackedGame.aiPlayer(state)
+                + ",\"winner\":" + PackedGame.winner(state) + "}");
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Usage: GameServer [port] [capacity] [idle seconds]
+     */
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        int capacity = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Duration idle = Duration.ofSeconds(args.length > 2 ? Long.parseLong(args[2]) : 300);
+
+        Metrics.start();
+        GameServer server = new GameServer(port, capacity, idle);
+        server.start();
+        System.out.println("Serving up to " + capacity + " games on port " + server.getPort());
+    }
+}
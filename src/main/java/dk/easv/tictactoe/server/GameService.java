@@ -0,0 +1,169 @@
+package dk.easv.tictactoe.server;
+
+import dk.easv.tictactoe.bll.PerfectPlayAI;
+import dk.easv.tictactoe.metrics.Metrics;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Game rules and AI replies on top of a SessionStore. Safe to call from any number of threads.
+ * The AI plays perfectly, the same moves as MinimaxAI without its random mistakes,
+ * looked up from the precomputed table so a reply costs next to nothing.
+ * Moves of watched games are published to a SpectatorHub after they are stored.
+ */
+public class GameService {
+
+    private final SessionStore sessions;
+    private final SpectatorHub spectators = new SpectatorHub();
+    private final PerfectPlayAI ai = new PerfectPlayAI(1); // only the mask lookup is used, which works for both players
+
+    public GameService(SessionStore sessions) {
+        this.sessions = sessions;
+    }
+
+    public SessionStore getSessions() {
+        return sessions;
+    }
+
+    public SpectatorHub getSpectators() {
+        return spectators;
+    }
+
+    /**
+     * Starts a game, and plays the AI's opening move if the AI is X
+     * @param aiPlayer the AI's player id, 1 or 2
+     * @return the session id, or -1 if no more sessions fit
+     */
+    public long createGame(int aiPlayer) {
+        if (aiPlayer != 1 && aiPlayer != 2) {
+            throw new IllegalArgumentException("AI player must be 1 or 2, was " + aiPlayer);
+        }
+        long id = sessions.create(aiPlayer);
+        if (id != -1 && aiPlayer == 1) {
+            long state = sessions.get(id);
+            long next = playAI(state);
+            if (sessions.compareAndSet(id, state, next)) {
+                publish(id, state, next);
+            }
+        }
+        if (Metrics.ENABLED && id != -1) {
+            Metrics.GAMES_STARTED.increment();
+        }
+        return id;
+    }
+
+    /**
+     * @return the packed game state, or 0 if the session does not exist
+     */
+    public long getGame(long id) {
+        return sessions.get(id);
+    }
+
+    /**
+     * Plays the human's move followed by the AI's reply
+     * @param cell row * 3 + col
+     * @return the packed state after the reply, or 0 if the session does not exist
+     * @throws IllegalArgumentException if the cell is off the board
+     * @throws IllegalStateException if the game is over, it is not the human's turn or the cell is taken
+     */
+    public long playMove(long id, int cell) {
+        if (cell < 0 || cell >= 9) {
+            throw new IllegalArgumentException("Cell must be between 0 and 8, was " + cell);
+        }
+        while (true) {
+            long state = sessions.get(id);
+            if (state == 0) {
+                return 0;
+            }
+            if (PackedGame.winner(state) != 0) {
+                throw new IllegalStateException("Game is over");
+            }
+            if (PackedGame.nextPlayer(state) == PackedGame.aiPlayer(state)) {
+                throw new IllegalStateException("Not your turn");
+            }
+            if (!PackedGame.isEmpty(state, cell)) {
+                throw new IllegalStateException("Cell " + cell + " is taken");
+            }
+
+            long next = PackedGame.play(state, cell);
+            if (PackedGame.winner(next) == 0) {
+                next = playAI(next);
+            }
+            if (sessions.compareAndSet(id, state, next)) {
+                publish(id, state, next);
+                if (Metrics.ENABLED && PackedGame.winner(next) != 0) {
+                    Metrics.GAMES_FINISHED.increment();
+                }
+                return next;
+            }
+            // another request for the same game got in first, re-validate against its result
+        }
+    }
+
+    /**
+     * Ends a session
+     * @return false if the session did not exist
+     */
+    public boolean endGame(long id) {
+        spectators.close(id);
+        return sessions.remove(id);
+    }
+
+    /**
+     * Frees the games that have not been used for the given time and ends their spectator streams
+     * @return the number of evicted games
+     */
+    public int evictIdle(long idleNanos) {
+        return sessions.evictIdle(idleNanos, spectators::close);
+    }
+
+    /**
+     * Subscribes a spectator to a game. A game nobody was watching is replayed from the empty
+     * board, since the session only stores the stones and not the order they were played in.
+     * @return the subscription, or null if the session does not exist
+     */
+    public SpectatorHub.Subscription watch(long id) {
+        long state = sessions.get(id);
+        if (state == 0) {
+            return null;
+        }
+        SpectatorHub.Subscription subscription = spectators.open(id, 9).subscribe();
+        if (sessions.peek(id) == 0) {
+            // evicted or ended before the channel was opened, nothing else would close it
+            spectators.close(id);
+            return null;
+        }
+        // stones the channel already has are skipped, so racing with a move is harmless
+        publish(id, PackedGame.create(PackedGame.generation(state), PackedGame.aiPlayer(state)), state);
+        return subscription;
+    }
+
+    // publishes the stones added between two states, players alternating from the one to move
+    private void publish(long id, long before, long after) {
+        if (!spectators.isWatched(id)) {
+            return;
+        }
+        int player = PackedGame.nextPlayer(before);
+        int[] added = {0, PackedGame.mask(after, 1) & ~PackedGame.mask(before, 1),
+                PackedGame.mask(after, 2) & ~PackedGame.mask(before, 2)};
+        while (added[player] != 0) {
+            spectators.publishMove(id, player, Integer.numberOfTrailingZeros(added[player]));
+            added[player] &= added[player] - 1;
+            player = player == 1 ? 2 : 1;
+        }
+        int winner = PackedGame.winner(after);
+        if (winner != 0) {
+            spectators.publishGameOver(id, winner);
+            spectators.close(id);
+        }
+    }
+
+    private long playAI(long state) {
+        int toMove = PackedGame.nextPlayer(state);
+        int bestMoves = ai.findBestMoveMask(PackedGame.mask(state, toMove), PackedGame.mask(state, toMove == 1 ? 2 : 1));
+        // pick one of the equally good moves at random
+        for (int skip = ThreadLocalRandom.current().nextInt(Integer.bitCount(bestMoves)); skip > 0; skip--) {
+            bestMoves &= bestMoves - 1;
+        }
+        return PackedGame.play(state, Integer.numberOfTrailingZeros(bestMoves));
+    }
+}
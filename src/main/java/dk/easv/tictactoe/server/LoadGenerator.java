@@ -0,0 +1,156 @@
+package dk.easv.tictactoe.server;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Plays many games against a GameServer at once, each on its own virtual thread making random
+ * moves, and reports request latency percentiles.
+ * Without a URL it starts a server on a free local port and stops it afterwards.
+ */
+public class LoadGenerator {
+
+    private static final int MAX_REQUESTS_PER_GAME = 6; // create plus at most five moves
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final long[] latencies; // nanos per request
+    private final AtomicInteger requestCount = new AtomicInteger();
+    private final AtomicLong failures = new AtomicLong();
+
+    public LoadGenerator(String baseUrl, int games) {
+        this.baseUrl = baseUrl;
+        this.latencies = new long[games * MAX_REQUESTS_PER_GAME];
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Plays the games and prints the results
+     * @param games number of games to play
+     * @param concurrency how many games are running at the same time
+     */
+    public void run(int games, int concurrency) throws InterruptedException {
+        Semaphore running = new Semaphore(concurrency);
+        long start = System.nanoTime();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < games; i++) {
+                running.acquire();
+                executor.execute(() -> {
+                    try {
+                        playGame();
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        running.release();
+                    }
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+
+        int count = requestCount.get();
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("%,d games, %,d requests, %,d failed games in %d ms (%,.0f requests/s)%n",
+                games, count, failures.get(), elapsed / 1_000_000, count * 1e9 / Math.max(1, elapsed));
+        System.out.printf("latency us: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), percentile(sorted, 1.0));
+    }
+
+    // plays random moves as O until the game ends
+    private void playGame() throws IOException, InterruptedException {
+        String game = send("POST", baseUrl + "/games?ai=1");
+        String id = field(game, "id");
+        while (field(game, "winner").equals("0")) {
+            String board = field(game, "board");
+            int cell;
+            do {
+                cell = ThreadLocalRandom.current().nextInt(9);
+            } while (board.charAt(cell) != '.');
+            game = send("POST", baseUrl + "/games/" + id + "/moves?cell=" + cell);
+        }
+        client.send(HttpRequest.newBuilder(URI.create(baseUrl + "/games/" + id)).DELETE().build(),
+                HttpResponse.BodyHandlers.discarding());
+    }
+
+    private String send(String method, String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        long start = System.nanoTime();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        long latency = System.nanoTime() - start;
+        int n = requestCount.getAndIncrement();
+        if (n < latencies.length) {
+            latencies[n] = latency;
+        }
+        if (response.statusCode() >= 300) {
+            throw new IOException(method + " " + url + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    // reads a number or string value from the flat JSON the server returns
+    private static String field(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":") + name.length() + 3;
+        if (json.charAt(start) == '"') {
+            return json.substring(start + 1, json.indexOf('"', start + 1));
+        }
+        int end = start;
+        while (end < json.length() && json.charAt(end) != ',' && json.charAt(end) != '}') {
+            end++;
+        }
+        return json.substring(start, end);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000;
+    }
+
+    /**
+     * Usage: LoadGenerator [games] [concurrent games] [server url]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 10_000;
+
+        GameServer server = null;
+        String url;
+        if (args.length > 2) {
+            url = args[2];
+        } else {
+            server = new GameServer(0, concurrency * 2, Duration.ofMinutes(1));
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        try {
+            new LoadGenerator(url, games).run(games, concurrency);
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+}
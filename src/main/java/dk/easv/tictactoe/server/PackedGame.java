@@ -0,0 +1,77 @@
+package dk.easv.tictactoe.server;
+
+import dk.easv.tictactoe.bll.BitboardGameBoard;
+
+/**
+ * A whole game session packed into one long:
+ * bits 0-8 X stones, bits 9-17 O stones, bits 18-19 the AI's player id,
+ * bits 32-63 the session generation. Bit (row * 3 + col) is set for an occupied cell.
+ * A value of 0 means a free slot, live sessions always have a non-zero generation.
+ */
+final class PackedGame {
+
+    static final int FULL_MASK = 0b111_111_111;
+
+    private static final int O_SHIFT = 9;
+    private static final int AI_SHIFT = 18;
+    private static final int GENERATION_SHIFT = 32;
+
+    private PackedGame() {
+    }
+
+    static long create(int generation, int aiPlayer) {
+        return ((long) generation << GENERATION_SHIFT) | ((long) aiPlayer << AI_SHIFT);
+    }
+
+    static int generation(long state) {
+        return (int) (state >>> GENERATION_SHIFT);
+    }
+
+    static int aiPlayer(long state) {
+        return (int) (state >>> AI_SHIFT) & 0b11;
+    }
+
+    static int mask(long state, int player) {
+        return (int) (state >>> (player == 1 ? 0 : O_SHIFT)) & FULL_MASK;
+    }
+
+    static int nextPlayer(long state) {
+        return Integer.bitCount(mask(state, 1)) == Integer.bitCount(mask(state, 2)) ? 1 : 2;
+    }
+
+    /**
+     * @return 1 or 2 for a winner, -1 for a draw, 0 while the game is running
+     */
+    static int winner(long state) {
+        if (BitboardGameBoard.hasWin(mask(state, 1))) {
+            return 1;
+        }
+        if (BitboardGameBoard.hasWin(mask(state, 2))) {
+            return 2;
+        }
+        return (mask(state, 1) | mask(state, 2)) == FULL_MASK ? -1 : 0;
+    }
+
+    static boolean isEmpty(long state, int cell) {
+        return ((mask(state, 1) | mask(state, 2)) & (1 << cell)) == 0;
+    }
+
+    /**
+     * Places the next player's stone, the caller checks that the cell is empty and the game running
+     */
+    static long play(long state, int cell) {
+        return state | (1L << (cell + (nextPlayer(state) == 1 ? 0 : O_SHIFT)));
+    }
+
+    /**
+     * Renders the board as nine characters, row by row: X, O or '.' for empty
+     */
+    static String board(long state) {
+        char[] cells = new char[9];
+        for (int cell = 0; cell < cells.length; cell++) {
+            int bit = 1 << cell;
+            cells[cell] = (mask(state, 1) & bit) != 0 ? 'X' : (mask(state, 2) & bit) != 0 ? 'O' : '.';
+        }
+        return new String(cells);
+    }
+}
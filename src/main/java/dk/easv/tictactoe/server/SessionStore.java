@@ -0,0 +1,175 @@
+package dk.easv.tictactoe.server;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongConsumer;
+
+/**
+ * Fixed capacity, lock-free store of game sessions, one packed long per game (see PackedGame).
+ * A session id is the slot index in the low 32 bits and the slot's generation in the high 32 bits,
+ * so an id stops working once its slot is freed and reused. Every update is a compare-and-set
+ * on the slot, which keeps concurrent requests for the same game consistent without locks.
+ */
+public class SessionStore {
+
+    private final AtomicLongArray states;
+    private final AtomicLongArray lastAccess; // System.nanoTime() of the last get or update per slot
+    private final AtomicInteger generations = new AtomicInteger();
+    private final AtomicInteger cursor = new AtomicInteger(); // where the next free slot search starts
+    private final AtomicInteger active = new AtomicInteger();
+
+    /**
+     * @param capacity maximum number of concurrent sessions
+     */
+    public SessionStore(int capacity) {
+        this.states = new AtomicLongArray(capacity);
+        this.lastAccess = new AtomicLongArray(capacity);
+    }
+
+    public int getCapacity() {
+        return states.length();
+    }
+
+    /**
+     * Gets the number of live sessions
+     */
+    public int size() {
+        return active.get();
+    }
+
+    /**
+     * Starts a new game in a free slot
+     * @param aiPlayer the AI's player id, 1 or 2
+     * @return the session id, or -1 if the store is full
+     */
+    public long create(int aiPlayer) {
+        if (active.incrementAndGet() > states.length()) {
+            active.decrementAndGet();
+            return -1;
+        }
+        int generation = nextGeneration();
+        long state = PackedGame.create(generation, aiPlayer);
+        // a slot is guaranteed to free up for us, since active was within capacity
+        while (true) {
+            int slot = Math.floorMod(cursor.getAndIncrement(), states.length());
+            // stamped before the state is published, or evictIdle could pair the new game with the
+            // previous occupant's time; on a lost race the stamp is left on a free slot, which is harmless
+            if (states.get(slot) != 0) {
+                continue;
+            }
+            lastAccess.set(slot, System.nanoTime());
+            if (states.compareAndSet(slot, 0, state)) {
+                return ((long) generation << 32) | slot;
+            }
+        }
+    }
+
+    /**
+     * Gets the state of a session and marks it as used
+     * @return the packed state, or 0 if the session does not exist or was evicted
+     */
+    public long get(long id) {
+        long state = peek(id);
+        if (state != 0) {
+            lastAccess.set(slotOf(id), System.nanoTime());
+        }
+        return state;
+    }
+
+    /**
+     * Gets the state of a session without marking it as used, so watching a game does not keep it alive
+     * @return the packed state, or 0 if the session does not exist or was evicted
+     */
+    public long peek(long id) {
+        int slot = slotOf(id);
+        if (slot == -1) {
+            return 0;
+        }
+        long state = states.get(slot);
+        if (state == 0 || PackedGame.generation(state) != generationOf(id)) {
+            return 0;
+        }
+        return state;
+    }
+
+    /**
+     * Replaces the state of a session if nobody changed it since it was read
+     * @return false if another update or an eviction got there first
+     */
+    public boolean compareAndSet(long id, long expected, long update) {
+        int slot = slotOf(id);
+        if (slot == -1 || expected == 0 || !states.compareAndSet(slot, expected, update)) {
+            return false;
+        }
+        lastAccess.set(slot, System.nanoTime());
+        return true;
+    }
+
+    /**
+     * Ends a session
+     * @return false if the session did not exist
+     */
+    public boolean remove(long id) {
+        while (true) {
+            long state = get(id);
+            if (state == 0) {
+                return false;
+            }
+            if (free(slotOf(id), state)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Frees every session that has not been used for the given time
+     * @return the number of evicted sessions
+     */
+    public int evictIdle(long idleNanos) {
+        return evictIdle(idleNanos, id -> { });
+    }
+
+    /**
+     * Frees every session that has not been used for the given time
+     * @param onEvicted called with the id of every evicted session, e.g. to release what else it holds
+     * @return the number of evicted sessions
+     */
+    public int evictIdle(long idleNanos, LongConsumer onEvicted) {
+        long now = System.nanoTime();
+        int evicted = 0;
+        for (int slot = 0; slot < states.length(); slot++) {
+            long state = states.get(slot);
+            if (state != 0 && now - lastAccess.get(slot) > idleNanos && free(slot, state)) {
+                onEvicted.accept((long) PackedGame.generation(state) << 32 | slot);
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    private boolean free(int slot, long state) {
+        if (states.compareAndSet(slot, state, 0)) {
+            active.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    private int slotOf(long id) {
+        int slot = (int) id;
+        return slot >= 0 && slot < states.length() ? slot : -1;
+    }
+
+    private static int generationOf(long id) {
+        return (int) (id >>> 32);
+    }
+
+    // generation 0 marks a free slot, so it is skipped when the counter wraps
+    private int nextGeneration() {
+        int generation;
+        do {
+            generation = generations.incrementAndGet();
+        } while (generation == 0);
+        return generation;
+    }
+}
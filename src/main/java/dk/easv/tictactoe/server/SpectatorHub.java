@@ -0,0 +1,331 @@
+package dk.easv.tictactoe.server;
+
+import dk.easv.tictactoe.bll.IGameListener;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Fans the moves of live games out to any number of spectators as server-sent events.
+ * Every watched game has a channel holding its board and a log of compact events since the
+ * board was last cleared.
+ * Publishing appends to the log and wakes the waiting subscribers, it never writes to a socket,
+ * so a slow spectator cannot hold up the game. Each subscriber keeps its own cursor into the log
+ * and gets everything it has missed in one write, so a subscriber that falls behind is sent
+ * fewer, larger batches instead of queueing a write per event.
+ * <pre>
+ * event: board      data: X...O....   the board when subscribing, row by row
+ * event: move       data: X4          a stone on a cell (row * size + col)
+ * event: undo       data: 4           the stone on a cell was taken back
+ * event: new        data:             the board was cleared for a new game
+ * event: end        data: X           the winner, O, draw, or closed when the game went away
+ * </pre>
+ */
+public class SpectatorHub {
+
+    // an event is its type in the top byte and a value, move events add the player above the cell
+    private static final int MOVE = 1 << 24;
+    private static final int NEW_GAME = 2 << 24;
+    private static final int END = 3 << 24;
+    private static final int UNDO = 4 << 24;
+    private static final int PLAYER_SHIFT = 16;
+    private static final int VALUE_MASK = (1 << PLAYER_SHIFT) - 1;
+
+    private static final int INITIAL_EVENTS = 16;
+
+    private final ConcurrentHashMap<Long, Channel> channels = new ConcurrentHashMap<>();
+
+    /**
+     * Gets the number of games being watched
+     */
+    public int size() {
+        return channels.size();
+    }
+
+    /**
+     * Checks whether a game has a channel, so publishers can skip building events nobody reads
+     */
+    public boolean isWatched(long gameId) {
+        return !channels.isEmpty() && channels.containsKey(gameId);
+    }
+
+    /**
+     * Makes the moves of any IGameBoard watchable, e.g. a KInARowBoard played in the desktop app
+     * @param gameId the id spectators subscribe to
+     * @param size number of rows and columns of the board
+     * @return a listener to add to the board
+     */
+    public IGameListener listener(long gameId, int size) {
+        Channel channel = open(gameId, size * size);
+        return new IGameListener() {
+            @Override
+            public void onMovePlayed(int player, int col, int row) {
+                channel.move(player, row * size + col);
+            }
+
+            @Override
+            public void onMoveUndone(int player, int col, int row) {
+                channel.undo(row * size + col);
+            }
+
+            @Override
+            public void onGameOver(int winner) {
+                channel.gameOver(winner);
+            }
+
+            @Override
+            public void onNewGame() {
+                channel.newGame();
+            }
+        };
+    }
+
+    /**
+     * Publishes a move, a no-op if nobody has opened the game's channel
+     */
+    public void publishMove(long gameId, int player, int cell) {
+        Channel channel = channels.get(gameId);
+        if (channel != null) {
+            channel.move(player, cell);
+        }
+    }
+
+    /**
+     * Publishes the result of a game, the channel stays open
+     * @param winner 1 or 2, or -1 for a draw
+     */
+    public void publishGameOver(long gameId, int winner) {
+        Channel channel = channels.get(gameId);
+        if (channel != null) {
+            channel.gameOver(winner);
+        }
+    }
+
+    /**
+     * Removes a game's channel. Subscribers are sent what is left in the log, and their streams
+     * end with an end event if the log did not already report the result.
+     */
+    public void close(long gameId) {
+        Channel channel = channels.remove(gameId);
+        if (channel != null) {
+            channel.close();
+        }
+    }
+
+    /**
+     * Subscribes to a game's channel, opening it if needed
+     * @param cells number of cells on the game's board
+     */
+    public Subscription subscribe(long gameId, int cells) {
+        return open(gameId, cells).subscribe();
+    }
+
+    Channel open(long gameId, int cells) {
+        return channels.computeIfAbsent(gameId, id -> new Channel(cells));
+    }
+
+    /**
+     * A spectator's position in a channel. Used by one thread at a time.
+     */
+    public static final class Subscription {
+
+        private final Channel channel;
+        private final String snapshot;
+        private long cursor; // number of events the channel has logged that this subscriber has taken
+        private boolean finished;
+
+        private Subscription(Channel channel, String snapshot, long cursor) {
+            this.channel = channel;
+            this.snapshot = snapshot;
+            this.cursor = cursor;
+        }
+
+        /**
+         * Gets the board event for the position at the time of subscribing
+         */
+        public String getSnapshot() {
+            return snapshot;
+        }
+
+        /**
+         * Waits for events after the ones already taken and returns all of them at once
+         * @return the events as SSE text, "" if nothing happened before the timeout, or null
+         *         once the channel is closed and every event has been taken
+         */
+        public String awaitBatch(long timeout, TimeUnit unit) throws InterruptedException {
+            if (finished) {
+                return null;
+            }
+            int[] batch;
+            boolean closed;
+            channel.lock.lock();
+            try {
+                long nanos = unit.toNanos(timeout);
+                while (cursor == channel.firstEvent + channel.eventCount && !channel.closed && nanos > 0) {
+                    nanos = channel.changed.awaitNanos(nanos);
+                }
+                // events dropped by a new game are skipped, the new event that dropped them is kept
+                int from = (int) Math.max(0, cursor - channel.firstEvent);
+                batch = Arrays.copyOfRange(channel.events, from, channel.eventCount);
+                cursor = channel.firstEvent + channel.eventCount;
+                closed = channel.closed;
+            } finally {
+                channel.lock.unlock();
+            }
+
+            StringBuilder text = new StringBuilder(batch.length * 24);
+            boolean ended = false;
+            for (int event : batch) {
+                ended = appendEvent(text, event);
+            }
+            if (closed) {
+                finished = true;
+                if (!ended) {
+                    text.append("event: end\ndata: closed\n\n");
+                }
+            }
+            return text.toString();
+        }
+    }
+
+    // appends one event as SSE text, returns true if it was an end event
+    private static boolean appendEvent(StringBuilder text, int event) {
+        int type = event & 0xFF00_0000;
+        if (type == MOVE) {
+            text.append("event: move\ndata: ").append(symbol(event >>> PLAYER_SHIFT & 0xFF))
+                    .append(event & VALUE_MASK).append("\n\n");
+        } else if (type == NEW_GAME) {
+            text.append("event: new\ndata:\n\n");
+        } else if (type == UNDO) {
+            text.append("event: undo\ndata: ").append(event & VALUE_MASK).append("\n\n");
+        } else {
+            int winner = (event & VALUE_MASK) - 1;
+            text.append("event: end\ndata: ").append(winner == -1 ? "draw" : String.valueOf(symbol(winner))).append("\n\n");
+            return true;
+        }
+        return false;
+    }
+
+    private static char symbol(int player) {
+        return player == 1 ? 'X' : player == 2 ? 'O' : '.';
+    }
+
+    static final class Channel {
+
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition changed = lock.newCondition();
+        private final byte[] cells;
+        private int[] events = new int[INITIAL_EVENTS];
+        private int eventCount;
+        private long firstEvent; // number of events logged before events[0]
+        private boolean closed;
+
+        Channel(int cells) {
+            this.cells = new byte[cells];
+        }
+
+        /**
+         * Logs a stone. A cell that is already taken is skipped, so publishing the same move
+         * twice is harmless.
+         */
+        void move(int player, int cell) {
+            lock.lock();
+            try {
+                if (closed || cells[cell] != 0) {
+                    return;
+                }
+                cells[cell] = (byte) player;
+                append(MOVE | player << PLAYER_SHIFT | cell);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        /**
+         * Logs a stone taken back, an empty cell is skipped like a repeated move
+         */
+        void undo(int cell) {
+            lock.lock();
+            try {
+                if (closed || cells[cell] == 0) {
+                    return;
+                }
+                cells[cell] = 0;
+                append(UNDO | cell);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void gameOver(int winner) {
+            lock.lock();
+            try {
+                if (!closed) {
+                    append(END | (winner + 1));
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void newGame() {
+            lock.lock();
+            try {
+                if (!closed) {
+                    // the earlier events describe a board that is gone, so the log restarts
+                    Arrays.fill(cells, (byte) 0);
+                    firstEvent += eventCount;
+                    eventCount = 0;
+                    if (events.length > INITIAL_EVENTS) {
+                        events = new int[INITIAL_EVENTS];
+                    }
+                    append(NEW_GAME);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void close() {
+            lock.lock();
+            try {
+                closed = true;
+                changed.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        Subscription subscribe() {
+            lock.lock();
+            try {
+                StringBuilder board = new StringBuilder("event: board\ndata: ");
+                for (byte player : cells) {
+                    board.append(symbol(player));
+                }
+                return new Subscription(this, board.append("\n\n").toString(), firstEvent + eventCount);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        int getLoggedEvents() {
+            lock.lock();
+            try {
+                return eventCount;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void append(int event) {
+            if (eventCount == events.length) {
+                events = Arrays.copyOf(events, eventCount * 2);
+            }
+            events[eventCount++] = event;
+            changed.signalAll();
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package dk.easv.tictactoe.server;
+
+import com.sun.management.OperatingSystemMXBean;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.Socket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Watches games played against a GameServer with many spectators and reports how long moves
+ * take to reach them. Every game is played by a virtual thread making a random move at a fixed
+ * interval, and the spectators are spread evenly over the games. A move's delivery latency runs
+ * from just before the move request is sent until the spectator has read the event, so it
+ * includes the move request itself. Without a URL it starts a server of its own.
+ * The test is repeated for a number of rounds, the first ones mostly measure JIT warm-up.
+ */
+public class SpectatorLoadGenerator {
+
+    private static final int CELLS = 9;
+
+    private final HttpClient client;
+    private final String baseUrl;
+    private final int moveIntervalMillis;
+    private final AtomicLongArray sentAt; // nanoTime before the request that adds stone n, [game * 10 + n]
+    private final long[] latencies; // nanos per delivered move
+    private final AtomicInteger deliveries = new AtomicInteger();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * @param baseUrl the server, e.g. http://localhost:8080
+     * @param games number of games played at the same time
+     * @param subscribers number of spectators over all games
+     * @param moveIntervalMillis time between two moves of a game
+     */
+    public SpectatorLoadGenerator(String baseUrl, int games, int subscribers, int moveIntervalMillis) {
+        this.baseUrl = baseUrl;
+        this.moveIntervalMillis = moveIntervalMillis;
+        this.sentAt = new AtomicLongArray(games * (CELLS + 1));
+        this.latencies = new long[subscribers * CELLS];
+        this.client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+    }
+
+    /**
+     * Creates the games, connects the spectators, plays the games and prints the results
+     */
+    public void run(int games, int subscribers) throws IOException, InterruptedException {
+        String[] ids = new String[games];
+        for (int game = 0; game < games; game++) {
+            ids[game] = field(send("POST", baseUrl + "/games?ai=2"), "id");
+        }
+
+        CountDownLatch connected = new CountDownLatch(subscribers);
+        CountDownLatch done = new CountDownLatch(subscribers);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < subscribers; i++) {
+                int game = i % games;
+                executor.execute(() -> {
+                    try {
+                        watch(game, ids[game], connected);
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                    } finally {
+                        done.countDown();
+                    }
+                });
+            }
+            connected.await();
+
+            OperatingSystemMXBean os = (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+            long cpuStart = os.getProcessCpuTime();
+            long start = System.nanoTime();
+            for (int game = 0; game < games; game++) {
+                int g = game;
+                executor.execute(() -> {
+                    try {
+                        play(g, ids[g]);
+                    } catch (IOException | RuntimeException e) {
+                        failures.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+            if (!done.await(10, TimeUnit.MINUTES)) {
+                System.out.println("Timed out waiting for spectators");
+            }
+            long elapsed = System.nanoTime() - start;
+            double busyCores = (os.getProcessCpuTime() - cpuStart) / (double) Math.max(1, elapsed);
+            report(games, subscribers, elapsed, busyCores);
+            executor.shutdownNow();
+        }
+    }
+
+    private void report(int games, int subscribers, long elapsed, double busyCores) {
+        int count = Math.min(deliveries.get(), latencies.length);
+        long[] sorted = Arrays.copyOf(latencies, count);
+        Arrays.sort(sorted);
+        System.out.printf("%,d spectators on %,d games, %,d moves delivered, %,d failures in %d ms (%,.0f deliveries/s)%n",
+                subscribers, games, count, failures.get(), elapsed / 1_000_000, count * 1e9 / Math.max(1, elapsed));
+        System.out.printf("delivery latency us: p50 %d, p90 %d, p99 %d, p99.9 %d, max %d%n",
+                percentile(sorted, 0.50), percentile(sorted, 0.90), percentile(sorted, 0.99),
+                percentile(sorted, 0.999), percentile(sorted, 1.0));
+        // the clients run in the same process when the generator starts its own server
+        double coreSeconds = Math.max(0.001, busyCores * elapsed / 1e9);
+        System.out.printf("%.2f of %d cores busy, %,.0f deliveries per core second, %,.0f spectators per busy core%n",
+                busyCores, Runtime.getRuntime().availableProcessors(), count / coreSeconds,
+                subscribers / Math.max(0.01, busyCores));
+    }
+
+    // plays random moves as X until the game ends
+    private void play(int game, String id) throws IOException, InterruptedException {
+        String state = send("GET", baseUrl + "/games/" + id);
+        while (field(state, "winner").equals("0")) {
+            Thread.sleep(moveIntervalMillis);
+            String board = field(state, "board");
+            int stones = CELLS - (int) board.chars().filter(c -> c == '.').count();
+            int cell;
+            do {
+                cell = ThreadLocalRandom.current().nextInt(CELLS);
+            } while (board.charAt(cell) != '.');
+            long now = System.nanoTime();
+            sentAt.set(game * (CELLS + 1) + stones + 1, now); // our move
+            if (stones + 2 <= CELLS) {
+                sentAt.set(game * (CELLS + 1) + stones + 2, now); // the AI's reply
+            }
+            state = send("POST", baseUrl + "/games/" + id + "/moves?cell=" + cell);
+        }
+        send("DELETE", baseUrl + "/games/" + id);
+    }
+
+    // reads the event stream of a game until it ends, timing every move event. Spectators use a
+    // plain socket, which costs far less per connection than HttpClient and leaves the CPU to the server.
+    private void watch(int game, String id, CountDownLatch connected) throws IOException {
+        boolean counted = false;
+        URI uri = URI.create(baseUrl);
+        try (Socket socket = new Socket(uri.getHost(), uri.getPort())) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            out.write(("GET /games/" + id + "/events HTTP/1.1\r\nHost: " + uri.getHost() + "\r\n\r\n")
+                    .getBytes(StandardCharsets.US_ASCII));
+            out.flush();
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+            String status = in.readLine();
+            if (status == null || !status.contains(" 200 ")) {
+                throw new IOException("Watching game " + id + " failed with " + status);
+            }
+            int stones = 0;
+            String event = "";
+            String line;
+            while ((line = in.readLine()) != null) {
+                // header and chunk size lines are skipped, a batch is always sent as one chunk
+                if (line.startsWith("event: ")) {
+                    event = line.substring(7);
+                } else if (!line.startsWith("data: ")) {
+                    continue;
+                } else if (event.equals("board")) {
+                    stones = CELLS - (int) line.chars().filter(c -> c == '.').count();
+                    connected.countDown();
+                    counted = true;
+                } else if (event.equals("move")) {
+                    stones++;
+                    long latency = System.nanoTime() - sentAt.get(game * (CELLS + 1) + stones);
+                    int n = deliveries.getAndIncrement();
+                    if (n < latencies.length) {
+                        latencies[n] = latency;
+                    }
+                } else if (event.equals("end")) {
+                    break;
+                }
+            }
+        } finally {
+            if (!counted) {
+                connected.countDown(); // a spectator that failed to connect must not hold up the others
+            }
+        }
+    }
+
+    private String send(String method, String url) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() >= 300) {
+            throw new IOException(method + " " + url + " failed with " + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    // reads a number or string value from the flat JSON the server returns
+    private static String field(String json, String name) {
+        int start = json.indexOf("\"" + name + "\":") + name.length() + 3;
+        if (json.charAt(start) == '"') {
+            return json.substring(start + 1, json.indexOf('"', start + 1));
+        }
+        int end = start;
+        while (end < json.length() && json.charAt(end) != ',' && json.charAt(end) != '}') {
+            end++;
+        }
+        return json.substring(start, end);
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(0, index)] / 1000;
+    }
+
+    /**
+     * Usage: SpectatorLoadGenerator [spectators] [games] [move interval ms] [rounds] [server url]
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int subscribers = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int games = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int interval = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        int rounds = args.length > 3 ? Integer.parseInt(args[3]) : 3;
+
+        GameServer server = null;
+        String url;
+        if (args.length > 4) {
+            url = args[4];
+        } else {
+            server = new GameServer(0, games * 2, Duration.ofMinutes(1));
+            server.start();
+            url = "http://localhost:" + server.getPort();
+        }
+        try {
+            for (int round = 1; round <= rounds; round++) {
+                System.out.println("Round " + round + " of " + rounds);
+                new SpectatorLoadGenerator(url, games, subscribers, interval).run(games, subscribers);
+            }
+        } finally {
+            if (server != null) {
+                server.stop();
+            }
+        }
+    }
+}
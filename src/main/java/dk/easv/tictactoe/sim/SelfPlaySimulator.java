@@ -0,0 +1,153 @@
+package dk.easv.tictactoe.sim;
+
+import dk.easv.tictactoe.bll.AIRegistry;
+import dk.easv.tictactoe.bll.BitboardGameBoard;
+import dk.easv.tictactoe.bll.IAIPlayer;
+import dk.easv.tictactoe.bll.MctsAI;
+import dk.easv.tictactoe.bll.MinimaxAI;
+import dk.easv.tictactoe.metrics.Metrics;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntFunction;
+
+/**
+ * Plays AI players against each other without JavaFX, spread over all cores.
+ * Every worker thread creates its own pair of players, so each has its own random generator
+ * and search state, and reuses one board and one board buffer for all its games. Moves are
+ * asked for as cell indexes, so a warmed up game of allocation-free players allocates nothing.
+ */
+public class SelfPlaySimulator {
+
+    private static final int BATCH_SIZE = 4096; // games a worker claims at a time
+
+    private final IntFunction<IAIPlayer> player1Factory;
+    private final IntFunction<IAIPlayer> player2Factory;
+
+    /**
+     * @param player1Factory creates the player for X, called once per thread with the player id 1
+     * @param player2Factory creates the player for O, called once per thread with the player id 2
+     */
+    public SelfPlaySimulator(IntFunction<IAIPlayer> player1Factory, IntFunction<IAIPlayer> player2Factory) {
+        this.player1Factory = player1Factory;
+        this.player2Factory = player2Factory;
+    }
+
+    /**
+     * Plays games on every available core
+     */
+    public SimulationResult run(long games) {
+        return run(games, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Plays games on the given number of threads
+     * @param games total number of games
+     * @param threads worker threads
+     * @throws IllegalStateException if a player returns an illegal move
+     */
+    public SimulationResult run(long games, int threads) {
+        AtomicLong remaining = new AtomicLong(games);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        long start = System.nanoTime();
+        try {
+            List<Future<long[]>> workers = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                workers.add(executor.submit(() -> playBatches(remaining)));
+            }
+            long[] totals = new long[3];
+            for (Future<long[]> worker : workers) {
+                long[] counts = worker.get();
+                for (int i = 0; i < totals.length; i++) {
+                    totals[i] += counts[i];
+                }
+            }
+            return new SimulationResult(totals[1], totals[2], totals[0], Duration.ofNanos(System.nanoTime() - start));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Simulation interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Simulation failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    // returns {draws, player 1 wins, player 2 wins}
+    private long[] playBatches(AtomicLong remaining) {
+        IAIPlayer[] players = {null, player1Factory.apply(1), player2Factory.apply(2)};
+        BitboardGameBoard game = new BitboardGameBoard();
+        int[][] board = new int[3][3];
+        long[] counts = new long[3];
+
+        long claimed;
+        while ((claimed = claim(remaining)) > 0) {
+            for (long i = 0; i < claimed; i++) {
+                game.newGame();
+                while (!game.isGameOver()) {
+                    IAIPlayer player = players[game.getNextPlayer()];
+                    int move = player.findBestMoveIndex(game.getBoardCopy(board));
+                    if (move == -1 || !game.play(move % 3, move / 3)) {
+                        throw new IllegalStateException("Illegal move " + move + " by " + player);
+                    }
+                }
+                counts[Math.max(0, game.getWinner())]++;
+            }
+            if (Metrics.ENABLED) {
+                Metrics.GAMES_STARTED.add(claimed);
+                Metrics.GAMES_FINISHED.add(claimed);
+            }
+        }
+        return counts;
+    }
+
+    private static long claim(AtomicLong remaining) {
+        while (true) {
+            long left = remaining.get();
+            if (left <= 0) {
+                return 0;
+            }
+            long batch = Math.min(left, BATCH_SIZE);
+            if (remaining.compareAndSet(left, left - batch)) {
+                return batch;
+            }
+        }
+    }
+
+    /**
+     * Creates a player factory by name. minimax (with its default mistakes) and mcts (200 playouts)
+     * keep the players the simulator always used, so results stay comparable; any other name is
+     * an engine in the default AIRegistry, e.g. random, mcts-hard or perfect
+     * @throws IllegalArgumentException for an unknown name
+     */
+    public static IntFunction<IAIPlayer> playerFactory(String name) {
+        switch (name) {
+            case "minimax":
+                return MinimaxAI::new;
+            case "mcts":
+                return player -> new MctsAI(player, 200);
+            default:
+                return AIRegistry.getDefault().getEngine(name).getFactory();
+        }
+    }
+
+    /**
+     * Usage: SelfPlaySimulator [games] [player 1] [player 2] [threads]
+     */
+    public static void main(String[] args) {
+        long games = args.length > 0 ? Long.parseLong(args[0]) : 1_000_000;
+        String player1 = args.length > 1 ? args[1] : "random";
+        String player2 = args.length > 2 ? args[2] : "random";
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        Metrics.start();
+        SelfPlaySimulator simulator = new SelfPlaySimulator(playerFactory(player1), playerFactory(player2));
+        System.out.println(player1 + " vs " + player2 + " on " + threads + " threads");
+        System.out.println(simulator.run(games, threads));
+    }
+}
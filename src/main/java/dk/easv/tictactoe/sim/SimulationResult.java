@@ -0,0 +1,52 @@
+package dk.easv.tictactoe.sim;
+
+import java.time.Duration;
+
+/**
+ * Outcome counts of a batch of simulated games.
+ */
+public class SimulationResult {
+
+    private final long player1Wins;
+    private final long player2Wins;
+    private final long draws;
+    private final Duration elapsed;
+
+    public SimulationResult(long player1Wins, long player2Wins, long draws, Duration elapsed) {
+        this.player1Wins = player1Wins;
+        this.player2Wins = player2Wins;
+        this.draws = draws;
+        this.elapsed = elapsed;
+    }
+
+    public long getPlayer1Wins() {
+        return player1Wins;
+    }
+
+    public long getPlayer2Wins() {
+        return player2Wins;
+    }
+
+    public long getDraws() {
+        return draws;
+    }
+
+    public long getGames() {
+        return player1Wins + player2Wins + draws;
+    }
+
+    public Duration getElapsed() {
+        return elapsed;
+    }
+
+    public double getGamesPerSecond() {
+        long nanos = Math.max(1, elapsed.toNanos());
+        return getGames() * 1e9 / nanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%,d games in %d ms (%,.0f games/s): player 1 won %,d, player 2 won %,d, %,d draws",
+                getGames(), elapsed.toMillis(), getGamesPerSecond(), player1Wins, player2Wins, draws);
+    }
+}
@@ -0,0 +1,84 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.sim.SelfPlaySimulator;
+import dk.easv.tictactoe.sim.SimulationResult;
+import java.time.Duration;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class AIRegistryTest
+{
+
+    /**
+     * Every difficulty can be played, and the strongest one uses the precomputed table.
+     */
+    @Test
+    public void testEveryDifficultyPlays()
+    {
+        for (AIDifficulty difficulty : AIDifficulty.values())
+        {
+            IAIPlayer ai = AIRegistry.getDefault().create(difficulty, 2);
+            int[][] board = {{1, 0, 0}, {0, 0, 0}, {0, 0, 0}};
+
+            int move = ai.findBestMoveIndex(board);
+
+            assertEquals(0, board[move % 3][move / 3]);
+        }
+        assertTrue(AIRegistry.getDefault().create(AIDifficulty.PERFECT, 2) instanceof PerfectPlayAI);
+    }
+
+    /**
+     * Test of create method, of class AIRegistry.
+     * An engine that cannot run is skipped for the next cheapest one.
+     */
+    @Test
+    public void testCreateFallsBack()
+    {
+        AIRegistry instance = new AIRegistry();
+        instance.register(new AIEngine("broken", AIDifficulty.PERFECT, Duration.ofNanos(1), player ->
+        {
+            throw new IllegalStateException("missing");
+        }));
+        instance.register(new AIEngine("minimax", AIDifficulty.PERFECT, Duration.ofNanos(2), MinimaxAI::new));
+
+        assertTrue(instance.create(AIDifficulty.PERFECT, 1) instanceof MinimaxAI);
+        assertEquals("broken", instance.getEngines(AIDifficulty.PERFECT).get(0).getName());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testCreateWithoutEngine()
+    {
+        new AIRegistry().create(AIDifficulty.EASY, 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownEngine()
+    {
+        AIRegistry.getDefault().getEngine("deep-blue");
+    }
+
+    /**
+     * Higher difficulties lose less often against perfect play.
+     */
+    @Test
+    public void testDifficultiesGetStronger()
+    {
+        int previousLosses = Integer.MAX_VALUE;
+        for (AIDifficulty difficulty : AIDifficulty.values())
+        {
+            SelfPlaySimulator simulator = new SelfPlaySimulator(
+                    player -> AIRegistry.getDefault().create(difficulty, player), PerfectPlayAI::new);
+
+            SimulationResult result = simulator.run(1000, 1);
+
+            assertEquals(0, result.getPlayer1Wins());
+            assertTrue(difficulty.toString(), result.getPlayer2Wins() <= previousLosses);
+            previousLosses = (int) result.getPlayer2Wins();
+        }
+        assertEquals(0, previousLosses);
+    }
+}
@@ -0,0 +1,92 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class BatchEvaluatorTest
+{
+
+    /**
+     * Test of findBestMoveMasks method, of class BatchEvaluator.
+     * Every position has to get the same best moves as its own MinimaxAI search,
+     * while symmetric positions are only searched once.
+     */
+    @Test
+    public void testMatchesMinimaxAI()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            BatchEvaluator instance = new BatchEvaluator(pool);
+            for (int aiPlayer = 1; aiPlayer <= 2; aiPlayer++)
+            {
+                MinimaxAI expected = new MinimaxAI(aiPlayer);
+                List<int[][]> boards = MinimaxAITest.reachablePositions(aiPlayer);
+                int[] positions = new int[boards.size()];
+                for (int i = 0; i < positions.length; i++)
+                {
+                    positions[i] = BatchEvaluator.pack(boards.get(i), aiPlayer);
+                }
+
+                int[] result = instance.findBestMoveMasks(positions);
+
+                for (int i = 0; i < positions.length; i++)
+                {
+                    assertEquals(expected.findBestMoveMask(boards.get(i)), result[i]);
+                }
+            }
+            assertTrue(instance.getSearchCount() <= 765);
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test of findBestMoves method, of class BatchEvaluator.
+     * Repeated positions come from the cache.
+     */
+    @Test
+    public void testRepeatedBatchIsCached()
+    {
+        BatchEvaluator instance = new BatchEvaluator();
+        int center = 1 << 4;
+        int corner = 1;
+        int[] positions = {
+            BatchEvaluator.pack(0, center),
+            BatchEvaluator.pack(0, corner),
+            BatchEvaluator.pack(0, 1 << 8),
+            BatchEvaluator.pack(0, center)
+        };
+
+        int[] first = instance.findBestMoves(positions);
+        long searched = instance.getSearchCount();
+        int[] second = instance.findBestMoves(positions);
+
+        assertEquals(2, searched);
+        assertEquals(searched, instance.getSearchCount());
+        // the only answer to a corner opening is the center
+        assertEquals(4, first[1]);
+        assertEquals(4, second[2]);
+    }
+
+    /**
+     * Test of findBestMoves method, of class BatchEvaluator.
+     */
+    @Test
+    public void testFinishedGameHasNoMove()
+    {
+        BatchEvaluator instance = new BatchEvaluator();
+        int won = BatchEvaluator.pack(0b000_011_000, 0b000_000_111);
+        int full = BatchEvaluator.pack(0b011_100_110, 0b100_011_001);
+
+        assertArrayEquals(new int[]{-1, -1}, instance.findBestMoves(new int[]{won, full}));
+    }
+}
@@ -0,0 +1,216 @@
+package dk.easv.tictactoe.bll;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class BitboardGameBoardTest
+{
+
+    /**
+     * Test of play method, of class BitboardGameBoard.
+     */
+    @Test
+    public void testPlayAtTakenSpot()
+    {
+        BitboardGameBoard instance = new BitboardGameBoard();
+
+        assertTrue(instance.play(1, 1));
+        assertFalse(instance.play(1, 1));
+        assertEquals(2, instance.getNextPlayer());
+    }
+
+    /**
+     * Test of getWinner method, of class BitboardGameBoard.
+     */
+    @Test
+    public void testGetWinnerVertical()
+    {
+        BitboardGameBoard instance = new BitboardGameBoard();
+
+        instance.play(0, 0); //Player 1
+        instance.play(1, 0); //Player 2
+        instance.play(0, 1); //Player 1
+        instance.play(2, 0); //Player 2
+        instance.play(0, 2); //Player 1
+
+        assertTrue(instance.isGameOver());
+        assertEquals(1, instance.getWinner());
+        assertArrayEquals(new int[][]{{0, 0}, {0, 1}, {0, 2}}, instance.getWinningLine());
+    }
+
+    /**
+     * Test of getWinningLine method, of class BitboardGameBoard.
+     */
+    @Test
+    public void testGetWinningLineAntiDiagonal()
+    {
+        BitboardGameBoard instance = new BitboardGameBoard();
+
+        instance.play(0, 0); //Player 1
+        instance.play(2, 0); //Player 2
+        instance.play(1, 0); //Player 1
+        instance.play(1, 1); //Player 2
+        instance.play(2, 2); //Player 1
+        instance.play(0, 2); //Player 2
+
+        assertEquals(2, instance.getWinner());
+        assertArrayEquals(new int[][]{{2, 0}, {1, 1}, {0, 2}}, instance.getWinningLine());
+    }
+
+    /**
+     * Test of isGameOver method, of class BitboardGameBoard.
+     */
+    @Test
+    public void testDraw()
+    {
+        BitboardGameBoard instance = new BitboardGameBoard();
+        int[][] moves = {{0, 0}, {1, 1}, {2, 2}, {0, 1}, {2, 1}, {2, 0}, {0, 2}, {1, 2}, {1, 0}};
+
+        for (int[] move : moves)
+        {
+            assertTrue(instance.play(move[0], move[1]));
+        }
+
+        assertTrue(instance.isGameOver());
+        assertEquals(-1, instance.getWinner());
+        assertNull(instance.getWinningLine());
+    }
+
+    /**
+     * Plays the same random games on both boards and checks they agree.
+     */
+    @Test
+    public void testMatchesGameBoard()
+    {
+        java.util.Random random = new java.util.Random(42);
+        GameBoard expected = new GameBoard();
+        BitboardGameBoard instance = new BitboardGameBoard();
+        int[][] copy = new int[3][3];
+
+        for (int game = 0; game < 1000; game++)
+        {
+            expected.newGame();
+            instance.newGame();
+            while (!expected.isGameOver())
+            {
+                int col = random.nextInt(3);
+                int row = random.nextInt(3);
+                assertEquals(expected.play(col, row), instance.play(col, row));
+                assertEquals(expected.getNextPlayer(), instance.getNextPlayer());
+                assertArrayEquals(expected.getBoardCopy(), instance.getBoardCopy(copy));
+                assertEquals(expected.getHash(), instance.getHash());
+            }
+            assertTrue(instance.isGameOver());
+            assertEquals(expected.getWinner(), instance.getWinner());
+        }
+    }
+
+    /**
+     * Takes back and replays random moves on all three boards and checks they agree.
+     */
+    @Test
+    public void testUndoRedoMatchesOtherBoards()
+    {
+        java.util.Random random = new java.util.Random(7);
+        IGameBoard[] boards = {new GameBoard(), new BitboardGameBoard(), new KInARowBoard()};
+        int[] undone = new int[boards.length];
+        for (int i = 0; i < boards.length; i++)
+        {
+            int board = i;
+            boards[i].addGameListener(new IGameListener()
+            {
+                @Override
+                public void onMoveUndone(int player, int col, int row)
+                {
+                    undone[board]++;
+                }
+            });
+        }
+
+        for (int step = 0; step < 5000; step++)
+        {
+            int action = boards[0].isGameOver() ? -1 : random.nextInt(4);
+            int col = random.nextInt(3);
+            int row = random.nextInt(3);
+            boolean result = false;
+            for (int i = 0; i < boards.length; i++)
+            {
+                boolean played;
+                if (action == 0)
+                {
+                    played = boards[i].undo();
+                }
+                else if (action == 1)
+                {
+                    played = boards[i].redo();
+                }
+                else if (action == -1)
+                {
+                    boards[i].newGame();
+                    played = true;
+                }
+                else
+                {
+                    played = boards[i].play(col, row);
+                }
+                if (i == 0)
+                {
+                    result = played;
+                }
+                assertEquals(result, played);
+            }
+            for (IGameBoard board : boards)
+            {
+                assertArrayEquals(boards[0].getBoardCopy(), board.getBoardCopy());
+                assertEquals(boards[0].getNextPlayer(), board.getNextPlayer());
+                assertEquals(boards[0].isGameOver(), board.isGameOver());
+                assertEquals(boards[0].getWinner(), board.getWinner());
+                assertEquals(boards[0].getMoveCount(), board.getMoveCount());
+                assertEquals(boards[0].getHash(), board.getHash());
+            }
+        }
+        assertTrue(undone[0] > 0);
+        assertEquals(undone[0], undone[1]);
+        assertEquals(undone[0], undone[2]);
+    }
+
+    /**
+     * Test of unmakeMove method, of class BitboardGameBoard.
+     */
+    @Test
+    public void testUnmakeRestoresPosition()
+    {
+        BitboardGameBoard instance = new BitboardGameBoard();
+        long emptyHash = instance.getHash();
+        instance.makeMove(4);
+        instance.makeMove(0);
+        instance.makeMove(3);
+        instance.makeMove(1);
+        instance.makeMove(5);
+        assertTrue(instance.isGameOver());
+        assertEquals(1, instance.getWinner());
+
+        assertEquals(5, instance.unmakeMove());
+        assertFalse(instance.isGameOver());
+        assertNull(instance.getWinningLine());
+        assertEquals(1, instance.getNextPlayer());
+        for (int i = 0; i < 4; i++)
+        {
+            instance.unmakeMove();
+        }
+        assertEquals(0, instance.getMoveCount());
+        assertEquals(emptyHash, instance.getHash());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMakeMoveOnTakenCell()
+    {
+        BitboardGameBoard instance = new BitboardGameBoard();
+        instance.makeMove(4);
+        instance.makeMove(4);
+    }
+}
@@ -0,0 +1,180 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.dal.GameRecordReader;
+import dk.easv.tictactoe.dal.GameRecordWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class GameRecorderTest
+{
+
+    /**
+     * Finished games played on a GameBoard are recorded, abandoned ones are not.
+     */
+    @Test
+    public void testRecordsFinishedGames() throws IOException
+    {
+        Path file = Files.createTempFile("games", ".ttr");
+        Files.delete(file);
+        try
+        {
+            GameBoard game = new GameBoard();
+            try (GameRecordWriter writer = new GameRecordWriter(file))
+            {
+                game.addGameListener(new GameRecorder(writer));
+
+                // X wins the top row
+                game.play(0, 0);
+                game.play(0, 1);
+                game.play(1, 0);
+                game.play(1, 1);
+                game.play(2, 0);
+                game.newGame();
+
+                // abandoned
+                game.play(1, 1);
+                game.newGame();
+
+                // O wins the middle column
+                game.play(0, 0);
+                game.play(1, 0);
+                game.play(2, 2);
+                game.play(1, 1);
+                game.play(0, 2);
+                game.play(1, 2);
+            }
+
+            try (GameRecordReader reader = new GameRecordReader(file))
+            {
+                assertTrue(reader.next());
+                assertEquals(5, reader.getMoveCount());
+                assertEquals(1, reader.getWinner());
+                assertEquals(2, reader.getMove(4));
+
+                assertTrue(reader.next());
+                assertEquals(6, reader.getMoveCount());
+                assertEquals(2, reader.getWinner());
+                assertEquals(7, reader.getMove(5));
+
+                assertFalse(reader.next());
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Moves taken back with undo are left out of the record.
+     */
+    @Test
+    public void testUndoneMovesAreNotRecorded() throws IOException
+    {
+        Path file = Files.createTempFile("games", ".ttr");
+        Files.delete(file);
+        try
+        {
+            GameBoard game = new GameBoard();
+            try (GameRecordWriter writer = new GameRecordWriter(file))
+            {
+                game.addGameListener(new GameRecorder(writer));
+
+                game.play(2, 2);
+                game.play(1, 1);
+                game.undo();
+                game.undo();
+                // X wins the top row
+                game.play(0, 0);
+                game.play(0, 1);
+                game.play(1, 0);
+                game.play(1, 1);
+                game.play(2, 0);
+            }
+
+            try (GameRecordReader reader = new GameRecordReader(file))
+            {
+                assertTrue(reader.next());
+                assertEquals(5, reader.getMoveCount());
+                assertEquals(0, reader.getMove(0));
+                assertEquals(2, reader.getMove(4));
+            }
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * A game that cannot be written is dropped, and the listeners after the recorder still run.
+     */
+    @Test
+    public void testWriteFailureDropsGame() throws IOException
+    {
+        Path file = Files.createTempFile("games", ".ttr");
+        Files.delete(file);
+        try
+        {
+            GameRecordWriter writer = new GameRecordWriter(file);
+            writer.close();
+            GameRecorder recorder = new GameRecorder(writer, true);
+            int[] winners = new int[1];
+            BitboardGameBoard board = new BitboardGameBoard();
+            board.addGameListener(recorder);
+            board.addGameListener(new IGameListener()
+            {
+                @Override
+                public void onGameOver(int winner)
+                {
+                    winners[0] = winner;
+                }
+            });
+
+            // X wins the top row
+            board.play(0, 0);
+            board.play(0, 1);
+            board.play(1, 0);
+            board.play(1, 1);
+            assertTrue(board.play(2, 0));
+
+            assertEquals(1, winners[0]);
+            assertEquals(1, recorder.getDroppedGames());
+        }
+        finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    /**
+     * Test of removeGameListener method, of class BitboardGameBoard.
+     */
+    @Test
+    public void testRemovedListenerIsNotCalled()
+    {
+        int[] moves = new int[1];
+        IGameListener listener = new IGameListener()
+        {
+            @Override
+            public void onMovePlayed(int player, int col, int row)
+            {
+                moves[0]++;
+            }
+        };
+        BitboardGameBoard board = new BitboardGameBoard();
+        board.addGameListener(listener);
+        board.play(0, 0);
+        board.removeGameListener(listener);
+        board.play(1, 1);
+
+        assertEquals(1, moves[0]);
+    }
+}
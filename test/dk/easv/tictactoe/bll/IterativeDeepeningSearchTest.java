@@ -0,0 +1,68 @@
+package dk.easv.tictactoe.bll;
+
+import java.time.Duration;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class IterativeDeepeningSearchTest
+{
+
+    /**
+     * With enough time the search reaches the end of the 3x3 game and plays a perfect move.
+     */
+    @Test
+    public void testMatchesMinimaxOnClassicBoard()
+    {
+        MinimaxAI instance = new MinimaxAI(2);
+        for (int[][] board : MinimaxAITest.reachablePositions(2))
+        {
+            int bestMoves = instance.findBestMoveMask(board);
+            int[] move = instance.findBestMove(board, Duration.ofSeconds(5));
+
+            assertTrue((bestMoves & (1 << BitboardGameBoard.cellIndex(move[0], move[1]))) != 0);
+            assertTrue(instance.getLastSearchDepth() > 0);
+        }
+    }
+
+    /**
+     * Test of search method, of class IterativeDeepeningSearch.
+     */
+    @Test
+    public void testZeroBudgetStillReturnsMove()
+    {
+        IterativeDeepeningSearch instance = new IterativeDeepeningSearch(15, 5, new WindowEvaluator());
+        int[][] board = new int[15][15];
+        board[7][7] = 1;
+
+        int move = instance.search(board, 2, Duration.ZERO);
+
+        assertTrue(move >= 0 && move < 15 * 15);
+        assertNotEquals(7 * 15 + 7, move);
+    }
+
+    /**
+     * On 7x7 with four in a row an open three has to be blocked.
+     */
+    @Test
+    public void testBlocksOpenThree()
+    {
+        MinimaxAI instance = new MinimaxAI(2);
+        instance.setWinLength(4);
+        int[][] board = new int[7][7];
+        board[2][3] = 1;
+        board[3][3] = 1;
+        board[4][3] = 1;
+        board[3][2] = 2;
+        board[3][4] = 2;
+
+        int[] move = instance.findBestMove(board, Duration.ofMillis(500));
+
+        assertEquals(3, move[1]);
+        assertTrue(move[0] == 1 || move[0] == 5);
+        assertTrue(instance.getLastSearchDepth() >= 2);
+    }
+}
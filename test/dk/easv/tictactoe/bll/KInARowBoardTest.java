@@ -0,0 +1,225 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class KInARowBoardTest
+{
+
+    /**
+     * The 3x3 board with three in a row must play exactly like GameBoard.
+     */
+    @Test
+    public void testClassicBoardMatchesGameBoard()
+    {
+        Random random = new Random(7);
+        GameBoard expected = new GameBoard();
+        KInARowBoard instance = new KInARowBoard();
+
+        for (int game = 0; game < 1000; game++)
+        {
+            expected.newGame();
+            instance.newGame();
+            while (!expected.isGameOver())
+            {
+                int col = random.nextInt(3);
+                int row = random.nextInt(3);
+                assertEquals(expected.play(col, row), instance.play(col, row));
+                assertEquals(expected.getNextPlayer(), instance.getNextPlayer());
+            }
+            assertTrue(instance.isGameOver());
+            assertEquals(expected.getWinner(), instance.getWinner());
+            assertArrayEquals(expected.getBoardCopy(), instance.getBoardCopy());
+        }
+    }
+
+    /**
+     * Test of getWinningLine method, of class KInARowBoard.
+     */
+    @Test
+    public void testGomokuDiagonal()
+    {
+        KInARowBoard instance = new KInARowBoard(15, 5);
+
+        for (int i = 0; i < 4; i++)
+        {
+            instance.play(10 - i, 3 + i); //Player 1
+            instance.play(0, i);          //Player 2
+        }
+        assertFalse(instance.isGameOver());
+        instance.play(6, 7);              //Player 1
+
+        assertTrue(instance.isGameOver());
+        assertEquals(1, instance.getWinner());
+        assertArrayEquals(new int[][]{{6, 7}, {7, 6}, {8, 5}, {9, 4}, {10, 3}}, instance.getWinningLine());
+    }
+
+    /**
+     * Three in a row is not enough on a 4x4 board with four in a row.
+     */
+    @Test
+    public void testFourInARowNeedsFour()
+    {
+        KInARowBoard instance = new KInARowBoard(4, 4);
+
+        instance.play(0, 0); //Player 1
+        instance.play(0, 1); //Player 2
+        instance.play(1, 0); //Player 1
+        instance.play(1, 1); //Player 2
+        instance.play(2, 0); //Player 1
+        instance.play(2, 1); //Player 2
+        assertFalse(instance.isGameOver());
+
+        instance.play(3, 0); //Player 1
+        assertEquals(1, instance.getWinner());
+        assertEquals(16 - 7, instance.getEmptyCount());
+    }
+
+    /**
+     * Test of unmakeMove method, of class KInARowBoard.
+     */
+    @Test
+    public void testUndoWinningMove()
+    {
+        KInARowBoard instance = new KInARowBoard(3, 3);
+        instance.play(0, 0);
+        instance.play(0, 1);
+        instance.play(1, 0);
+        instance.play(1, 1);
+        instance.play(2, 0);
+        assertTrue(instance.isGameOver());
+
+        assertEquals(instance.indexOf(2, 0), instance.unmakeMove());
+
+        assertFalse(instance.isGameOver());
+        assertEquals(-1, instance.getWinner());
+        assertEquals(1, instance.getNextPlayer());
+        assertEquals(0, instance.getCell(2, 0));
+        assertEquals(5, instance.getEmptyCount());
+        assertEquals(instance.indexOf(1, 1), instance.getLastMove());
+    }
+
+    /**
+     * Test of undo and redo methods, of class KInARowBoard.
+     */
+    @Test
+    public void testRedoIsClearedByPlay()
+    {
+        KInARowBoard instance = new KInARowBoard(3, 3);
+        instance.play(1, 1);
+        instance.play(0, 0);
+        assertTrue(instance.undo());
+        assertEquals(2, instance.getNextPlayer());
+        assertEquals(0, instance.getCell(0, 0));
+
+        assertTrue(instance.redo());
+        assertEquals(2, instance.getCell(0, 0));
+        assertFalse(instance.redo());
+
+        assertTrue(instance.undo());
+        instance.play(2, 2);
+        assertFalse(instance.redo());
+        assertEquals(2, instance.getCell(2, 2));
+    }
+
+    /**
+     * The empty board's key is not 0, the empty-slot marker of the search tables.
+     */
+    @Test
+    public void testEmptyHashIsNotZero()
+    {
+        assertNotEquals(0L, new KInARowBoard(3, 3).getHash());
+        assertNotEquals(0L, new KInARowBoard(4, 3).getHash());
+        assertNotEquals(0L, new KInARowBoard(9, 5).getHash());
+        assertEquals(new KInARowBoard().getHash(), new GameBoard().getHash());
+        assertEquals(new KInARowBoard().getHash(), new BitboardGameBoard().getHash());
+    }
+
+    /**
+     * Test of getHash method, of class KInARowBoard.
+     * The key kept by makeMove and unmakeMove must match the key of the same position loaded
+     * from scratch, and taking every move back must restore the empty board.
+     */
+    @Test
+    public void testHashMatchesLoadedPosition()
+    {
+        Random random = new Random(7);
+        for (int game = 0; game < 20; game++)
+        {
+            KInARowBoard instance = new KInARowBoard(9, 5);
+            KInARowBoard loaded = new KInARowBoard(9, 5);
+            long emptyHash = instance.getHash();
+
+            while (!instance.isGameOver())
+            {
+                int index = random.nextInt(81);
+                if (instance.getCellAt(index) != 0)
+                {
+                    continue;
+                }
+                instance.makeMove(index);
+                if (!instance.isGameOver())
+                {
+                    loaded.load(instance.getBoardCopy(), instance.getNextPlayer());
+                    assertEquals(loaded.getHash(), instance.getHash());
+                }
+            }
+
+            while (instance.getMoveCount() > 0)
+            {
+                instance.unmakeMove();
+            }
+            assertEquals(emptyHash, instance.getHash());
+            assertEquals(81, instance.getEmptyCount());
+            assertEquals(1, instance.getNextPlayer());
+        }
+    }
+
+    /**
+     * Positions reached in a different move order share a key, the side to move does not.
+     */
+    @Test
+    public void testHashTranspositions()
+    {
+        KInARowBoard first = new KInARowBoard(5, 4);
+        KInARowBoard second = new KInARowBoard(5, 4);
+        first.makeMove(0);
+        first.makeMove(1);
+        first.makeMove(2);
+        second.makeMove(2);
+        second.makeMove(1);
+        second.makeMove(0);
+        assertEquals(first.getHash(), second.getHash());
+
+        first.makeMove(3);
+        assertNotEquals(first.getHash(), second.getHash());
+    }
+
+    /**
+     * Test of makeMove method, of class KInARowBoard.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testMakeMoveOnOccupiedCell()
+    {
+        KInARowBoard instance = new KInARowBoard(3, 3);
+        instance.makeMove(4);
+        instance.makeMove(4);
+    }
+
+    /**
+     * Test of unmakeMove method, of class KInARowBoard.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testUnmakeMoveWithEmptyStack()
+    {
+        KInARowBoard instance = new KInARowBoard(3, 3);
+        instance.makeMove(4);
+        instance.unmakeMove();
+        instance.unmakeMove();
+    }
+}
@@ -0,0 +1,81 @@
+package dk.easv.tictactoe.bll;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class MctsAITest
+{
+
+    /**
+     * Test of findBestMove method, of class MctsAI.
+     */
+    @Test
+    public void testTakesWinningMove()
+    {
+        MctsAI instance = new MctsAI(2, 2000);
+        int[][] board = new int[3][3];
+        board[0][0] = 1;
+        board[1][0] = 1;
+        board[0][1] = 2;
+        board[1][1] = 2;
+        board[2][2] = 1;
+
+        assertArrayEquals(new int[]{2, 1}, instance.findBestMove(board));
+        assertEquals(2000, instance.getLastPlayouts());
+    }
+
+    /**
+     * Test of findBestMove method, of class MctsAI.
+     */
+    @Test
+    public void testBlocksLoss()
+    {
+        MctsAI instance = new MctsAI(2, 5000);
+        int[][] board = new int[3][3];
+        board[0][0] = 1;
+        board[1][1] = 2;
+        board[2][0] = 1;
+
+        assertArrayEquals(new int[]{1, 0}, instance.findBestMove(board));
+    }
+
+    /**
+     * Playing out a game keeps the subtree below the opponent's reply.
+     */
+    @Test
+    public void testReusesTree()
+    {
+        MctsAI instance = new MctsAI(2, 5000);
+        int[][] board = new int[3][3];
+        board[1][1] = 1;
+
+        int[] move = instance.findBestMove(board);
+        board[move[0]][move[1]] = 2;
+        int col = board[0][2] == 0 ? 0 : 2;
+        board[col][2] = 1;
+        instance.findBestMove(board);
+
+        assertTrue(instance.getRootVisits() > 5000);
+    }
+
+    /**
+     * MCTS scales to boards minimax cannot finish.
+     */
+    @Test
+    public void testTimeBudgetOnLargeBoard()
+    {
+        MctsAI instance = new MctsAI(2, 5, 0);
+        instance.setTimeBudget(java.time.Duration.ofMillis(100));
+        int[][] board = new int[15][15];
+        board[7][7] = 1;
+
+        int[] move = instance.findBestMove(board);
+
+        assertEquals(0, board[move[0]][move[1]]);
+        assertTrue(instance.getLastPlayouts() > 0);
+    }
+}
@@ -0,0 +1,210 @@
+package dk.easv.tictactoe.bll;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ *
+ * @author EASV
+ */
+public class MinimaxAITest
+{
+
+    /**
+     * Test of findBestMoveMask method, of class MinimaxAI.
+     * Alpha-beta has to find exactly the same best moves as plain minimax.
+     */
+    @Test
+    public void testAlphaBetaMatchesMinimax()
+    {
+        for (int aiPlayer = 1; aiPlayer <= 2; aiPlayer++)
+        {
+            MinimaxAI minimax = new MinimaxAI(aiPlayer);
+            minimax.setSearchMode(MinimaxAI.SearchMode.MINIMAX);
+            MinimaxAI alphaBeta = new MinimaxAI(aiPlayer);
+            alphaBeta.setSearchMode(MinimaxAI.SearchMode.ALPHA_BETA);
+
+            for (int[][] board : reachablePositions(aiPlayer))
+            {
+                int expected = minimax.findBestMoveMask(board);
+                assertEquals(expected, alphaBeta.findBestMoveMask(board));
+                assertTrue(alphaBeta.getNodeCount() <= minimax.getNodeCount());
+            }
+        }
+    }
+
+    /**
+     * Test of findBestMoveMask method, of class MinimaxAI.
+     * The parallel root split has to find the same best moves as the sequential search.
+     */
+    @Test
+    public void testParallelMatchesAlphaBeta()
+    {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try
+        {
+            for (int aiPlayer = 1; aiPlayer <= 2; aiPlayer++)
+            {
+                MinimaxAI alphaBeta = new MinimaxAI(aiPlayer);
+                MinimaxAI parallel = new MinimaxAI(aiPlayer, new TranspositionTable());
+                parallel.setSearchMode(MinimaxAI.SearchMode.PARALLEL);
+                parallel.setPool(pool);
+
+                for (int[][] board : reachablePositions(aiPlayer))
+                {
+                    assertEquals(alphaBeta.findBestMoveMask(board), parallel.findBestMoveMask(board));
+                    assertEquals(alphaBeta.getBestScore(), parallel.getBestScore());
+                }
+            }
+        }
+        finally
+        {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Test of getNodeCount method, of class MinimaxAI.
+     */
+    @Test
+    public void testAlphaBetaPrunesEmptyBoard()
+    {
+        MinimaxAI minimax = new MinimaxAI(1);
+        minimax.setSearchMode(MinimaxAI.SearchMode.MINIMAX);
+        MinimaxAI alphaBeta = new MinimaxAI(1);
+
+        assertEquals(0b111_111_111, minimax.findBestMoveMask(new int[3][3]));
+        assertEquals(0b111_111_111, alphaBeta.findBestMoveMask(new int[3][3]));
+        assertTrue(alphaBeta.getNodeCount() * 10 < minimax.getNodeCount());
+    }
+
+    /**
+     * Test of findBestMoveMask method, of class MinimaxAI.
+     */
+    @Test
+    public void testTakesWinningMove()
+    {
+        MinimaxAI instance = new MinimaxAI(2);
+        int[][] board = new int[3][3];
+        board[0][0] = 1;
+        board[1][0] = 1;
+        board[0][1] = 2;
+        board[1][1] = 2;
+        board[2][2] = 1;
+
+        // O completes the middle row at (2, 1)
+        assertEquals(1 << 5, instance.findBestMoveMask(board));
+    }
+
+    /**
+     * Test of findBestMoveIndex method, of class MinimaxAI.
+     * Moves, with or without a mistake, always land on an empty cell.
+     */
+    @Test
+    public void testFindBestMoveIndexPlaysEmptyCell()
+    {
+        for (int aiPlayer = 1; aiPlayer <= 2; aiPlayer++)
+        {
+            MinimaxAI instance = new MinimaxAI(aiPlayer);
+            for (int[][] board : reachablePositions(aiPlayer))
+            {
+                int index = instance.findBestMoveIndex(board);
+                assertEquals(0, board[BitboardGameBoard.colOf(index)][BitboardGameBoard.rowOf(index)]);
+            }
+        }
+        assertEquals(-1, new MinimaxAI(1).findBestMoveIndex(new int[][]{{1, 2, 1}, {1, 2, 2}, {2, 1, 1}}));
+    }
+
+    /**
+     * Test of findBestMoveIndex method, of class MinimaxAI.
+     * A warmed up game loop on a reused board and buffer must not allocate.
+     */
+    @Test
+    public void testSearchDoesNotAllocate()
+    {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue(bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled());
+
+        IAIPlayer[] players = {null, new MinimaxAI(1), new MinimaxAI(2)};
+        GameBoard game = new GameBoard();
+        int[][] buffer = new int[3][3];
+        playGames(players, game, buffer, 100);
+
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        playGames(players, game, buffer, 100);
+        long allocated = threads.getThreadAllocatedBytes(threadId) - before;
+
+        assertEquals(0, allocated);
+    }
+
+    private static void playGames(IAIPlayer[] players, GameBoard game, int[][] buffer, int games)
+    {
+        for (int i = 0; i < games; i++)
+        {
+            game.newGame();
+            while (!game.isGameOver())
+            {
+                int index = players[game.getNextPlayer()].findBestMoveIndex(game.getBoardCopy(buffer));
+                game.play(BitboardGameBoard.colOf(index), BitboardGameBoard.rowOf(index));
+            }
+            game.getWinningLine();
+        }
+    }
+
+    /**
+     * Collects every non-terminal position reachable in play where aiPlayer is to move.
+     */
+    static List<int[][]> reachablePositions(int aiPlayer)
+    {
+        List<int[][]> positions = new ArrayList<>();
+        collect(new int[3][3], 1, aiPlayer, new HashSet<>(), positions);
+        return positions;
+    }
+
+    private static void collect(int[][] board, int player, int aiPlayer, Set<String> seen, List<int[][]> positions)
+    {
+        int x = 0;
+        int o = 0;
+        for (int col = 0; col < 3; col++)
+        {
+            for (int row = 0; row < 3; row++)
+            {
+                int bit = 1 << BitboardGameBoard.cellIndex(col, row);
+                if (board[col][row] == 1) x |= bit;
+                if (board[col][row] == 2) o |= bit;
+            }
+        }
+        if (BitboardGameBoard.hasWin(x) || BitboardGameBoard.hasWin(o) || (x | o) == 0b111_111_111
+                || !seen.add(Arrays.deepToString(board)))
+        {
+            return;
+        }
+        if (player == aiPlayer)
+        {
+            positions.add(new int[][]{board[0].clone(), board[1].clone(), board[2].clone()});
+        }
+        for (int col = 0; col < 3; col++)
+        {
+            for (int row = 0; row < 3; row++)
+            {
+                if (board[col][row] == 0)
+                {
+                    board[col][row] = player;
+                    collect(board, player == 1 ? 2 : 1, aiPlayer, seen, positions);
+                    board[col][row] = 0;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package dk.easv.tictactoe.bll;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class PerfectPlayAITest
+{
+
+    /**
+     * Test of findBestMoveMask method, of class PerfectPlayAI.
+     * The bundled table has to agree with a live search on every position.
+     */
+    @Test
+    public void testMatchesMinimax()
+    {
+        for (int aiPlayer = 1; aiPlayer <= 2; aiPlayer++)
+        {
+            MinimaxAI expected = new MinimaxAI(aiPlayer);
+            PerfectPlayAI instance = new PerfectPlayAI(aiPlayer);
+
+            for (int[][] board : MinimaxAITest.reachablePositions(aiPlayer))
+            {
+                assertEquals(expected.findBestMoveMask(board), instance.findBestMoveMask(board));
+                assertEquals(expected.getBestScore(), instance.getValue(board));
+            }
+        }
+    }
+
+    /**
+     * Test of findBestMove method, of class PerfectPlayAI.
+     */
+    @Test
+    public void testFindBestMoveOnFullBoard()
+    {
+        PerfectPlayAI instance = new PerfectPlayAI(1);
+        int[][] board = {{1, 2, 1}, {1, 2, 2}, {2, 1, 1}};
+
+        assertArrayEquals(new int[]{-1, -1}, instance.findBestMove(board));
+    }
+}
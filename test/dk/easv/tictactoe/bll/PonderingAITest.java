@@ -0,0 +1,127 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class PonderingAITest
+{
+
+    private ExecutorService executor;
+    private PerfectPlayAI perfect;
+    private AtomicInteger searches;
+    private PonderingAI instance;
+
+    @Before
+    public void setUp()
+    {
+        executor = Executors.newSingleThreadExecutor();
+        perfect = new PerfectPlayAI(2);
+        searches = new AtomicInteger();
+        instance = new PonderingAI(board ->
+        {
+            searches.incrementAndGet();
+            return perfect.findBestMove(board);
+        }, executor);
+    }
+
+    @After
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Test of ponder method, of class PonderingAI.
+     * Every reply of the human is answered from the cache with a best move.
+     */
+    @Test
+    public void testPonderedReplyIsNotSearchedAgain() throws InterruptedException
+    {
+        int[][] board = {{1, 0, 0}, {0, 2, 0}, {0, 0, 0}};
+        instance.ponder(board, 1);
+        awaitPondering();
+        assertEquals(7, searches.get());
+
+        for (int index = 0; index < 9; index++)
+        {
+            int[][] reply = copy(board);
+            if (reply[index % 3][index / 3] != 0)
+            {
+                continue;
+            }
+            reply[index % 3][index / 3] = 1;
+
+            assertTrue(instance.isPondered(reply));
+            int move = instance.findBestMoveIndex(reply);
+
+            assertTrue((perfect.findBestMoveMask(reply) & (1 << move)) != 0);
+        }
+        assertEquals(7, searches.get());
+    }
+
+    /**
+     * A position that is not one move after the pondered one is searched.
+     */
+    @Test
+    public void testOtherPositionIsSearched() throws InterruptedException
+    {
+        instance.ponder(new int[3][3], 1);
+        awaitPondering();
+        int[][] board = {{1, 0, 0}, {0, 2, 0}, {0, 0, 1}};
+
+        assertFalse(instance.isPondered(board));
+        int move = instance.findBestMoveIndex(board);
+
+        assertEquals(10, searches.get());
+        assertTrue((perfect.findBestMoveMask(board) & (1 << move)) != 0);
+    }
+
+    /**
+     * Test of cancel method, of class PonderingAI.
+     */
+    @Test
+    public void testCancelStopsPondering() throws InterruptedException
+    {
+        CountDownLatch busy = new CountDownLatch(1);
+        executor.submit(() ->
+        {
+            busy.await();
+            return null;
+        });
+        instance.ponder(new int[3][3], 1);
+
+        instance.cancel();
+        busy.countDown();
+        awaitPondering();
+
+        assertEquals(0, searches.get());
+        assertFalse(instance.isPondered(new int[][]{{1, 0, 0}, {0, 0, 0}, {0, 0, 0}}));
+    }
+
+    private void awaitPondering() throws InterruptedException
+    {
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+    private static int[][] copy(int[][] board)
+    {
+        int[][] copy = new int[board.length][];
+        for (int col = 0; col < board.length; col++)
+        {
+            copy[col] = board[col].clone();
+        }
+        return copy;
+    }
+}
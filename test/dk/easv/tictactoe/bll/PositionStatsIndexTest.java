@@ -0,0 +1,169 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.dal.GameRecordWriter;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class PositionStatsIndexTest
+{
+
+    private static final int[] TOP_ROW = {0, 3, 1, 4, 2};
+    private static final int[] TOP_ROW_MIRRORED = {2, 5, 1, 4, 0};
+    private static final int[] CENTER_DIAGONAL = {4, 1, 0, 2, 8};
+    private static final int[] CORNER_DRAW = {0, 4, 8, 2, 6, 3, 5, 7, 1};
+
+    private Path records;
+    private Path stats;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        records = Files.createTempFile("games", ".ttr");
+        stats = Files.createTempFile("stats", ".tts");
+        Files.delete(records);
+        Files.delete(stats);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(records);
+        Files.deleteIfExists(stats);
+    }
+
+    /**
+     * Test of update method, of class PositionStatsIndex.
+     * Mirrored games share their counts, and a second update only reads the new games.
+     */
+    @Test
+    public void testIncrementalUpdate() throws IOException
+    {
+        write(TOP_ROW, 1, 3);
+        try (PositionStatsIndex instance = PositionStatsIndex.open(stats))
+        {
+            assertEquals(3, instance.update(records));
+            write(TOP_ROW_MIRRORED, 1, 2);
+            assertEquals(2, instance.update(records));
+            assertEquals(0, instance.update(records));
+
+            assertEquals(5, instance.getGameCount());
+            assertEquals(5, instance.getWins(0, 0));
+            // O to move after X took a corner, whichever corner it was
+            assertEquals(5, instance.getLosses(0, 1));
+            assertEquals(5, instance.getLosses(0, 1 << 2));
+            assertEquals(3, instance.getReplyCount(0, 0, 0));
+            assertEquals(2, instance.getReplyCount(0, 0, 2));
+            assertEquals(0, instance.getMostCommonReply(0, 0));
+        }
+    }
+
+    /**
+     * Test of openReadOnly method, of class PositionStatsIndex.
+     */
+    @Test
+    public void testReadOnlySharesCounts() throws IOException
+    {
+        write(CORNER_DRAW, -1, 4);
+        try (PositionStatsIndex writer = PositionStatsIndex.open(stats))
+        {
+            writer.update(records);
+            try (PositionStatsIndex reader = PositionStatsIndex.openReadOnly(stats))
+            {
+                assertEquals(4, reader.getDraws(0, 0));
+                assertEquals(4, reader.getGameCount());
+            }
+        }
+    }
+
+    /**
+     * Test of findTrickyMove method, of class PositionStatsIndex.
+     */
+    @Test
+    public void testFindTrickyMove() throws IOException
+    {
+        write(CORNER_DRAW, -1, 20);
+        write(CENTER_DIAGONAL, 1, 10);
+        try (PositionStatsIndex instance = PositionStatsIndex.open(stats))
+        {
+            instance.update(records);
+
+            int centerOrCorner = (1 << 4) | 1;
+            assertEquals(4, instance.findTrickyMove(0, 0, centerOrCorner));
+            assertEquals(-1, instance.findTrickyMove(0, 0, 1 << 1));
+        }
+    }
+
+    /**
+     * Test of update method, of class PositionStatsIndex.
+     * Games counted before a corrupt record are not counted again by the next update.
+     */
+    @Test
+    public void testUpdateStopsAtCorruptRecord() throws IOException
+    {
+        write(TOP_ROW, 1, 2);
+        Files.write(records, new byte[]{(byte) 0xFF}, StandardOpenOption.APPEND);
+        try (PositionStatsIndex instance = PositionStatsIndex.open(stats))
+        {
+            try
+            {
+                instance.update(records);
+                fail("The corrupt record was read");
+            }
+            catch (IOException e)
+            {
+                // expected
+            }
+            assertEquals(2, instance.getGameCount());
+
+            // the bad byte is cut off and more games are recorded
+            try (FileChannel channel = FileChannel.open(records, StandardOpenOption.WRITE))
+            {
+                channel.truncate(Files.size(records) - 1);
+            }
+            write(CENTER_DIAGONAL, 1, 1);
+            assertEquals(1, instance.update(records));
+            assertEquals(3, instance.getGameCount());
+            assertEquals(3, instance.getWins(0, 0));
+        }
+    }
+
+    /**
+     * Test of addGame method, of class PositionStatsIndex.
+     * An illegal game adds nothing, not even for the moves before it went wrong.
+     */
+    @Test
+    public void testIllegalGameIsNotCounted() throws IOException
+    {
+        try (PositionStatsIndex instance = PositionStatsIndex.open(stats))
+        {
+            assertFalse(instance.addGame(new int[]{4, 0, 4}, 3, 1));
+            assertFalse(instance.addGame(new int[]{4, 12}, 2, 0));
+
+            assertEquals(0, instance.getGameCount());
+            assertEquals(0, instance.getWins(0, 0));
+            assertEquals(0, instance.getReplyCount(0, 0, 4));
+        }
+    }
+
+    private void write(int[] moves, int winner, int times) throws IOException
+    {
+        try (GameRecordWriter writer = new GameRecordWriter(records))
+        {
+            for (int i = 0; i < times; i++)
+            {
+                writer.write(moves, moves.length, winner);
+            }
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package dk.easv.tictactoe.bll;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class ProofNumberSearchTest
+{
+
+    /**
+     * Test of solve method, of class ProofNumberSearch.
+     * Every 3x3 position where a player is to move gets the same value as the perfect play table.
+     */
+    @Test
+    public void testSolveMatchesPerfectPlay()
+    {
+        ProofNumberSearch instance = new ProofNumberSearch(3, 3);
+        for (int player = 1; player <= 2; player++)
+        {
+            PerfectPlayAI perfect = new PerfectPlayAI(player);
+            PerfectPlayAI opponent = new PerfectPlayAI(player == 1 ? 2 : 1);
+            for (int[][] board : MinimaxAITest.reachablePositions(player))
+            {
+                int value = perfect.getValue(board);
+                ProofNumberSearch.Result expected = value > 0 ? ProofNumberSearch.Result.WIN
+                        : value < 0 ? ProofNumberSearch.Result.LOSS : ProofNumberSearch.Result.DRAW;
+
+                assertEquals(expected, instance.solve(board, player));
+                if (expected != ProofNumberSearch.Result.LOSS)
+                {
+                    // the move keeps the value, the table has no value for finished games
+                    int move = instance.getBestMove();
+                    board[move % 3][move / 3] = player;
+                    boolean won = BitboardGameBoard.hasWin(mask(board, player));
+                    boolean full = (mask(board, 1) | mask(board, 2)) == BitboardGameBoard.FULL_MASK;
+                    if (expected == ProofNumberSearch.Result.WIN)
+                    {
+                        assertTrue(won || opponent.getValue(board) < 0);
+                    }
+                    else
+                    {
+                        assertFalse(won);
+                        assertTrue(full || opponent.getValue(board) == 0);
+                    }
+                    board[move % 3][move / 3] = 0;
+                }
+            }
+        }
+    }
+
+    /**
+     * Test of getBestMove method, of class ProofNumberSearch.
+     * In every lost 3x3 position the move puts off the loss as long as any other move.
+     */
+    @Test
+    public void testLostPositionsResistLongest()
+    {
+        ProofNumberSearch instance = new ProofNumberSearch(3, 3);
+        for (int player = 1; player <= 2; player++)
+        {
+            PerfectPlayAI opponent = new PerfectPlayAI(player == 1 ? 2 : 1);
+            for (int[][] board : MinimaxAITest.reachablePositions(player))
+            {
+                if (instance.solve(board, player) != ProofNumberSearch.Result.LOSS)
+                {
+                    continue;
+                }
+                // the opponent's value is 10 - plies to its win, so lower means a later loss
+                int slowest = Integer.MAX_VALUE;
+                int chosen = 0;
+                for (int cell = 0; cell < 9; cell++)
+                {
+                    if (board[cell % 3][cell / 3] == 0)
+                    {
+                        board[cell % 3][cell / 3] = player;
+                        int value = opponent.getValue(board);
+                        board[cell % 3][cell / 3] = 0;
+                        slowest = Math.min(slowest, value);
+                        if (cell == instance.getBestMove())
+                        {
+                            chosen = value;
+                        }
+                    }
+                }
+                assertEquals(slowest, chosen);
+            }
+        }
+    }
+
+    /**
+     * Three in a row on 4x4 is a win for the first player.
+     */
+    @Test
+    public void testThreeInARowOnFourByFourIsWon()
+    {
+        ProofNumberSearch instance = new ProofNumberSearch(4, 3);
+        int[][] board = new int[4][4];
+
+        assertEquals(ProofNumberSearch.Result.WIN, instance.solve(board, 1));
+
+        int move = instance.getBestMove();
+        board[move % 4][move / 4] = 1;
+        assertEquals(ProofNumberSearch.Result.LOSS, instance.solve(board, 2));
+    }
+
+    /**
+     * Four in a row on 4x4 is a draw.
+     */
+    @Test
+    public void testFourInARowOnFourByFourIsDrawn()
+    {
+        ProofNumberSearch instance = new ProofNumberSearch(4, 4);
+
+        assertEquals(ProofNumberSearch.Result.DRAW, instance.solve(new int[4][4], 1));
+        assertTrue(instance.getTableSize() > 0);
+    }
+
+    /**
+     * A table far too small for the search evicts entries but still solves the position.
+     */
+    @Test
+    public void testSmallTableStillSolves()
+    {
+        ProofNumberSearch instance = new ProofNumberSearch(3, 3, 4096);
+
+        assertEquals(ProofNumberSearch.Result.DRAW, instance.solve(new int[3][3], 1));
+        assertTrue(instance.getTableBytes() <= 4096);
+        assertTrue(instance.getEvictions() > 0);
+    }
+
+    /**
+     * Test of setMaxNodes method, of class ProofNumberSearch.
+     */
+    @Test
+    public void testNodeLimit()
+    {
+        ProofNumberSearch instance = new ProofNumberSearch(4, 4);
+        instance.setMaxNodes(100);
+
+        assertEquals(ProofNumberSearch.Result.UNKNOWN, instance.solve(new int[4][4], 1));
+        assertEquals(-1, instance.getBestMove());
+        assertEquals(100, instance.getNodeCount());
+    }
+
+    private static int mask(int[][] board, int player)
+    {
+        int mask = 0;
+        for (int index = 0; index < 9; index++)
+        {
+            if (board[index % 3][index / 3] == player)
+            {
+                mask |= 1 << index;
+            }
+        }
+        return mask;
+    }
+}
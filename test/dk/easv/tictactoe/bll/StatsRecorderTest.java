@@ -0,0 +1,58 @@
+package dk.easv.tictactoe.bll;
+
+import dk.easv.tictactoe.dal.PlayerStats;
+import dk.easv.tictactoe.dal.PlayerStatsStore;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class StatsRecorderTest
+{
+
+    /**
+     * Finished games are recorded for both players, abandoned ones are not.
+     */
+    @Test
+    public void testRecordsFinishedGames() throws IOException
+    {
+        Path file = Files.createTempFile("players", ".stats");
+        Files.delete(file);
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            GameBoard game = new GameBoard();
+            StatsRecorder recorder = new StatsRecorder(store, "You", "AI");
+            game.addGameListener(recorder);
+
+            // X wins the top row, the AI took 2 ms per move
+            game.play(0, 0);
+            recorder.addAIMove(2_000_000);
+            game.play(0, 1);
+            game.play(1, 0);
+            recorder.addAIMove(2_000_000);
+            game.play(1, 1);
+            game.play(2, 0);
+            game.newGame();
+
+            // abandoned
+            game.play(1, 1);
+            game.newGame();
+
+            PlayerStats you = store.getStats("You");
+            PlayerStats ai = store.getStats("AI");
+            assertEquals(1, you.getWins());
+            assertEquals(1, you.getGames());
+            assertEquals(1, ai.getLosses());
+            assertEquals(1, ai.getGames());
+            assertEquals(2.0, you.getAverageAIThinkMillis(), 1e-9);
+        } finally
+        {
+            Files.deleteIfExists(file);
+        }
+    }
+}
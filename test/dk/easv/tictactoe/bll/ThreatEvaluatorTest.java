@@ -0,0 +1,122 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.SplittableRandom;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class ThreatEvaluatorTest
+{
+
+    /**
+     * Test of makeMove and unmakeMove methods, of class ThreatEvaluator.
+     * Counters kept move by move score every position like counters rebuilt from the board.
+     */
+    @Test
+    public void testIncrementalMatchesReset()
+    {
+        SplittableRandom random = new SplittableRandom(7);
+        for (int game = 0; game < 20; game++)
+        {
+            KInARowBoard board = new KInARowBoard(9, 5);
+            ThreatEvaluator incremental = new ThreatEvaluator();
+            ThreatEvaluator fresh = new ThreatEvaluator();
+            incremental.reset(board);
+            int[] played = new int[81];
+            int count = 0;
+
+            while (!board.isGameOver())
+            {
+                int index = random.nextInt(81);
+                if (board.getCellAt(index) != 0)
+                {
+                    continue;
+                }
+                int player = board.getNextPlayer();
+                board.makeMove(index);
+                incremental.makeMove(index, player);
+                played[count++] = index;
+                if (!board.isGameOver())
+                {
+                    fresh.reset(board);
+                    for (int p = 1; p <= 2; p++)
+                    {
+                        assertEquals(fresh.evaluate(board, p), incremental.evaluate(board, p));
+                    }
+                }
+            }
+
+            // taking every move back returns to the empty board
+            for (int i = count - 1; i >= 0; i--)
+            {
+                int player = board.getCellAt(played[i]);
+                assertEquals(played[i], board.unmakeMove());
+                incremental.unmakeMove(played[i], player);
+            }
+            assertEquals(0, incremental.evaluate(board, 1));
+        }
+    }
+
+    /**
+     * Test of evaluate method, of class ThreatEvaluator.
+     */
+    @Test
+    public void testThreats()
+    {
+        KInARowBoard board = new KInARowBoard(7, 4);
+        int[][] position = new int[7][7];
+        // three in a row for player 1 with both ends open
+        position[2][3] = 1;
+        position[3][3] = 1;
+        position[4][3] = 1;
+        position[3][2] = 2;
+        position[3][4] = 2;
+        board.load(position, 2);
+        ThreatEvaluator instance = new ThreatEvaluator();
+        instance.reset(board);
+
+        // player 2 can block only one end, player 1 to move simply wins
+        int lost = instance.evaluate(board, 2);
+        assertTrue(lost <= -ThreatEvaluator.THREAT_WIN_SCORE / 4 && lost > -ThreatEvaluator.THREAT_WIN_SCORE);
+        assertTrue(instance.evaluate(board, 1) >= ThreatEvaluator.THREAT_WIN_SCORE / 2);
+
+        // blocking one end leaves a single threat, which is scored normally
+        position[1][3] = 2;
+        board.load(position, 1);
+        instance.reset(board);
+        assertTrue(instance.evaluate(board, 1) >= ThreatEvaluator.THREAT_WIN_SCORE / 2);
+        assertTrue(Math.abs(instance.evaluate(board, 2)) < ThreatEvaluator.THREAT_WIN_SCORE / 4);
+        int blocked = instance.evaluate(board, 1);
+
+        // a lost side is still better off blocking than playing elsewhere
+        position[1][3] = 0;
+        position[6][6] = 2;
+        board.load(position, 1);
+        instance.reset(board);
+        assertTrue(instance.evaluate(board, 1) > blocked);
+    }
+
+    /**
+     * Open lines score for their owner and the score is symmetric between the players.
+     */
+    @Test
+    public void testOpenLinesFavourOwner()
+    {
+        KInARowBoard board = new KInARowBoard(9, 5);
+        int[][] position = new int[9][9];
+        position[4][4] = 1;
+        position[5][4] = 1;
+        position[0][0] = 2;
+        board.load(position, 1);
+        ThreatEvaluator instance = new ThreatEvaluator();
+        instance.reset(board);
+
+        int score = instance.evaluate(board, 1);
+
+        assertTrue(score > 0);
+        assertEquals(-score, instance.evaluate(board, 2));
+    }
+}
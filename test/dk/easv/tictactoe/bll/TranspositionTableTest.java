@@ -0,0 +1,97 @@
+package dk.easv.tictactoe.bll;
+
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class TranspositionTableTest
+{
+
+    /**
+     * Test of canonicalKey method, of class BoardSymmetry.
+     * The 5,478 legal positions fall into 765 classes under rotation and reflection.
+     */
+    @Test
+    public void testCanonicalKeyClassCount()
+    {
+        Set<Integer> positions = new HashSet<>();
+        Set<Integer> classes = new HashSet<>();
+        walk(0, 0, positions, classes);
+
+        assertEquals(5478, positions.size());
+        assertEquals(765, classes.size());
+    }
+
+    /**
+     * Test of transformCell and inverse methods, of class BoardSymmetry.
+     */
+    @Test
+    public void testInverse()
+    {
+        for (int s = 0; s < BoardSymmetry.COUNT; s++)
+        {
+            for (int index = 0; index < 9; index++)
+            {
+                int image = BoardSymmetry.transformCell(index, s);
+                assertEquals(index, BoardSymmetry.transformCell(image, BoardSymmetry.inverse(s)));
+            }
+        }
+    }
+
+    /**
+     * A shared table must not change the best moves and must be hit across instances.
+     */
+    @Test
+    public void testSharedTableMatchesSearch()
+    {
+        TranspositionTable table = new TranspositionTable();
+        for (int aiPlayer = 1; aiPlayer <= 2; aiPlayer++)
+        {
+            MinimaxAI expected = new MinimaxAI(aiPlayer);
+            MinimaxAI instance = new MinimaxAI(aiPlayer, table);
+
+            for (int[][] board : MinimaxAITest.reachablePositions(aiPlayer))
+            {
+                assertEquals(expected.findBestMoveMask(board), instance.findBestMoveMask(board));
+            }
+        }
+
+        assertTrue(table.getHits() > table.getMisses());
+        assertTrue(table.size() <= 765);
+    }
+
+    // x is to move when both players have the same number of stones
+    private static void walk(int x, int o, Set<Integer> positions, Set<Integer> classes)
+    {
+        if (!positions.add((x << 9) | o))
+        {
+            return;
+        }
+        boolean xToMove = Integer.bitCount(x) == Integer.bitCount(o);
+        classes.add(xToMove ? BoardSymmetry.canonicalKey(x, o) : BoardSymmetry.canonicalKey(o, x));
+        if (BitboardGameBoard.hasWin(x) || BitboardGameBoard.hasWin(o))
+        {
+            return;
+        }
+        int empty = ~(x | o) & 0b111_111_111;
+        for (int index = 0; index < 9; index++)
+        {
+            if ((empty & (1 << index)) != 0)
+            {
+                if (xToMove)
+                {
+                    walk(x | (1 << index), o, positions, classes);
+                }
+                else
+                {
+                    walk(x, o | (1 << index), positions, classes);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package dk.easv.tictactoe.dal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.SplittableRandom;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class GameRecordTest
+{
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("games", ".ttr");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Test of write and next methods, of classes GameRecordWriter and GameRecordReader.
+     * More games than fit in one buffer come back in order, across two writer sessions.
+     */
+    @Test
+    public void testRoundTrip() throws IOException
+    {
+        int games = 200_000;
+        int[][] written = new int[games][];
+        int[] winners = new int[games];
+        SplittableRandom random = new SplittableRandom(7);
+        for (int g = 0; g < games; g++)
+        {
+            written[g] = new int[random.nextInt(10)];
+            for (int i = 0; i < written[g].length; i++)
+            {
+                written[g][i] = random.nextInt(9);
+            }
+            winners[g] = random.nextInt(4) - 1;
+        }
+
+        try (GameRecordWriter writer = new GameRecordWriter(file))
+        {
+            for (int g = 0; g < games / 2; g++)
+            {
+                writer.write(written[g], written[g].length, winners[g]);
+            }
+        }
+        try (GameRecordWriter writer = new GameRecordWriter(file))
+        {
+            for (int g = games / 2; g < games; g++)
+            {
+                writer.write(written[g], written[g].length, winners[g]);
+            }
+        }
+
+        try (GameRecordReader reader = new GameRecordReader(file))
+        {
+            for (int g = 0; g < games; g++)
+            {
+                assertTrue(reader.next());
+                assertEquals(written[g].length, reader.getMoveCount());
+                for (int i = 0; i < written[g].length; i++)
+                {
+                    assertEquals(written[g][i], reader.getMove(i));
+                }
+                assertEquals(winners[g], reader.getWinner());
+            }
+            assertFalse(reader.next());
+        }
+        assertTrue(Files.size(file) <= 5 + games * 6L);
+    }
+
+    /**
+     * Test of next method, of class GameRecordReader.
+     * A game cut off at the end of the file is skipped.
+     */
+    @Test
+    public void testTruncatedGameIsSkipped() throws IOException
+    {
+        try (GameRecordWriter writer = new GameRecordWriter(file))
+        {
+            writer.write(new int[]{4, 0, 8}, 3, 0);
+            writer.write(new int[]{0, 4, 1, 2, 6, 3, 5, 7, 8}, 9, -1);
+        }
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw"))
+        {
+            raf.setLength(raf.length() - 1);
+        }
+
+        try (GameRecordReader reader = new GameRecordReader(file))
+        {
+            assertTrue(reader.next());
+            assertEquals(8, reader.getMove(2));
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Test of getPosition and seek methods, of class GameRecordReader.
+     */
+    @Test
+    public void testSeekContinuesAfterPosition() throws IOException
+    {
+        long position;
+        try (GameRecordWriter writer = new GameRecordWriter(file))
+        {
+            writer.write(new int[]{4, 0, 8}, 3, 0);
+            writer.write(new int[]{1}, 1, 0);
+        }
+        try (GameRecordReader reader = new GameRecordReader(file))
+        {
+            assertTrue(reader.next());
+            position = reader.getPosition();
+        }
+        try (GameRecordReader reader = new GameRecordReader(file))
+        {
+            reader.seek(position);
+            assertTrue(reader.next());
+            assertEquals(1, reader.getMoveCount());
+            assertEquals(1, reader.getMove(0));
+            assertFalse(reader.next());
+        }
+    }
+
+    /**
+     * Test of GameRecordWriter constructor.
+     */
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException
+    {
+        Files.write(file, new byte[]{1, 2, 3, 4, 5, 6});
+        new GameRecordWriter(file).close();
+    }
+}
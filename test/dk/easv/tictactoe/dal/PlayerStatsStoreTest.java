@@ -0,0 +1,183 @@
+package dk.easv.tictactoe.dal;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class PlayerStatsStoreTest
+{
+
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("players", ".stats");
+        Files.delete(file);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".tmp"));
+        Files.deleteIfExists(file.resolveSibling(file.getFileName() + ".lock"));
+    }
+
+    /**
+     * Stats are readable as soon as a game is recorded, and come back from the log after a reopen.
+     */
+    @Test
+    public void testRecordAndReopen() throws IOException
+    {
+        try (PlayerStatsStore store = new PlayerStatsStore(file, Duration.ofHours(1)))
+        {
+            store.record("Ann", PlayerStats.Result.WIN, 3_000_000, 3);
+            store.record("Ann", PlayerStats.Result.WIN, 1_000_000, 1);
+            store.record("Ann", PlayerStats.Result.LOSS, 0, 0);
+            store.record("Bob", PlayerStats.Result.DRAW, 0, 0);
+
+            // nothing is written before the flush interval
+            assertEquals(0, store.getRecordCount());
+            assertEquals(2, store.getStats("Ann").getWins());
+        }
+
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            PlayerStats ann = store.getStats("Ann");
+            assertEquals(3, ann.getGames());
+            assertEquals(1, ann.getLosses());
+            assertEquals(-1, ann.getStreak());
+            assertEquals(2, ann.getBestStreak());
+            assertEquals(1.0, ann.getAverageAIThinkMillis(), 1e-9);
+            assertEquals(1, store.getStats("Bob").getDraws());
+            assertEquals(0, store.getStats("Carl").getGames());
+
+            // nothing played in this session yet
+            assertEquals(0, store.getSessionStats("Ann").getGames());
+            assertEquals(2, store.getAllStats().size());
+        }
+    }
+
+    /**
+     * The background writer batches games to the log and compacts it to one record per player.
+     */
+    @Test
+    public void testBackgroundFlushAndCompaction() throws Exception
+    {
+        int games = 5_000;
+        try (PlayerStatsStore store = new PlayerStatsStore(file, Duration.ofMillis(10)))
+        {
+            for (int i = 0; i < games; i++)
+            {
+                store.record(i % 2 == 0 ? "Ann" : "Bob", PlayerStats.Result.values()[i % 3], 0, 0);
+            }
+            long deadline = System.nanoTime() + 10_000_000_000L;
+            while (store.getPendingGames() > 0 || store.getCompactions() == 0)
+            {
+                assertTrue("background writer did not compact the log", System.nanoTime() < deadline);
+                Thread.sleep(10);
+            }
+            // games written after the last compaction stay in the log until it grows again
+            assertTrue(store.getRecordCount() <= 1024);
+        }
+        assertTrue(Files.size(file) < 1024 * 20);
+
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            assertEquals(games / 2, store.getStats("Ann").getGames());
+            assertEquals(games / 2, store.getStats("Bob").getGames());
+            assertEquals(games / 3 + 1, store.getStats("Ann").getWins() + store.getStats("Bob").getWins());
+        }
+    }
+
+    /**
+     * A record cut short at the end of the log is dropped and the log stays usable.
+     */
+    @Test
+    public void testTruncatedRecord() throws IOException
+    {
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            store.record("Ann", PlayerStats.Result.WIN, 0, 0);
+            store.record("Ann", PlayerStats.Result.WIN, 0, 0);
+        }
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw"))
+        {
+            raw.setLength(raw.length() - 3);
+        }
+
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            assertEquals(1, store.getStats("Ann").getWins());
+            store.record("Ann", PlayerStats.Result.DRAW, 0, 0);
+        }
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            assertEquals(2, store.getStats("Ann").getGames());
+            assertEquals(0, store.getStats("Ann").getStreak());
+        }
+    }
+
+    /**
+     * Bytes at the end of the log that are not a record, e.g. a batch half written before a disk
+     * error, are dropped like a record cut short.
+     */
+    @Test
+    public void testMalformedTail() throws IOException
+    {
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            store.record("Ann", PlayerStats.Result.WIN, 0, 0);
+        }
+        long size = Files.size(file);
+        try (RandomAccessFile raw = new RandomAccessFile(file.toFile(), "rw"))
+        {
+            raw.seek(size);
+            raw.write(new byte[]{PlayerStatsStore.GAME, 0, 1, 'B', 9}); // result 9 does not exist
+        }
+
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            assertEquals(1, store.getStats("Ann").getWins());
+            assertEquals(size, Files.size(file));
+            store.record("Ann", PlayerStats.Result.LOSS, 0, 0);
+        }
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            assertEquals(2, store.getStats("Ann").getGames());
+        }
+    }
+
+    /**
+     * Only one store at a time may use a log.
+     */
+    @Test(expected = IOException.class)
+    public void testLogIsLocked() throws IOException
+    {
+        try (PlayerStatsStore store = new PlayerStatsStore(file))
+        {
+            new PlayerStatsStore(file).close();
+        }
+    }
+
+    /**
+     * A file that is not a stats log is rejected.
+     */
+    @Test(expected = IOException.class)
+    public void testRejectsOtherFiles() throws IOException
+    {
+        Files.write(file, new byte[]{'T', 'T', 'T', 'R', 1});
+        new PlayerStatsStore(file).close();
+    }
+}
@@ -0,0 +1,55 @@
+package dk.easv.tictactoe.metrics;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class LatencyHistogramTest
+{
+
+    /**
+     * Test of getPercentileNanos method, of class LatencyHistogram.
+     * Percentiles are the upper end of their power-of-two bucket.
+     */
+    @Test
+    public void testPercentiles()
+    {
+        LatencyHistogram instance = new LatencyHistogram();
+        for (int i = 0; i < 99; i++)
+        {
+            instance.record(1000); // bucket [512, 1024)
+        }
+        instance.record(1_000_000);
+
+        assertEquals(100, instance.getCount());
+        assertEquals(1023, instance.getPercentileNanos(0.5));
+        assertEquals(1023, instance.getPercentileNanos(0.99));
+        assertEquals(1_000_000, instance.getPercentileNanos(1.0));
+        assertEquals(1_000_000, instance.getMaxNanos());
+        assertEquals(99 * 1000 + 1_000_000, instance.getTotalNanos());
+    }
+
+    /**
+     * Test of getPercentileNanos method, of class LatencyHistogram.
+     */
+    @Test
+    public void testEmpty()
+    {
+        assertEquals(0, new LatencyHistogram().getPercentileNanos(0.99));
+    }
+
+    /**
+     * Test of snapshot method, of class MetricsReporter.
+     * Every CSV line has a value for each header column.
+     */
+    @Test
+    public void testSnapshotMatchesHeader()
+    {
+        MetricsReporter instance = new MetricsReporter(null, java.time.Duration.ofSeconds(1));
+
+        assertEquals(MetricsReporter.HEADER.split(",").length, instance.snapshot().split(",").length);
+    }
+}
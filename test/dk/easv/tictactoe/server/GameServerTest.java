@@ -0,0 +1,101 @@
+package dk.easv.tictactoe.server;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.stream.Stream;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class GameServerTest
+{
+
+    private GameServer server;
+    private HttpClient client;
+    private String url;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        server = new GameServer(0, 16, Duration.ofMinutes(1));
+        server.start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        url = "http://localhost:" + server.getPort() + "/games";
+    }
+
+    @After
+    public void tearDown()
+    {
+        server.stop();
+    }
+
+    /**
+     * Creates a game, plays a move and ends the game over HTTP.
+     */
+    @Test
+    public void testGameOverHttp() throws Exception
+    {
+        HttpResponse<String> created = send("POST", url + "?ai=2");
+        assertEquals(201, created.statusCode());
+        assertTrue(created.body().contains("\"board\":\".........\""));
+        String id = created.body().substring(6, created.body().indexOf(','));
+
+        HttpResponse<String> moved = send("POST", url + "/" + id + "/moves?cell=4");
+        assertEquals(200, moved.statusCode());
+        assertTrue(moved.body().contains("\"next\":1"));
+
+        assertEquals(409, send("POST", url + "/" + id + "/moves?cell=4").statusCode());
+        assertEquals(400, send("POST", url + "/" + id + "/moves?cell=9").statusCode());
+        assertEquals(204, send("DELETE", url + "/" + id).statusCode());
+        assertEquals(404, send("GET", url + "/" + id).statusCode());
+    }
+
+    /**
+     * A spectator sees the moves of a game and the stream ends with the game.
+     */
+    @Test
+    public void testSpectatorStream() throws Exception
+    {
+        String created = send("POST", url + "?ai=2").body();
+        String id = created.substring(6, created.indexOf(','));
+        HttpResponse<Stream<String>> stream = client.send(HttpRequest.newBuilder(URI.create(url + "/" + id + "/events")).build(),
+                HttpResponse.BodyHandlers.ofLines());
+        assertEquals(200, stream.statusCode());
+        Iterator<String> lines = stream.body().iterator();
+        assertEquals("event: board", lines.next());
+        assertEquals("data: .........", lines.next());
+
+        send("POST", url + "/" + id + "/moves?cell=4");
+        lines.next();
+        assertEquals("event: move", lines.next());
+        assertEquals("data: X4", lines.next());
+        lines.next();
+        assertEquals("event: move", lines.next());
+        assertTrue(lines.next().startsWith("data: O"));
+
+        send("DELETE", url + "/" + id);
+        lines.next();
+        assertEquals("event: end", lines.next());
+        assertEquals("data: closed", lines.next());
+        lines.next();
+        assertFalse(lines.hasNext());
+        assertEquals(404, send("GET", url + "/" + id + "/events").statusCode());
+    }
+
+    private HttpResponse<String> send(String method, String target) throws Exception
+    {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(target))
+                .method(method, HttpRequest.BodyPublishers.noBody())
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+}
@@ -0,0 +1,208 @@
+package dk.easv.tictactoe.server;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class SessionStoreTest
+{
+
+    /**
+     * Test of create method, of class SessionStore.
+     */
+    @Test
+    public void testCreateUntilFull()
+    {
+        SessionStore instance = new SessionStore(2);
+
+        long first = instance.create(1);
+        long second = instance.create(2);
+
+        assertNotEquals(-1, first);
+        assertNotEquals(-1, second);
+        assertEquals(-1, instance.create(2));
+        assertEquals(2, instance.size());
+        assertEquals(1, PackedGame.aiPlayer(instance.get(first)));
+        assertEquals(2, PackedGame.aiPlayer(instance.get(second)));
+    }
+
+    /**
+     * Test of remove method, of class SessionStore.
+     * An id must stop working once its slot is reused by another game.
+     */
+    @Test
+    public void testRemovedIdIsNotReused()
+    {
+        SessionStore instance = new SessionStore(1);
+        long old = instance.create(2);
+
+        assertTrue(instance.remove(old));
+        long reused = instance.create(2);
+
+        assertNotEquals(old, reused);
+        assertEquals(0, instance.get(old));
+        assertFalse(instance.remove(old));
+        assertNotEquals(0, instance.get(reused));
+    }
+
+    /**
+     * Test of compareAndSet method, of class SessionStore.
+     */
+    @Test
+    public void testCompareAndSetRejectsStaleState()
+    {
+        SessionStore instance = new SessionStore(4);
+        long id = instance.create(2);
+        long state = instance.get(id);
+
+        assertTrue(instance.compareAndSet(id, state, PackedGame.play(state, 4)));
+        assertFalse(instance.compareAndSet(id, state, PackedGame.play(state, 0)));
+        assertEquals("....X....", PackedGame.board(instance.get(id)));
+    }
+
+    /**
+     * Test of evictIdle method, of class SessionStore.
+     */
+    @Test
+    public void testEvictIdle() throws InterruptedException
+    {
+        SessionStore instance = new SessionStore(4);
+        long idle = instance.create(2);
+        Thread.sleep(20);
+        long busy = instance.create(2);
+
+        assertEquals(1, instance.evictIdle(10_000_000L));
+        assertEquals(0, instance.get(idle));
+        assertNotEquals(0, instance.get(busy));
+        assertEquals(1, instance.size());
+    }
+
+    /**
+     * Test of peek method, of class SessionStore.
+     * Peeking at a session must not keep it from being evicted.
+     */
+    @Test
+    public void testPeekDoesNotRefreshAccess() throws InterruptedException
+    {
+        SessionStore instance = new SessionStore(4);
+        long id = instance.create(2);
+        Thread.sleep(20);
+
+        assertNotEquals(0, instance.peek(id));
+        assertEquals(1, instance.evictIdle(10_000_000L));
+        assertEquals(0, instance.peek(id));
+    }
+
+    /**
+     * Test of create method, of class SessionStore.
+     * A new session must not be evicted for the idle time of the slot's previous occupant.
+     */
+    @Test
+    public void testCreateWhileEvicting() throws InterruptedException
+    {
+        SessionStore instance = new SessionStore(8);
+        long[] stale = new long[8];
+        for (int i = 0; i < stale.length; i++)
+        {
+            stale[i] = instance.create(2);
+        }
+        Thread.sleep(300);
+        for (long id : stale)
+        {
+            instance.remove(id); // every slot is left with an old access time
+        }
+
+        AtomicBoolean creating = new AtomicBoolean(true);
+        AtomicInteger evicted = new AtomicInteger();
+        Thread evictor = new Thread(() ->
+        {
+            while (creating.get())
+            {
+                evicted.addAndGet(instance.evictIdle(250_000_000L));
+            }
+        });
+        evictor.start();
+        int lost = 0;
+        long end = System.nanoTime() + 200_000_000L;
+        while (System.nanoTime() < end)
+        {
+            long id = instance.create(2);
+            if (instance.get(id) == 0)
+            {
+                lost++;
+            }
+            instance.remove(id);
+        }
+        creating.set(false);
+        evictor.join();
+
+        assertEquals(0, lost);
+        assertEquals(0, evicted.get());
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test of evictIdle method, of class GameService.
+     * Evicting a watched game ends its spectator stream and removes its channel.
+     */
+    @Test
+    public void testServiceEvictionClosesChannel() throws InterruptedException
+    {
+        GameService service = new GameService(new SessionStore(4));
+        long id = service.createGame(2);
+        SpectatorHub.Subscription subscription = service.watch(id);
+        Thread.sleep(20);
+
+        assertEquals(1, service.evictIdle(10_000_000L));
+        assertEquals(0, service.getSpectators().size());
+        assertEquals("event: end\ndata: closed\n\n", subscription.awaitBatch(1, TimeUnit.SECONDS));
+        assertNull(service.watch(id));
+        assertEquals(0, service.getSpectators().size());
+    }
+
+    /**
+     * Test of playMove method, of class GameService.
+     * The perfect AI never loses, whatever the human plays.
+     */
+    @Test
+    public void testServiceAINeverLoses()
+    {
+        GameService service = new GameService(new SessionStore(16));
+        for (int game = 0; game < 200; game++)
+        {
+            int aiPlayer = game % 2 + 1;
+            long id = service.createGame(aiPlayer);
+            long state = service.getGame(id);
+            while (PackedGame.winner(state) == 0)
+            {
+                int cell = (game * 7 + Long.bitCount(state)) % 9;
+                while (!PackedGame.isEmpty(state, cell))
+                {
+                    cell = (cell + 1) % 9;
+                }
+                state = service.playMove(id, cell);
+            }
+            assertNotEquals(aiPlayer == 1 ? 2 : 1, PackedGame.winner(state));
+            assertTrue(service.endGame(id));
+        }
+    }
+
+    /**
+     * Test of playMove method, of class GameService.
+     */
+    @Test(expected = IllegalStateException.class)
+    public void testServiceRejectsTakenCell()
+    {
+        GameService service = new GameService(new SessionStore(1));
+        long id = service.createGame(1);
+        int aiMove = Integer.numberOfTrailingZeros(PackedGame.mask(service.getGame(id), 1));
+
+        service.playMove(id, aiMove);
+    }
+}
@@ -0,0 +1,118 @@
+package dk.easv.tictactoe.server;
+
+import dk.easv.tictactoe.bll.KInARowBoard;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class SpectatorHubTest
+{
+
+    /**
+     * A subscriber that has not read for a while gets every missed event in one batch.
+     */
+    @Test
+    public void testSlowSubscriberIsCoalesced() throws Exception
+    {
+        SpectatorHub instance = new SpectatorHub();
+        SpectatorHub.Subscription fast = instance.subscribe(7, 9);
+        SpectatorHub.Subscription slow = instance.subscribe(7, 9);
+        assertEquals("event: board\ndata: .........\n\n", slow.getSnapshot());
+
+        instance.publishMove(7, 1, 4);
+        assertEquals("event: move\ndata: X4\n\n", fast.awaitBatch(1, TimeUnit.SECONDS));
+        instance.publishMove(7, 2, 0);
+        instance.publishMove(7, 2, 0); // published twice, sent once
+        instance.publishMove(7, 1, 8);
+        assertEquals("event: move\ndata: O0\n\nevent: move\ndata: X8\n\n", fast.awaitBatch(1, TimeUnit.SECONDS));
+
+        assertEquals("event: move\ndata: X4\n\nevent: move\ndata: O0\n\nevent: move\ndata: X8\n\n",
+                slow.awaitBatch(1, TimeUnit.SECONDS));
+        assertEquals("", slow.awaitBatch(10, TimeUnit.MILLISECONDS));
+
+        // a late subscriber starts from the board
+        assertEquals("event: board\ndata: O...X...X\n\n", instance.subscribe(7, 9).getSnapshot());
+    }
+
+    /**
+     * Closing a channel ends the streams after the events still in the log.
+     */
+    @Test
+    public void testCloseEndsStream() throws Exception
+    {
+        SpectatorHub instance = new SpectatorHub();
+        SpectatorHub.Subscription subscription = instance.subscribe(3, 9);
+        instance.publishMove(3, 1, 0);
+        instance.close(3);
+
+        assertEquals("event: move\ndata: X0\n\nevent: end\ndata: closed\n\n", subscription.awaitBatch(1, TimeUnit.SECONDS));
+        assertNull(subscription.awaitBatch(1, TimeUnit.SECONDS));
+        assertFalse(instance.isWatched(3));
+
+        // nothing is kept for games nobody watches
+        instance.publishMove(4, 1, 0);
+        assertEquals(0, instance.size());
+    }
+
+    /**
+     * Test of listener method, of class SpectatorHub.
+     */
+    @Test
+    public void testListenerOnBoard() throws Exception
+    {
+        SpectatorHub instance = new SpectatorHub();
+        KInARowBoard board = new KInARowBoard(4, 3);
+        board.addGameListener(instance.listener(1, 4));
+        SpectatorHub.Subscription subscription = instance.subscribe(1, 16);
+
+        board.play(1, 2);
+        board.play(0, 0);
+        assertEquals("event: move\ndata: X9\n\nevent: move\ndata: O0\n\n", subscription.awaitBatch(1, TimeUnit.SECONDS));
+
+        board.newGame();
+        assertEquals("event: new\ndata:\n\n", subscription.awaitBatch(1, TimeUnit.SECONDS));
+    }
+
+    /**
+     * A new game restarts the log: a subscriber that fell behind skips the moves of the old board.
+     */
+    @Test
+    public void testNewGameRestartsLog() throws Exception
+    {
+        SpectatorHub instance = new SpectatorHub();
+        SpectatorHub.Channel channel = instance.open(2, 9);
+        SpectatorHub.Subscription behind = channel.subscribe();
+        for (int round = 0; round < 100; round++)
+        {
+            channel.move(1, 0);
+            channel.move(2, 4);
+            channel.newGame();
+        }
+        channel.move(1, 8);
+
+        assertEquals("event: new\ndata:\n\nevent: move\ndata: X8\n\n", behind.awaitBatch(1, TimeUnit.SECONDS));
+        assertEquals("event: board\ndata: ........X\n\n", channel.subscribe().getSnapshot());
+        assertEquals(2, channel.getLoggedEvents());
+    }
+
+    /**
+     * A move taken back on a watched board reaches the spectators and clears the cell.
+     */
+    @Test
+    public void testUndoIsPublished() throws Exception
+    {
+        SpectatorHub instance = new SpectatorHub();
+        KInARowBoard board = new KInARowBoard();
+        board.addGameListener(instance.listener(3, 3));
+        SpectatorHub.Subscription subscription = instance.subscribe(3, 9);
+        board.play(1, 1);
+        board.undo();
+
+        assertEquals("event: move\ndata: X4\n\nevent: undo\ndata: 4\n\n", subscription.awaitBatch(1, TimeUnit.SECONDS));
+        assertEquals("event: board\ndata: .........\n\n", instance.subscribe(3, 9).getSnapshot());
+    }
+}
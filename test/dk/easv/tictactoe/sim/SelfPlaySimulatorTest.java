@@ -0,0 +1,70 @@
+package dk.easv.tictactoe.sim;
+
+import dk.easv.tictactoe.bll.AIRegistry;
+import dk.easv.tictactoe.bll.MctsAI;
+import dk.easv.tictactoe.bll.MinimaxAI;
+import dk.easv.tictactoe.bll.PerfectPlayAI;
+import dk.easv.tictactoe.bll.RandomAI;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ *
+ * @author EASV
+ */
+public class SelfPlaySimulatorTest
+{
+
+    /**
+     * Test of run method, of class SelfPlaySimulator.
+     */
+    @Test
+    public void testRandomGamesAreAllCounted()
+    {
+        SelfPlaySimulator instance = new SelfPlaySimulator(player -> new RandomAI(), player -> new RandomAI());
+
+        SimulationResult result = instance.run(100_000, 4);
+
+        assertEquals(100_000, result.getGames());
+        // X moves first and wins more than half of random games
+        assertTrue(result.getPlayer1Wins() > result.getPlayer2Wins());
+        assertTrue(result.getDraws() > 0);
+    }
+
+    /**
+     * Perfect play on both sides always ends in a draw.
+     */
+    @Test
+    public void testPerfectPlayDraws()
+    {
+        SelfPlaySimulator instance = new SelfPlaySimulator(PerfectPlayAI::new, PerfectPlayAI::new);
+
+        SimulationResult result = instance.run(10_000, 2);
+
+        assertEquals(10_000, result.getDraws());
+    }
+
+    /**
+     * Test of playerFactory method, of class SelfPlaySimulator.
+     * The simulator's own names keep their old players, other names come from the registry.
+     */
+    @Test
+    public void testPlayerFactoryNames()
+    {
+        MinimaxAI minimax = (MinimaxAI) SelfPlaySimulator.playerFactory("minimax").apply(1);
+        MctsAI mcts = (MctsAI) SelfPlaySimulator.playerFactory("mcts").apply(2);
+
+        assertEquals(0.25, minimax.getMistakeProbability(), 0);
+        assertEquals(200, mcts.getPlayouts());
+        assertEquals(AIRegistry.HARD_PLAYOUTS, ((MctsAI) SelfPlaySimulator.playerFactory("mcts-hard").apply(1)).getPlayouts());
+    }
+
+    /**
+     * Test of playerFactory method, of class SelfPlaySimulator.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void testPlayerFactoryUnknownName()
+    {
+        SelfPlaySimulator.playerFactory("nobody");
+    }
+}